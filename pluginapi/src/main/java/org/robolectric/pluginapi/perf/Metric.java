@@ -64,6 +64,10 @@ public class Metric {
     this.count++;
   }
 
+  public void incrementCount(int delta) {
+    this.count += delta;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
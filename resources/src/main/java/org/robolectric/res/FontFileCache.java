@@ -0,0 +1,86 @@
+package org.robolectric.res;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Holds the contents of font files, so that each is read once per JVM rather than once per test
+ * or sandbox.
+ *
+ * <p>Files on the default file system are memory-mapped; others, e.g. assets in an APK, are read
+ * onto the heap, and those are evicted least recently used first once they take up more than
+ * {@code robolectric.fontFileCache.maxBytes} (16MB by default).
+ */
+@SuppressWarnings({"NewApi", "AndroidJdkLibsChecker"})
+public final class FontFileCache {
+  private static final long MAX_HEAP_BYTES =
+      Long.getLong("robolectric.fontFileCache.maxBytes", 16L * 1024 * 1024);
+
+  @GuardedBy("FONT_FILES")
+  private static final LinkedHashMap<List<Object>, ByteBuffer> FONT_FILES =
+      new LinkedHashMap<>(16, 0.75f, /* accessOrder= */ true);
+
+  @GuardedBy("FONT_FILES")
+  private static long heapBytes;
+
+  private FontFileCache() {}
+
+  /**
+   * Returns the read-only contents of {@code file}, which are reloaded if its size or last
+   * modified time change. Each call returns a new buffer, positioned at the start of the file.
+   */
+  public static ByteBuffer getFontFile(Path file) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+    // The URI rather than the path, so that files in zip file systems are keyed by their archive.
+    List<Object> key =
+        Arrays.asList(file.toUri().toString(), attributes.lastModifiedTime(), attributes.size());
+    synchronized (FONT_FILES) {
+      ByteBuffer contents = FONT_FILES.get(key);
+      if (contents == null) {
+        contents = load(file);
+        FONT_FILES.put(key, contents);
+        if (!contents.isDirect()) {
+          heapBytes += contents.capacity();
+          evictHeapBuffers();
+        }
+      }
+      return contents.duplicate();
+    }
+  }
+
+  private static ByteBuffer load(Path file) throws IOException {
+    if (file.getFileSystem() != FileSystems.getDefault()) {
+      return ByteBuffer.wrap(Files.readAllBytes(file)).asReadOnlyBuffer();
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      // Fonts are read all over while shaping text, so it's worth paging them in up front.
+      buffer.load();
+      return buffer;
+    }
+  }
+
+  @GuardedBy("FONT_FILES")
+  private static void evictHeapBuffers() {
+    Iterator<ByteBuffer> iterator = FONT_FILES.values().iterator();
+    while (heapBytes > MAX_HEAP_BYTES && iterator.hasNext()) {
+      ByteBuffer contents = iterator.next();
+      if (!contents.isDirect()) {
+        heapBytes -= contents.capacity();
+        iterator.remove();
+      }
+    }
+  }
+}
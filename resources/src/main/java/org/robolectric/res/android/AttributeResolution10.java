@@ -305,149 +305,174 @@ public class AttributeResolution10 {
         // Retrieve the XML attributes, if requested.
         XmlAttributeFinder xml_attr_finder = new XmlAttributeFinder(xml_parser);
 
+        final Ref<Integer> type_set_flags = new Ref<>(0);
+        final Ref<Integer> resid = new Ref<>(0);
+
+        // Robolectric-custom: values for attributes which aren't set in XML only depend on the theme
+        // and the styles, so they are memoized per theme.
+        Theme.StyleKey style_key =
+                new Theme.StyleKey(def_style_attr, def_style_resid, style_resid, attrs, attrs_length);
+        int[] style_values = theme.GetCachedStyleValues(style_key);
+        if (style_values == null) {
+            style_values = new int[attrs_length * STYLE_NUM_ENTRIES];
+            for (int ii = 0; ii < attrs_length; ii++) {
+                ApplyStyleAttribute(theme, null, -1, attrs[ii], style_flags.get(), def_style_flags.get(),
+                        xml_style_attr_finder, def_style_attr_finder, config, value, type_set_flags, resid,
+                        style_values, ii * STYLE_NUM_ENTRIES);
+            }
+            theme.CacheStyleValues(style_key, style_values);
+        }
+
         // Now iterate through all of the attributes that the client has requested,
         // filling in each with whatever data we can find.
         for (int ii = 0; ii < attrs_length; ii++) {
             final int cur_ident = attrs[ii];
+            final int dest_index = ii * STYLE_NUM_ENTRIES;
 
-            if (kDebugStyles) {
-                ALOGI("RETRIEVING ATTR 0x%08x...", cur_ident);
+            // Walk through the xml attributes looking for the requested attribute.
+            int xml_attr_idx = xml_attr_finder.Find(cur_ident);
+            if (xml_attr_idx != -1) {
+                ApplyStyleAttribute(theme, xml_parser, xml_attr_idx, cur_ident, style_flags.get(),
+                        def_style_flags.get(), xml_style_attr_finder, def_style_attr_finder, config, value,
+                        type_set_flags, resid, out_values, dest_index);
+            } else {
+                System.arraycopy(style_values, dest_index, out_values, dest_index, STYLE_NUM_ENTRIES);
             }
 
-            ApkAssetsCookie cookie = K_INVALID_COOKIE;
-            final Ref<Integer> type_set_flags = new Ref<>(0);
+            if (out_values[dest_index + STYLE_TYPE] != DataType.NULL.code()
+                    || out_values[dest_index + STYLE_DATA] == Res_value.DATA_NULL_EMPTY) {
+                indices_idx++;
 
-            value.set(Res_value.NULL_VALUE);
-            config.get().density = 0;
-            int source_style_resid = 0;
+                // out_indices must NOT be nullptr.
+                out_indices[indices_idx] = ii;
+            }
+        }
 
-            // Try to find a value for this attribute...  we prioritize values
-            // coming from, first XML attributes, then XML style, then default
-            // style, and finally the theme.
+        // out_indices must NOT be nullptr.
+        out_indices[0] = indices_idx;
+    }
 
-            // Walk through the xml attributes looking for the requested attribute.
-            int xml_attr_idx = xml_attr_finder.Find(cur_ident);
-            if (xml_attr_idx != -1) {
-                // We found the attribute we were looking for.
-                xml_parser.getAttributeValue(xml_attr_idx, value);
-                type_set_flags.set(style_flags.get());
-                if (kDebugStyles) {
-                    ALOGI("-> From XML: type=0x%x, data=0x%08x", value.get().dataType, value.get().data);
-                }
+    // Robolectric-custom: resolves a single attribute for ApplyStyle() and writes it into
+    // out_values at dest_index. `xml_attr_idx` is the index of the attribute in `xml_parser`,
+    // or -1 if it is not set in XML.
+    private static void ApplyStyleAttribute(Theme theme, ResXMLParser xml_parser,
+            int xml_attr_idx, int cur_ident, int style_flags, int def_style_flags,
+            BagAttributeFinder xml_style_attr_finder, BagAttributeFinder def_style_attr_finder,
+            Ref<ResTable_config> config, Ref<Res_value> value, Ref<Integer> type_set_flags,
+            Ref<Integer> resid, int[] out_values, int dest_index) {
+        CppAssetManager2 assetmanager = theme.GetAssetManager();
+
+        if (kDebugStyles) {
+            ALOGI("RETRIEVING ATTR 0x%08x...", cur_ident);
+        }
+
+        ApkAssetsCookie cookie = K_INVALID_COOKIE;
+        type_set_flags.set(0);
+
+        value.set(Res_value.NULL_VALUE);
+        config.get().density = 0;
+        int source_style_resid = 0;
+
+        // Try to find a value for this attribute...  we prioritize values
+        // coming from, first XML attributes, then XML style, then default
+        // style, and finally the theme.
+
+        // Walk through the xml attributes looking for the requested attribute.
+        if (xml_attr_idx != -1) {
+            // We found the attribute we were looking for.
+            xml_parser.getAttributeValue(xml_attr_idx, value);
+            type_set_flags.set(style_flags);
+            if (kDebugStyles) {
+                ALOGI("-> From XML: type=0x%x, data=0x%08x", value.get().dataType, value.get().data);
             }
+        }
 
-            if (value.get().dataType == DataType.NULL.code() && value.get().data != Res_value.DATA_NULL_EMPTY) {
-                // Walk through the style class values looking for the requested attribute.
-                Entry entry = xml_style_attr_finder.Find(cur_ident);
-                if (entry != null) {
-                    // We found the attribute we were looking for.
-                    cookie = entry.cookie;
-                    type_set_flags.set(style_flags.get());
-                    value.set(entry.value);
-                    source_style_resid = entry.style;
-                    if (kDebugStyles) {
-                        ALOGI("-> From style: type=0x%x, data=0x%08x, style=0x%08x", value.get().dataType, value.get().data,
-                                entry.style);
-                    }
+        if (value.get().dataType == DataType.NULL.code() && value.get().data != Res_value.DATA_NULL_EMPTY) {
+            // Walk through the style class values looking for the requested attribute.
+            Entry entry = xml_style_attr_finder.Find(cur_ident);
+            if (entry != null) {
+                // We found the attribute we were looking for.
+                cookie = entry.cookie;
+                type_set_flags.set(style_flags);
+                value.set(entry.value);
+                source_style_resid = entry.style;
+                if (kDebugStyles) {
+                    ALOGI("-> From style: type=0x%x, data=0x%08x, style=0x%08x", value.get().dataType, value.get().data,
+                            entry.style);
                 }
             }
+        }
 
-            if (value.get().dataType == DataType.NULL.code() && value.get().data != Res_value.DATA_NULL_EMPTY) {
-                // Walk through the default style values looking for the requested attribute.
-                Entry entry = def_style_attr_finder.Find(cur_ident);
-                if (entry != null) {
-                    // We found the attribute we were looking for.
-                    cookie = entry.cookie;
-                    type_set_flags.set(def_style_flags.get());
+        if (value.get().dataType == DataType.NULL.code() && value.get().data != Res_value.DATA_NULL_EMPTY) {
+            // Walk through the default style values looking for the requested attribute.
+            Entry entry = def_style_attr_finder.Find(cur_ident);
+            if (entry != null) {
+                // We found the attribute we were looking for.
+                cookie = entry.cookie;
+                type_set_flags.set(def_style_flags);
 
-                    value.set(entry.value);
-                    if (kDebugStyles) {
-                        ALOGI("-> From def style: type=0x%x, data=0x%08x, style=0x%08x", value.get().dataType, value.get().data,
-                                entry.style);
-                    }
-                    source_style_resid = entry.style;
+                value.set(entry.value);
+                if (kDebugStyles) {
+                    ALOGI("-> From def style: type=0x%x, data=0x%08x, style=0x%08x", value.get().dataType, value.get().data,
+                            entry.style);
                 }
+                source_style_resid = entry.style;
             }
+        }
 
-            final Ref<Integer> resid = new Ref<>(0);
-            if (value.get().dataType != DataType.NULL.code()) {
-                // Take care of resolving the found resource to its final value.
-                ApkAssetsCookie new_cookie =
-                        theme.ResolveAttributeReference(cookie, value, config, type_set_flags, resid);
-                if (new_cookie.intValue() != kInvalidCookie) {
-                    cookie = new_cookie;
-                }
+        resid.set(0);
+        if (value.get().dataType != DataType.NULL.code()) {
+            // Take care of resolving the found resource to its final value.
+            ApkAssetsCookie new_cookie =
+                    theme.ResolveAttributeReference(cookie, value, config, type_set_flags, resid);
+            if (new_cookie.intValue() != kInvalidCookie) {
+                cookie = new_cookie;
+            }
 
+            if (kDebugStyles) {
+                ALOGI("-> Resolved attr: type=0x%x, data=0x%08x", value.get().dataType, value.get().data);
+            }
+        } else if (value.get().data != Res_value.DATA_NULL_EMPTY) {
+            // If we still don't have a value for this attribute, try to find it in the theme!
+            ApkAssetsCookie new_cookie = theme.GetAttribute(cur_ident, value, type_set_flags);
+            if (new_cookie.intValue() != kInvalidCookie) {
                 if (kDebugStyles) {
-                    ALOGI("-> Resolved attr: type=0x%x, data=0x%08x", value.get().dataType, value.get().data);
+                    ALOGI("-> From theme: type=0x%x, data=0x%08x", value.get().dataType, value.get().data);
                 }
-            } else if (value.get().data != Res_value.DATA_NULL_EMPTY) {
-                // If we still don't have a value for this attribute, try to find it in the theme!
-                ApkAssetsCookie new_cookie = theme.GetAttribute(cur_ident, value, type_set_flags);
+                new_cookie =
+                        assetmanager.ResolveReference(new_cookie, value, config, type_set_flags, resid);
                 if (new_cookie.intValue() != kInvalidCookie) {
-                    if (kDebugStyles) {
-                        ALOGI("-> From theme: type=0x%x, data=0x%08x", value.get().dataType, value.get().data);
-                    }
-                    new_cookie =
-                            assetmanager.ResolveReference(new_cookie, value, config, type_set_flags, resid);
-                    if (new_cookie.intValue() != kInvalidCookie) {
-                        cookie = new_cookie;
-                    }
-
-                    if (kDebugStyles) {
-                        ALOGI("-> Resolved theme: type=0x%x, data=0x%08x", value.get().dataType, value.get().data);
-                    }
+                    cookie = new_cookie;
                 }
-            }
 
-            // Deal with the special @null value -- it turns back to TYPE_NULL.
-            if (value.get().dataType == DataType.REFERENCE.code() && value.get().data == 0) {
                 if (kDebugStyles) {
-                    ALOGI(". Setting to @null!");
+                    ALOGI("-> Resolved theme: type=0x%x, data=0x%08x", value.get().dataType, value.get().data);
                 }
-                value.set(Res_value.NULL_VALUE);
-                cookie = K_INVALID_COOKIE;
             }
+        }
 
+        // Deal with the special @null value -- it turns back to TYPE_NULL.
+        if (value.get().dataType == DataType.REFERENCE.code() && value.get().data == 0) {
             if (kDebugStyles) {
-                ALOGI("Attribute 0x%08x: type=0x%x, data=0x%08x", cur_ident, value.get().dataType, value.get().data);
+                ALOGI(". Setting to @null!");
             }
+            value.set(Res_value.NULL_VALUE);
+            cookie = K_INVALID_COOKIE;
+        }
 
-            // Write the final value back to Java.
-            int destIndex = ii * STYLE_NUM_ENTRIES;
-            Res_value res_value = value.get();
-            out_values[destIndex + STYLE_TYPE] = res_value.dataType;
-            out_values[destIndex + STYLE_DATA] = res_value.data;
-            out_values[destIndex + STYLE_ASSET_COOKIE] = ApkAssetsCookieToJavaCookie(cookie);
-            out_values[destIndex + STYLE_RESOURCE_ID] = resid.get();
-            out_values[destIndex + STYLE_CHANGING_CONFIGURATIONS] = type_set_flags.get();
-            out_values[destIndex + STYLE_DENSITY] = config.get().density;
-            out_values[destIndex + STYLE_SOURCE_STYLE_RESOURCE_ID] = source_style_resid;
-
-            if (res_value.dataType != DataType.NULL.code() || res_value.data == Res_value.DATA_NULL_EMPTY) {
-                indices_idx++;
-
-                // out_indices must NOT be nullptr.
-                out_indices[indices_idx] = ii;
-            }
-
-            // Robolectric-custom:
-            // if (false && res_value.dataType == DataType.ATTRIBUTE.code()) {
-            //   final Ref<ResourceName> attrName = new Ref<>(null);
-            //   final Ref<ResourceName> attrRefName = new Ref<>(null);
-            //   boolean gotName = assetmanager.GetResourceName(cur_ident, attrName);
-            //   boolean gotRefName = assetmanager.GetResourceName(res_value.data, attrRefName);
-            //   Logger.warn(
-            //       "Failed to resolve attribute lookup: %s=\"?%s\"; theme: %s",
-            //       gotName ? attrName.get() : "unknown", gotRefName ? attrRefName.get() : "unknown",
-            //       theme);
-            // }
-
-//      out_values += STYLE_NUM_ENTRIES;
+        if (kDebugStyles) {
+            ALOGI("Attribute 0x%08x: type=0x%x, data=0x%08x", cur_ident, value.get().dataType, value.get().data);
         }
 
-        // out_indices must NOT be nullptr.
-        out_indices[0] = indices_idx;
+        // Write the final value back to Java.
+        Res_value res_value = value.get();
+        out_values[dest_index + STYLE_TYPE] = res_value.dataType;
+        out_values[dest_index + STYLE_DATA] = res_value.data;
+        out_values[dest_index + STYLE_ASSET_COOKIE] = ApkAssetsCookieToJavaCookie(cookie);
+        out_values[dest_index + STYLE_RESOURCE_ID] = resid.get();
+        out_values[dest_index + STYLE_CHANGING_CONFIGURATIONS] = type_set_flags.get();
+        out_values[dest_index + STYLE_DENSITY] = config.get().density;
+        out_values[dest_index + STYLE_SOURCE_STYLE_RESOURCE_ID] = source_style_resid;
     }
 
     public static boolean RetrieveAttributes(CppAssetManager2 assetmanager, ResXMLParser xml_parser, int[] attrs,
@@ -21,6 +21,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -184,6 +185,57 @@ public class CppAssetManager2 {
 
     // A library reference table that contains build-package ID to runtime-package ID mappings.
     DynamicRefTable dynamic_ref_table;
+
+    // Results of FindEntry() for the current configuration, indexed by type index and then by
+    // entry index. Not present in AOSP; it turns repeated lookups of the same resource into an
+    // array index instead of a walk over every package and candidate configuration.
+    final CachedEntry[][] cached_entries_ = new CachedEntry[256][];
+
+    CachedEntry GetCachedEntry(int type_idx, int entry_idx) {
+      CachedEntry[] entries = cached_entries_[type_idx & 0xff];
+      return entries != null && entry_idx < entries.length ? entries[entry_idx] : null;
+    }
+
+    void CacheEntry(int type_idx, int entry_idx, CachedEntry cached_entry) {
+      CachedEntry[] entries = cached_entries_[type_idx & 0xff];
+      if (entries == null || entry_idx >= entries.length) {
+        int length = Math.max(entry_idx + 1, entries == null ? 16 : entries.length * 2);
+        entries = entries == null ? new CachedEntry[length] : Arrays.copyOf(entries, length);
+        cached_entries_[type_idx & 0xff] = entries;
+      }
+      entries[entry_idx] = cached_entry;
+    }
+
+    // Drops cached entries which vary by any of the configuration axis in `diff`.
+    void InvalidateCachedEntries(int diff) {
+      for (int type_idx = 0; type_idx < cached_entries_.length; type_idx++) {
+        CachedEntry[] entries = cached_entries_[type_idx];
+        if (entries == null) {
+          continue;
+        }
+        if (diff == 0xffffffff) {
+          cached_entries_[type_idx] = null;
+          continue;
+        }
+        for (int entry_idx = 0; entry_idx < entries.length; entry_idx++) {
+          if (entries[entry_idx] != null
+              && isTruthy(diff & entries[entry_idx].entry.type_flags)) {
+            entries[entry_idx] = null;
+          }
+        }
+      }
+    }
+  }
+
+  // A successful FindEntry() result for the current configuration.
+  static class CachedEntry {
+    final ApkAssetsCookie cookie;
+    final FindEntryResult entry;
+
+    CachedEntry(ApkAssetsCookie cookie, FindEntryResult entry) {
+      this.cookie = cookie;
+      this.entry = entry;
+    }
   }
 
   // DynamicRefTables for shared library package resolution.
@@ -205,6 +257,10 @@ public class CppAssetManager2 {
   // which involves some calculation.
 //  private std.unordered_map<int, util.unique_cptr<ResolvedBag>> cached_bags_;
   final private Map<Integer, ResolvedBag> cached_bags_ = new HashMap<>();
+
+  // Robolectric-custom: incremented whenever the ApkAssets or configuration change, so that
+  // results memoized by Themes can tell they are stale.
+  private int generation_ = 0;
 //  };
 
 //final ResolvedBag.Entry* begin(final ResolvedBag* bag) { return bag.entries; }
@@ -271,6 +327,7 @@ public class CppAssetManager2 {
 //  boolean SetApkAssets(final List<ApkAssets> apk_assets, boolean invalidate_caches = true);
   public boolean SetApkAssets(final List<CppApkAssets> apk_assets, boolean invalidate_caches) {
     apk_assets_ = apk_assets;
+    generation_++;
     BuildDynamicRefTable();
     RebuildFilterList();
     if (invalidate_caches) {
@@ -427,6 +484,7 @@ public class CppAssetManager2 {
     configuration_ = configuration;
 
     if (isTruthy(diff)) {
+      generation_++;
       RebuildFilterList();
 //      InvalidateCaches(static_cast<int>(diff));
       InvalidateCaches(diff);
@@ -622,7 +680,7 @@ public class CppAssetManager2 {
     // Select our configuration or generate a density override configuration.
     ResTable_config desired_config = configuration_;
     if (density_override != 0 && density_override != configuration_.density) {
-      density_override_config = configuration_;
+      density_override_config = new ResTable_config(configuration_);
       density_override_config.density = density_override;
       desired_config = density_override_config;
     }
@@ -658,6 +716,14 @@ public class CppAssetManager2 {
     // and we don't need to match the configurations, since they already matched.
     boolean use_fast_path = desired_config == configuration_;
 
+    if (use_fast_path) {
+      CachedEntry cached_entry = package_group.GetCachedEntry(type_idx, entry_idx);
+      if (cached_entry != null) {
+        out_entry.set(cached_entry.entry);
+        return cached_entry.cookie;
+      }
+    }
+
     for (int pi = 0; pi < package_count; pi++) {
       ConfiguredPackage loaded_package_impl = package_group.packages_.get(pi);
       LoadedPackage loaded_package = loaded_package_impl.loaded_package_;
@@ -763,6 +829,9 @@ public class CppAssetManager2 {
         new StringPoolRef(best_package.GetKeyStringPool(), best_entry.key.index);
     out_entry_.dynamic_ref_table = package_group.dynamic_ref_table;
     out_entry.set(out_entry_);
+    if (use_fast_path) {
+      package_group.CacheEntry(type_idx, entry_idx, new CachedEntry(best_cookie, out_entry_));
+    }
     return best_cookie;
   }
 
@@ -1323,6 +1392,10 @@ public class CppAssetManager2 {
   // bitmask `diff`.
 //  void InvalidateCaches(int diff);
   private void InvalidateCaches(int diff) {
+    for (PackageGroup package_group : package_groups_) {
+      package_group.InvalidateCachedEntries(diff);
+    }
+
     if (diff == 0xffffffff) {
       // Everything must go.
       cached_bags_.clear();
@@ -1373,6 +1446,19 @@ public class CppAssetManager2 {
     //  std.array<std.unique_ptr<Package>, kPackageCount> packages_;
     private Package[] packages_ = new Package[kPackageCount];
 
+    // Robolectric-custom: memoized ApplyStyle() values for attributes which are not set in XML,
+    // see AttributeResolution9/10. Cleared when this theme is mutated, and ignored once the
+    // AssetManager's configuration or ApkAssets change.
+    private static final int kMaxCachedStyles = 128;
+    private final Map<StyleKey, int[]> cached_style_values_ =
+        new LinkedHashMap<StyleKey, int[]>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<StyleKey, int[]> eldest) {
+            return size() > kMaxCachedStyles;
+          }
+        };
+    private int cached_style_values_generation_ = -1;
+
     public Theme(CppAssetManager2 cppAssetManager2) {
       asset_manager_ = cppAssetManager2;
     }
@@ -1413,6 +1499,7 @@ public class CppAssetManager2 {
 //  boolean ApplyStyle(int resid, boolean force = false);
     public boolean ApplyStyle(int resid, boolean force) {
       // ATRACE_NAME("Theme::ApplyStyle");
+      ClearCachedStyleValues();
 
       final ResolvedBag bag = asset_manager_.GetBag(resid);
       if (bag == null) {
@@ -1595,6 +1682,7 @@ public class CppAssetManager2 {
 
     //  void Clear();
     public void Clear() {
+      ClearCachedStyleValues();
       type_spec_flags_ = 0;
       for (int i = 0; i < packages_.length; i++) {
 //        package_.reset();
@@ -1610,6 +1698,7 @@ public class CppAssetManager2 {
         return true;
       }
 
+      ClearCachedStyleValues();
       type_spec_flags_ = o.type_spec_flags_;
 
       boolean copy_only_system = asset_manager_ != o.asset_manager_;
@@ -1666,6 +1755,66 @@ public class CppAssetManager2 {
       return true;
     }
 
+    // Robolectric-custom: returns the values memoized by CacheStyleValues(), or null.
+    synchronized int[] GetCachedStyleValues(StyleKey key) {
+      if (cached_style_values_generation_ != asset_manager_.generation_) {
+        cached_style_values_.clear();
+        cached_style_values_generation_ = asset_manager_.generation_;
+        return null;
+      }
+      return cached_style_values_.get(key);
+    }
+
+    synchronized void CacheStyleValues(StyleKey key, int[] values) {
+      if (cached_style_values_generation_ == asset_manager_.generation_) {
+        cached_style_values_.put(key, values);
+      }
+    }
+
+    private synchronized void ClearCachedStyleValues() {
+      cached_style_values_.clear();
+    }
+
+    // Identifies the inputs of ApplyStyle() which, together with the theme, determine the values
+    // of attributes that are not set in XML.
+    static final class StyleKey {
+      private final int def_style_attr;
+      private final int def_style_resid;
+      private final int style_resid;
+      private final int[] attrs;
+      private final int hash_code;
+
+      StyleKey(int def_style_attr, int def_style_resid, int style_resid, int[] attrs,
+          int attrs_length) {
+        this.def_style_attr = def_style_attr;
+        this.def_style_resid = def_style_resid;
+        this.style_resid = style_resid;
+        this.attrs = Arrays.copyOf(attrs, attrs_length);
+        this.hash_code =
+            Objects.hash(def_style_attr, def_style_resid, style_resid, Arrays.hashCode(this.attrs));
+      }
+
+      @Override
+      public boolean equals(Object o) {
+        if (this == o) {
+          return true;
+        }
+        if (!(o instanceof StyleKey)) {
+          return false;
+        }
+        StyleKey that = (StyleKey) o;
+        return def_style_attr == that.def_style_attr
+            && def_style_resid == that.def_style_resid
+            && style_resid == that.style_resid
+            && Arrays.equals(attrs, that.attrs);
+      }
+
+      @Override
+      public int hashCode() {
+        return hash_code;
+      }
+    }
+
 //
   }  // namespace android
 
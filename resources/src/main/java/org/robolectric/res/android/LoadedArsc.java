@@ -17,6 +17,7 @@ import static org.robolectric.res.android.Util.isTruthy;
 import static org.robolectric.res.android.Util.logError;
 import static org.robolectric.res.android.Util.logWarning;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -104,8 +105,7 @@ public class LoadedArsc {
       }
 
       // uint32_t* flags = reinterpret_cast<uint32_t*>(type_spec + 1);
-      int[] flags = type_spec.getSpecFlags();
-      return flags[entry_index];
+      return type_spec.getSpecFlag(entry_index);
     }
   }
 
@@ -283,9 +283,10 @@ public class LoadedArsc {
 
     // ResTable_entry* entry = reinterpret_cast<ResTable_entry*>(
     //       reinterpret_cast<uint8_t*>(type) + entry_offset);
-    ResTable_entry entry = new ResTable_entry(type.myBuf(), type.myOffset() + entry_offset);
+    ByteBuffer buf = type.myBuf();
+    int entry = type.myOffset() + entry_offset;
 
-    int entry_size = dtohs(entry.size);
+    int entry_size = dtohs(ResTable_entry.sizeAt(buf, entry));
     // if (entry_size < sizeof(*entry)) {
     if (entry_size < ResTable_entry.SIZEOF) {
       logError("ResTable_entry size " + entry_size + " at offset " + entry_offset
@@ -309,9 +310,7 @@ public class LoadedArsc {
 
       // Res_value value =
       //       reinterpret_cast<Res_value*>(reinterpret_cast<uint8_t*>(entry) + entry_size);
-      Res_value value =
-          new Res_value(entry.myBuf(), entry.myOffset() + ResTable_entry.SIZEOF);
-      int value_size = dtohs(value.size);
+      int value_size = dtohs(Res_value.sizeAt(buf, entry + ResTable_entry.SIZEOF));
       if (value_size < Res_value.SIZEOF) {
         logError("Res_value at offset " + entry_offset + " is too small.");
         return false;
@@ -323,8 +322,7 @@ public class LoadedArsc {
         return false;
       }
     } else {
-      ResTable_map_entry map = new ResTable_map_entry(entry.myBuf(), entry.myOffset());
-      int map_entry_count = dtohl(map.count);
+      int map_entry_count = dtohl(ResTable_map_entry.countAt(buf, entry));
       int map_entries_start = entry_offset + entry_size;
       if (isTruthy(map_entries_start & 0x03)) {
         logError("Map entries at offset " + entry_offset + " start at unaligned offset.");
@@ -393,17 +391,21 @@ public class LoadedArsc {
         //         [](ResTable_sparseTypeEntry& entry, short entry_idx) {
         //   return dtohs(entry.idx) < entry_idx;
         // });
-        ResTable_sparseTypeEntry result = null;
-        for (int i = 0; i < entry_count; i++) {
-          ResTable_sparseTypeEntry entry = new ResTable_sparseTypeEntry(type_chunk.myBuf(),
-              type_chunk.myOffset() + offsets_offset);
-          if (entry.idxOrOffset >= entry_index) {
-            result = entry;
-            break;
+        ByteBuffer buf = type_chunk.myBuf();
+        int sparse_indices = type_chunk.myOffset() + offsets_offset;
+        int low = 0;
+        int high = entry_count;
+        while (low < high) {
+          int mid = (low + high) >>> 1;
+          if (ResTable_sparseTypeEntry.idxAt(buf, sparse_indices, mid) < entry_index) {
+            low = mid + 1;
+          } else {
+            high = mid;
           }
         }
 
-        if (result == null || dtohs(result.idxOrOffset) != entry_index) {
+        if (low == entry_count
+            || ResTable_sparseTypeEntry.idxAt(buf, sparse_indices, low) != entry_index) {
           // No entry found.
           return ResTable_type.NO_ENTRY;
         }
@@ -411,7 +413,7 @@ public class LoadedArsc {
         // Extract the offset from the entry. Each offset must be a multiple of 4 so we store it as
         // the real offset divided by 4.
         // return int{dtohs(result.offset)} * 4u;
-        return dtohs(result.idxOrOffset) * 4;
+        return ResTable_sparseTypeEntry.offsetAt(buf, sparse_indices, low) * 4;
       }
 
       // This type is encoded as a dense array.
@@ -894,6 +896,9 @@ public class LoadedArsc {
               logError("RES_STRING_POOL_TYPE corrupt.");
               return false;
             }
+            if (system_ && ResStringPool.kPrewarmSystemDecodeCaches) {
+              global_string_pool_.prewarmDecodeCache();
+            }
           } else {
             logWarning("Multiple RES_STRING_POOL_TYPEs found in RES_TABLE_TYPE.");
           }
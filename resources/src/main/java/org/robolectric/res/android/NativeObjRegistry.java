@@ -2,27 +2,36 @@ package org.robolectric.res.android;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A unique id per object registry. Used to emulate android platform behavior of storing a long
  * which represents a pointer to an object.
+ *
+ * <p>Ids are never reused until {@link #clear()}. Objects are spread over a fixed number of
+ * stripes, each with its own lock, keyed by primitive ids and by object identity, so that threads
+ * using different objects (e.g. parcels) don't contend with each other.
  */
 public class NativeObjRegistry<T> {
 
   private static final int INITIAL_ID = 1;
+  private static final int STRIPE_COUNT = 16;
 
   private final String name;
   private final boolean debug;
-  private final BiMap<Long, T> nativeObjToIdMap = HashBiMap.create();
+  /** Objects by id, striped by id. */
+  private final LongMap<T>[] objectsById;
+  /** Ids by object, striped by identity. Always locked before any stripe of objectsById. */
+  private final Map<T, Long>[] idsByObject;
   private final Map<Long, DebugInfo> idToDebugInfoMap;
 
-  private long nextId = INITIAL_ID;
+  private final AtomicLong nextId = new AtomicLong(INITIAL_ID);
 
   public NativeObjRegistry(Class<T> theClass) {
     this(theClass, false);
@@ -36,10 +45,28 @@ public class NativeObjRegistry<T> {
     this(name, false);
   }
 
+  @SuppressWarnings("unchecked")
   public NativeObjRegistry(String name, boolean debug) {
     this.name = name;
     this.debug = debug;
     this.idToDebugInfoMap = debug ? new HashMap<>() : null;
+    this.objectsById = new LongMap[STRIPE_COUNT];
+    this.idsByObject = new Map[STRIPE_COUNT];
+    for (int i = 0; i < STRIPE_COUNT; i++) {
+      objectsById[i] = new LongMap<>();
+      idsByObject[i] = new IdentityHashMap<>();
+    }
+  }
+
+  /** The stripe holding the object with the given id. */
+  private LongMap<T> objectsById(long nativeId) {
+    return objectsById[(int) (nativeId ^ (nativeId >>> 32)) & (STRIPE_COUNT - 1)];
+  }
+
+  /** The stripe holding the id of the given object. */
+  private Map<T, Long> idsByObject(T o) {
+    int hash = System.identityHashCode(o);
+    return idsByObject[(hash ^ (hash >>> 16)) & (STRIPE_COUNT - 1)];
   }
 
   /**
@@ -49,18 +76,21 @@ public class NativeObjRegistry<T> {
    * @deprecated Use {@link #register(Object)} instead.
    */
   @Deprecated
-  public synchronized long getNativeObjectId(T o) {
+  public long getNativeObjectId(T o) {
     checkNotNull(o);
-    Long nativeId = nativeObjToIdMap.inverse().get(o);
-    if (nativeId == null) {
-      nativeId = nextId;
-      if (debug) {
-        System.out.printf("NativeObjRegistry %s: register %d -> %s%n", name, nativeId, o);
+    Map<T, Long> ids = idsByObject(o);
+    synchronized (ids) {
+      Long nativeId = ids.get(o);
+      if (nativeId == null) {
+        nativeId = nextId.getAndIncrement();
+        if (debug) {
+          System.out.printf("NativeObjRegistry %s: register %d -> %s%n", name, nativeId, o);
+        }
+        ids.put(o, nativeId);
+        putObject(nativeId, o);
       }
-      nativeObjToIdMap.put(nativeId, o);
-      nextId++;
+      return nativeId;
     }
-    return nativeId;
   }
 
   /**
@@ -68,29 +98,33 @@ public class NativeObjRegistry<T> {
    *
    * @throws IllegalStateException if the object was previously registered
    */
-  public synchronized long register(T o) {
+  public long register(T o) {
     checkNotNull(o);
-    Long nativeId = nativeObjToIdMap.inverse().get(o);
-    if (nativeId != null) {
-      if (debug) {
-        DebugInfo debugInfo = idToDebugInfoMap.get(nativeId);
-        if (debugInfo != null) {
-          System.out.printf(
-              "NativeObjRegistry %s: register %d -> %s already registered:%n", name, nativeId, o);
-          debugInfo.registrationTrace.printStackTrace(System.out);
+    Map<T, Long> ids = idsByObject(o);
+    synchronized (ids) {
+      Long nativeId = ids.get(o);
+      if (nativeId != null) {
+        if (debug) {
+          DebugInfo debugInfo = getDebugInfo(nativeId);
+          if (debugInfo != null) {
+            System.out.printf(
+                "NativeObjRegistry %s: register %d -> %s already registered:%n",
+                name, nativeId, o);
+            debugInfo.registrationTrace.printStackTrace(System.out);
+          }
         }
+        throw new IllegalStateException("Object was previously registered with id " + nativeId);
       }
-      throw new IllegalStateException("Object was previously registered with id " + nativeId);
-    }
 
-    nativeId = nextId;
-    if (debug) {
-      System.out.printf("NativeObjRegistry %s: register %d -> %s%n", name, nativeId, o);
-      idToDebugInfoMap.put(nativeId, new DebugInfo(new Trace(o)));
+      long newId = nextId.getAndIncrement();
+      if (debug) {
+        System.out.printf("NativeObjRegistry %s: register %d -> %s%n", name, newId, o);
+        putDebugInfo(newId, new DebugInfo(new Trace(o)));
+      }
+      ids.put(o, newId);
+      putObject(newId, o);
+      return newId;
     }
-    nativeObjToIdMap.put(nativeId, o);
-    nextId++;
-    return nativeId;
   }
 
   /**
@@ -100,15 +134,19 @@ public class NativeObjRegistry<T> {
    * @throws IllegalStateException if the object was never registered, or was previously
    *     unregistered.
    */
-  public synchronized T unregister(long nativeId) {
-    T o = nativeObjToIdMap.remove(nativeId);
+  public T unregister(long nativeId) {
+    LongMap<T> objects = objectsById(nativeId);
+    T o;
+    synchronized (objects) {
+      o = objects.remove(nativeId);
+    }
     if (debug) {
       System.out.printf("NativeObjRegistry %s: unregister %d -> %s%n", name, nativeId, o);
       new RuntimeException("unregister debug").printStackTrace(System.out);
     }
     if (o == null) {
       if (debug) {
-        DebugInfo debugInfo = idToDebugInfoMap.get(nativeId);
+        DebugInfo debugInfo = getDebugInfo(nativeId);
         debugInfo.unregistrationTraces.add(new Trace(o));
         if (debugInfo.unregistrationTraces.size() > 1) {
           System.out.format("NativeObjRegistry %s: Too many unregistrations:%n", name);
@@ -120,6 +158,7 @@ public class NativeObjRegistry<T> {
       throw new IllegalStateException(
           nativeId + " has already been removed (or was never registered)");
     }
+    removeId(o, nativeId);
     return o;
   }
 
@@ -127,20 +166,31 @@ public class NativeObjRegistry<T> {
    * @deprecated Use {@link #unregister(long)} instead.
    */
   @Deprecated
-  public synchronized void unregister(T removed) {
-    nativeObjToIdMap.inverse().remove(removed);
+  public void unregister(T removed) {
+    Map<T, Long> ids = idsByObject(removed);
+    synchronized (ids) {
+      Long nativeId = ids.remove(removed);
+      if (nativeId != null) {
+        LongMap<T> objects = objectsById(nativeId);
+        synchronized (objects) {
+          if (objects.get(nativeId) == removed) {
+            objects.remove(nativeId);
+          }
+        }
+      }
+    }
   }
 
   /** Retrieve the native object for given id. Throws if object with that id cannot be found */
-  public synchronized T getNativeObject(long nativeId) {
-    T object = nativeObjToIdMap.get(nativeId);
+  public T getNativeObject(long nativeId) {
+    T object = peekNativeObject(nativeId);
     if (object != null) {
       return object;
     } else {
       throw new NullPointerException(
           String.format(
               "Could not find object with nativeId: %d. Currently registered ids: %s",
-              nativeId, nativeObjToIdMap.keySet()));
+              nativeId, getRegisteredIds()));
     }
   }
 
@@ -148,31 +198,225 @@ public class NativeObjRegistry<T> {
    * Updates the native object for the given id.
    *
    * @throws IllegalStateException if no object was registered with the given id before
+   * @throws IllegalArgumentException if the object is registered with another id
    */
-  public synchronized void update(long nativeId, T o) {
-    T previous = nativeObjToIdMap.get(nativeId);
-    if (previous == null) {
-      throw new IllegalStateException("Native id " + nativeId + " was never registered");
+  public void update(long nativeId, T o) {
+    checkNotNull(o);
+    Map<T, Long> ids = idsByObject(o);
+    LongMap<T> objects = objectsById(nativeId);
+    T previous;
+    synchronized (ids) {
+      Long id = ids.get(o);
+      if (id != null && id != nativeId) {
+        throw new IllegalArgumentException("Object was previously registered with id " + id);
+      }
+      synchronized (objects) {
+        previous = objects.get(nativeId);
+        if (previous == null) {
+          throw new IllegalStateException("Native id " + nativeId + " was never registered");
+        }
+        objects.put(nativeId, o);
+      }
+      ids.put(o, nativeId);
     }
     if (debug) {
       System.out.printf("NativeObjRegistry %s: update %d -> %s%n", name, nativeId, o);
-      idToDebugInfoMap.put(nativeId, new DebugInfo(new Trace(o)));
+      putDebugInfo(nativeId, new DebugInfo(new Trace(o)));
+    }
+    if (previous != o) {
+      removeId(previous, nativeId);
     }
-    nativeObjToIdMap.put(nativeId, o);
   }
 
   /**
    * Similar to {@link #getNativeObject(long)} but returns null if object with given id cannot be
    * found.
    */
-  public synchronized T peekNativeObject(long nativeId) {
-    return nativeObjToIdMap.get(nativeId);
+  public T peekNativeObject(long nativeId) {
+    LongMap<T> objects = objectsById(nativeId);
+    synchronized (objects) {
+      return objects.get(nativeId);
+    }
   }
 
   /** WARNING -- dangerous! Call {@link #unregister(long)} instead! */
-  public synchronized void clear() {
-    nextId = INITIAL_ID;
-    nativeObjToIdMap.clear();
+  public void clear() {
+    clear(0);
+  }
+
+  /**
+   * Takes the lock of every stripe, in the same order as registration does, then clears them all
+   * at once.
+   */
+  private void clear(int lockIndex) {
+    if (lockIndex == 2 * STRIPE_COUNT) {
+      nextId.set(INITIAL_ID);
+      for (int i = 0; i < STRIPE_COUNT; i++) {
+        idsByObject[i].clear();
+        objectsById[i].clear();
+      }
+      return;
+    }
+    Object lock =
+        lockIndex < STRIPE_COUNT
+            ? idsByObject[lockIndex]
+            : objectsById[lockIndex - STRIPE_COUNT];
+    synchronized (lock) {
+      clear(lockIndex + 1);
+    }
+  }
+
+  private void putObject(long nativeId, T o) {
+    LongMap<T> objects = objectsById(nativeId);
+    synchronized (objects) {
+      objects.put(nativeId, o);
+    }
+  }
+
+  /** Removes the reverse mapping of {@code o}, if it still points at {@code nativeId}. */
+  private void removeId(T o, long nativeId) {
+    Map<T, Long> ids = idsByObject(o);
+    synchronized (ids) {
+      Long id = ids.get(o);
+      if (id != null && id == nativeId) {
+        ids.remove(o);
+      }
+    }
+  }
+
+  private List<Long> getRegisteredIds() {
+    List<Long> ids = new ArrayList<>();
+    for (LongMap<T> objects : objectsById) {
+      synchronized (objects) {
+        objects.addKeysTo(ids);
+      }
+    }
+    ids.sort(null);
+    return ids;
+  }
+
+  private DebugInfo getDebugInfo(long nativeId) {
+    synchronized (idToDebugInfoMap) {
+      return idToDebugInfoMap.get(nativeId);
+    }
+  }
+
+  private void putDebugInfo(long nativeId, DebugInfo debugInfo) {
+    synchronized (idToDebugInfoMap) {
+      idToDebugInfoMap.put(nativeId, debugInfo);
+    }
+  }
+
+  /**
+   * An open-addressing hash map from positive {@code long} keys to objects, avoiding boxed keys.
+   * Zero marks an empty slot.
+   */
+  private static class LongMap<V> {
+    private long[] keys = new long[16];
+    private Object[] values = new Object[16];
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+      if (key <= 0) {
+        return null;
+      }
+      int mask = keys.length - 1;
+      for (int i = slot(key, mask); keys[i] != 0; i = (i + 1) & mask) {
+        if (keys[i] == key) {
+          return (V) values[i];
+        }
+      }
+      return null;
+    }
+
+    void put(long key, V value) {
+      if (key <= 0) {
+        throw new IllegalArgumentException("Invalid native id " + key);
+      }
+      int mask = keys.length - 1;
+      int i = slot(key, mask);
+      for (; keys[i] != 0; i = (i + 1) & mask) {
+        if (keys[i] == key) {
+          values[i] = value;
+          return;
+        }
+      }
+      keys[i] = key;
+      values[i] = value;
+      if (++size * 2 > keys.length) {
+        resize(keys.length * 2);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+      if (key <= 0) {
+        return null;
+      }
+      int mask = keys.length - 1;
+      int i = slot(key, mask);
+      while (keys[i] != key) {
+        if (keys[i] == 0) {
+          return null;
+        }
+        i = (i + 1) & mask;
+      }
+      V removed = (V) values[i];
+      // Shift back the following entries of the probe sequence, so no tombstones are needed.
+      int hole = i;
+      for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+        int home = slot(keys[j], mask);
+        if (((j - home) & mask) >= ((j - hole) & mask)) {
+          keys[hole] = keys[j];
+          values[hole] = values[j];
+          hole = j;
+        }
+      }
+      keys[hole] = 0;
+      values[hole] = null;
+      size--;
+      return removed;
+    }
+
+    void clear() {
+      if (size > 0) {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        size = 0;
+      }
+    }
+
+    void addKeysTo(List<Long> list) {
+      for (long key : keys) {
+        if (key != 0) {
+          list.add(key);
+        }
+      }
+    }
+
+    private void resize(int capacity) {
+      long[] oldKeys = keys;
+      Object[] oldValues = values;
+      keys = new long[capacity];
+      values = new Object[capacity];
+      int mask = capacity - 1;
+      for (int j = 0; j < oldKeys.length; j++) {
+        if (oldKeys[j] != 0) {
+          int i = slot(oldKeys[j], mask);
+          while (keys[i] != 0) {
+            i = (i + 1) & mask;
+          }
+          keys[i] = oldKeys[j];
+          values[i] = oldValues[j];
+        }
+      }
+    }
+
+    private static int slot(long key, int mask) {
+      // Ids in a stripe share their low bits, so take the top bits of a Fibonacci hash.
+      return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - Integer.bitCount(mask)));
+    }
   }
 
   private static class DebugInfo {
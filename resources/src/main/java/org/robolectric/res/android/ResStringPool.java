@@ -18,6 +18,7 @@ import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 import org.robolectric.res.android.ResourceString.Type;
 import org.robolectric.res.android.ResourceTypes.ResChunk_header;
 import org.robolectric.res.android.ResourceTypes.ResStringPool_header;
@@ -25,6 +26,7 @@ import org.robolectric.res.android.ResourceTypes.ResStringPool_header.Writer;
 import org.robolectric.res.android.ResourceTypes.ResStringPool_ref;
 import org.robolectric.res.android.ResourceTypes.ResStringPool_span;
 import org.robolectric.res.android.ResourceTypes.WithOffset;
+import org.robolectric.util.PerfStatsCollector;
 
 /**
  * Convenience class for accessing data in a ResStringPool resource.
@@ -34,6 +36,19 @@ public class ResStringPool {
 
   private static boolean kDebugStringPoolNoisy = false;
 
+  /** Upper bound on the number of decoded strings retained by each pool's decode cache. */
+  static final int kDecodeCacheMaxEntries = 16 * 1024;
+
+  /**
+   * If set, the decode caches of system (framework) string pools are fully populated when loaded,
+   * rather than lazily.
+   */
+  static final boolean kPrewarmSystemDecodeCaches =
+      Boolean.getBoolean("robolectric.resources.prewarmStringPools");
+
+  private static final LongAdder decodeCacheHits = new LongAdder();
+  private static final LongAdder decodeCacheMisses = new LongAdder();
+
   private final long myNativePtr;
 
   private int                    mError;
@@ -51,8 +66,10 @@ public class ResStringPool {
 //    const void*                 mStrings;
     private int                 mStrings;
   //private List<String> mStrings;
-  //private String[] mCache;
   //private char16_t mutable**          mCache;
+  // Direct-mapped on idx % length; allocated on first use and never larger than
+  // kDecodeCacheMaxEntries. Entries are immutable, so racing writers are harmless.
+  private volatile DecodedString[] mCache;
     private int                    mStringPoolSize;    // number of uint16_t
 //    const uint32_t*             mStyles;
     private int             mStyles;
@@ -323,10 +340,74 @@ public class ResStringPool {
   void uninit() {
     setError(NO_INIT);
     mHeader = null;
+    mCache = null;
   }
 
   public String stringAt(int idx) {
-    if (mError == NO_ERROR && idx < mHeader.stringCount) {
+    if (mError == NO_ERROR && idx >= 0 && idx < mHeader.stringCount) {
+      DecodedString[] cache = mCache;
+      if (cache == null) {
+        cache = mCache = new DecodedString[Math.min(mHeader.stringCount, kDecodeCacheMaxEntries)];
+      }
+      int slot = idx % cache.length;
+      DecodedString cached = cache[slot];
+      if (cached != null && cached.idx == idx) {
+        decodeCacheHits.increment();
+        return cached.value;
+      }
+      decodeCacheMisses.increment();
+      String value = stringDecodeAt(idx);
+      if (value != null) {
+        cache[slot] = new DecodedString(idx, value);
+      }
+      return value;
+    }
+    return null;
+  }
+
+  /**
+   * Decodes every string in the pool into the decode cache, up to its capacity.
+   */
+  public void prewarmDecodeCache() {
+    int count = mError == NO_ERROR ? Math.min(mHeader.stringCount, kDecodeCacheMaxEntries) : 0;
+    for (int i = 0; i < count; i++) {
+      stringAt(i);
+    }
+  }
+
+  /** Returns the number of {@link #stringAt(int)} calls served by decode caches of all pools. */
+  public static long getDecodeCacheHitCount() {
+    return decodeCacheHits.sum();
+  }
+
+  /** Returns the number of {@link #stringAt(int)} calls which had to decode the string. */
+  public static long getDecodeCacheMissCount() {
+    return decodeCacheMisses.sum();
+  }
+
+  /**
+   * Reports decode cache hits and misses since the previous call to the {@link
+   * PerfStatsCollector}.
+   */
+  public static void reportDecodeCacheStats() {
+    PerfStatsCollector perfStatsCollector = PerfStatsCollector.getInstance();
+    perfStatsCollector.incrementCount(
+        "ResStringPool decode cache hit", decodeCacheHits.sumThenReset());
+    perfStatsCollector.incrementCount(
+        "ResStringPool decode cache miss", decodeCacheMisses.sumThenReset());
+  }
+
+  private static class DecodedString {
+    final int idx;
+    final String value;
+
+    DecodedString(int idx, String value) {
+      this.idx = idx;
+      this.value = value;
+    }
+  }
+
+  private String stringDecodeAt(int idx) {
         final boolean isUTF8 = (mHeader.flags&ResStringPool_header.UTF8_FLAG) != 0;
 //        const uint32_t off = mEntries[idx]/(isUTF8?sizeof(uint8_t):sizeof(uint16_t));
       ByteBuffer buf = mHeader.myBuf();
@@ -439,7 +520,6 @@ public class ResStringPool {
             (int)idx, (int)(off*2/*sizeof(uint16_t)*/),
             (int)(mStringPoolSize*2/*sizeof(uint16_t)*/));
       }
-    }
     return null;
   }
 
@@ -322,6 +322,11 @@ public class ResourceTypes {
       this.data = 0;
     }
 
+    // Reads the size of a Res_value in place, without allocating.
+    static short sizeAt(ByteBuffer buf, int offset) {
+      return buf.getShort(offset);
+    }
+
     public Res_value(ByteBuffer buf, int offset) {
       this.size = buf.getShort(offset);
       byte res0 = buf.get(offset + 2);
@@ -1112,6 +1117,11 @@ public static class ResTable_ref
       entryCount = buf.getInt(offset + ResChunk_header.SIZEOF + 4);
     }
 
+    // Returns the configuration mask of a single entry, read in place.
+    public int getSpecFlag(int entryIndex) {
+      return myBuf().getInt(myOffset() + header.headerSize + entryIndex * 4);
+    }
+
     public int[] getSpecFlags() {
       int[] ints = new int[(header.size - header.headerSize) / 4];
       for (int i = 0; i < ints.length; i++) {
@@ -1269,6 +1279,17 @@ public static class ResTable_ref
       entry = buf.getInt(offset);
       idxOrOffset = buf.getShort(offset + 4);
     }
+
+    // Primitive accessors for the i-th entry of an array of sparse entries starting at `offset`,
+    // which is laid out as the uint16_t idx followed by the uint16_t offset.
+
+    static int idxAt(ByteBuffer buf, int offset, int i) {
+      return dtohs(buf.getShort(offset + i * 4)) & 0xffff;
+    }
+
+    static int offsetAt(ByteBuffer buf, int offset, int i) {
+      return dtohs(buf.getShort(offset + i * 4 + 2)) & 0xffff;
+    }
   };
 
   /**
@@ -1311,6 +1332,11 @@ public static class ResTable_ref
       key = new ResStringPool_ref(buf, offset + 4);
     }
 
+    // Reads the size of a ResTable_entry in place, without allocating.
+    static short sizeAt(ByteBuffer buf, int offset) {
+      return buf.getShort(offset);
+    }
+
     public Res_value getResValue() {
       // something like:
 
@@ -1347,6 +1373,10 @@ public static class ResTable_ref
       parent = new ResTable_ref(buf, offset + ResTable_entry.SIZEOF);
       count = buf.getInt(offset + ResTable_entry.SIZEOF + ResTable_ref.SIZEOF);
     }
+
+    static int countAt(ByteBuffer buf, int offset) {
+      return buf.getInt(offset + ResTable_entry.SIZEOF + ResTable_ref.SIZEOF);
+    }
   };
 
   /**
@@ -3,39 +3,74 @@ package org.robolectric.res.builder;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.annotation.Nullable;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import org.robolectric.res.Fs;
 import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
 import org.xml.sax.SAXException;
 
 /**
  * An XML block is a parsed representation of a resource XML file. Similar in nature
  * to Android's XmlBlock class.
+ *
+ * The file is parsed once into a compact, immutable stream of pull parser events which is cached
+ * per (path, package) for the lifetime of the process, so that repeatedly inflating the same
+ * layout doesn't re-read and re-parse it. Instances are safe to share between threads.
  */
 public class XmlBlock {
 
-  private static DocumentBuilder documentBuilder;
+  /** Same value as {@code XmlPullParser.START_TAG}. */
+  public static final int START_TAG = 2;
+  /** Same value as {@code XmlPullParser.END_TAG}. */
+  public static final int END_TAG = 3;
+  /** Same value as {@code XmlPullParser.TEXT}. */
+  public static final int TEXT = 4;
+
+  private static final ThreadLocal<DocumentBuilder> documentBuilder =
+      ThreadLocal.withInitial(XmlBlock::newDocumentBuilder);
+
+  private static final ConcurrentMap<Key, XmlBlock> cache = new ConcurrentHashMap<>();
 
-  private final Document document;
   private final Path path;
   private final String packageName;
 
-  private static synchronized Document parse(Path xmlFile) {
+  private final byte[] eventTypes;
+  /** Index into {@link #elements} for tag events, or into {@link #charData} for text events. */
+  private final int[] eventData;
+  private final Element[] elements;
+  /** Every character data node in document order, including whitespace and CDATA. */
+  private final String[] charData;
+  /** The index of the first event following each entry of {@link #charData}. */
+  private final int[] charDataPositions;
+
+  private static DocumentBuilder newDocumentBuilder() {
+    try {
+      DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+      documentBuilderFactory.setNamespaceAware(true);
+      documentBuilderFactory.setIgnoringComments(true);
+      documentBuilderFactory.setIgnoringElementContentWhitespace(true);
+      return documentBuilderFactory.newDocumentBuilder();
+    } catch (ParserConfigurationException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static Document parse(Path xmlFile) {
     InputStream inputStream = null;
     try {
-      if (documentBuilder == null) {
-        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-        documentBuilderFactory.setNamespaceAware(true);
-        documentBuilderFactory.setIgnoringComments(true);
-        documentBuilderFactory.setIgnoringElementContentWhitespace(true);
-        documentBuilder = documentBuilderFactory.newDocumentBuilder();
-      }
       inputStream = Fs.getInputStream(xmlFile);
-      return documentBuilder.parse(inputStream);
-    } catch (ParserConfigurationException | IOException | SAXException e) {
+      return documentBuilder.get().parse(inputStream);
+    } catch (IOException | SAXException e) {
       throw new RuntimeException(e);
     } finally {
       if (inputStream != null) try {
@@ -48,19 +83,55 @@ public class XmlBlock {
 
   @Nullable
   public static XmlBlock create(Path path, String packageName) {
-    Document document = parse(path);
+    Key key = new Key(path, packageName);
+    XmlBlock xmlBlock = cache.get(key);
+    if (xmlBlock == null) {
+      Document document = parse(path);
+      if (document == null) {
+        return null;
+      }
+      xmlBlock = new XmlBlock(document, path, packageName);
+      XmlBlock existing = cache.putIfAbsent(key, xmlBlock);
+      if (existing != null) {
+        xmlBlock = existing;
+      }
+    }
+    return xmlBlock;
+  }
+
+  /** Compiles an already parsed document. The result is not cached. */
+  public static XmlBlock create(Document document, Path path, String packageName) {
+    return new XmlBlock(document, path, packageName);
+  }
 
-    return document == null ? null : new XmlBlock(document, path, packageName);
+  /** Discards all cached blocks, e.g. if resource files were modified on disk. */
+  public static void clearCache() {
+    cache.clear();
   }
 
   private XmlBlock(Document document, Path path, String packageName) {
-    this.document = document;
     this.path = path;
     this.packageName = packageName;
+
+    Compiler compiler = new Compiler();
+    if (document.getDocumentElement() != null) {
+      compiler.visitElement(document.getDocumentElement());
+    }
+    this.eventTypes = compiler.eventTypes.toByteArray();
+    this.eventData = compiler.eventData.toIntArray();
+    this.elements = compiler.elements.toArray(new Element[0]);
+    this.charData = compiler.charData.toArray(new String[0]);
+    this.charDataPositions = compiler.charDataPositions.toIntArray();
   }
 
+  /**
+   * Parses the file again into a DOM.
+   *
+   * @deprecated use the compiled event stream instead, this re-reads the file on every call.
+   */
+  @Deprecated
   public Document getDocument() {
-    return document;
+    return parse(path);
   }
 
   public Path getPath() {
@@ -70,4 +141,252 @@ public class XmlBlock {
   public String getPackageName() {
     return packageName;
   }
+
+  /**
+   * Returns the number of events, excluding {@code START_DOCUMENT} and {@code END_DOCUMENT}.
+   */
+  public int getEventCount() {
+    return eventTypes.length;
+  }
+
+  /** Returns one of {@link #START_TAG}, {@link #END_TAG} or {@link #TEXT}. */
+  public int getEventType(int event) {
+    return eventTypes[event];
+  }
+
+  /** Returns the element opened or closed by a tag event. */
+  public Element getElement(int event) {
+    if (eventTypes[event] == TEXT) {
+      throw new IllegalArgumentException("event " + event + " is not a tag");
+    }
+    return elements[eventData[event]];
+  }
+
+  /** Returns the raw text of a {@link #TEXT} event. */
+  public String getText(int event) {
+    if (eventTypes[event] != TEXT) {
+      throw new IllegalArgumentException("event " + event + " is not text");
+    }
+    return charData[eventData[event]];
+  }
+
+  /**
+   * Returns the DOM text content of the event: the raw text of a {@link #TEXT} event, or the
+   * concatenation of all character data nested in the element of a tag event.
+   */
+  public String getTextContent(int event) {
+    if (eventTypes[event] == TEXT) {
+      return charData[eventData[event]];
+    }
+    Element element = elements[eventData[event]];
+    int from = firstCharDataAfter(element.startEvent);
+    int to = firstCharDataAfter(element.endEvent);
+    if (from == to) {
+      return "";
+    } else if (from + 1 == to) {
+      return charData[from];
+    }
+    StringBuilder buf = new StringBuilder();
+    for (int i = from; i < to; i++) {
+      buf.append(charData[i]);
+    }
+    return buf.toString();
+  }
+
+  /** Returns the index of the first char data entry positioned after the given event. */
+  private int firstCharDataAfter(int event) {
+    int i = Arrays.binarySearch(charDataPositions, event + 1);
+    if (i < 0) {
+      return -i - 1;
+    }
+    // positions aren't unique, find the first one
+    while (i > 0 && charDataPositions[i - 1] == event + 1) {
+      i--;
+    }
+    return i;
+  }
+
+  static boolean isWhitespace(String text) {
+    return text != null && text.split("\\s").length == 0;
+  }
+
+  /** An immutable XML element and its attributes. */
+  public static final class Element {
+    private final String name;
+    @Nullable private final String namespace;
+    private final String[] attributeNamespaces;
+    private final String[] attributeNames;
+    private final String[] attributeValues;
+    private final int startEvent;
+    private int endEvent;
+
+    private Element(Node node, int startEvent) {
+      this.name = node.getNodeName();
+      this.namespace = node.getNamespaceURI();
+      this.startEvent = startEvent;
+
+      NamedNodeMap attributes = node.getAttributes();
+      int count = attributes.getLength();
+      attributeNamespaces = new String[count];
+      attributeNames = new String[count];
+      attributeValues = new String[count];
+      for (int i = 0; i < count; i++) {
+        Node attr = attributes.item(i);
+        String localName = attr.getLocalName();
+        attributeNamespaces[i] = attr.getNamespaceURI();
+        attributeNames[i] = localName == null ? attr.getNodeName() : localName;
+        attributeValues[i] = attr.getNodeValue();
+      }
+    }
+
+    /** Returns the qualified tag name, as written in the file. */
+    public String getName() {
+      return name;
+    }
+
+    @Nullable
+    public String getNamespace() {
+      return namespace;
+    }
+
+    public int getAttributeCount() {
+      return attributeNames.length;
+    }
+
+    @Nullable
+    public String getAttributeNamespace(int index) {
+      return attributeNamespaces[index];
+    }
+
+    public String getAttributeName(int index) {
+      return attributeNames[index];
+    }
+
+    public String getAttributeValue(int index) {
+      return attributeValues[index];
+    }
+
+    /** Returns the raw value of the attribute, or null if it is not present. */
+    @Nullable
+    public String getAttributeValue(@Nullable String namespace, String name) {
+      for (int i = 0; i < attributeNames.length; i++) {
+        if (attributeNames[i].equals(name) && Objects.equals(attributeNamespaces[i], namespace)) {
+          return attributeValues[i];
+        }
+      }
+      return null;
+    }
+  }
+
+  private static class Compiler {
+    private final ByteList eventTypes = new ByteList();
+    private final IntList eventData = new IntList();
+    private final List<Element> elements = new ArrayList<>();
+    private final List<String> charData = new ArrayList<>();
+    private final IntList charDataPositions = new IntList();
+
+    void visitElement(Node node) {
+      int elementIndex = elements.size();
+      Element element = new Element(node, eventTypes.size());
+      elements.add(element);
+      eventTypes.add(START_TAG);
+      eventData.add(elementIndex);
+
+      for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+        switch (child.getNodeType()) {
+          case Node.ELEMENT_NODE:
+            visitElement(child);
+            break;
+          case Node.TEXT_NODE:
+            if (isWhitespace(child.getNodeValue())) {
+              addCharData(child.getNodeValue());
+            } else {
+              eventTypes.add(TEXT);
+              eventData.add(charData.size());
+              addCharData(child.getNodeValue());
+            }
+            break;
+          case Node.CDATA_SECTION_NODE:
+            // not reported as an event, but part of the element's text content
+            addCharData(child.getNodeValue());
+            break;
+          default:
+            // comments and processing instructions are skipped
+            break;
+        }
+      }
+
+      element.endEvent = eventTypes.size();
+      eventTypes.add(END_TAG);
+      eventData.add(elementIndex);
+    }
+
+    private void addCharData(String value) {
+      charData.add(value);
+      charDataPositions.add(eventTypes.size());
+    }
+  }
+
+  private static class IntList {
+    private int[] values = new int[16];
+    private int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    int[] toIntArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+
+  private static class ByteList {
+    private byte[] values = new byte[16];
+    private int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = (byte) value;
+    }
+
+    int size() {
+      return size;
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+
+  private static final class Key {
+    private final Path path;
+    private final String packageName;
+
+    Key(Path path, String packageName) {
+      this.path = path;
+      this.packageName = packageName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return path.equals(key.path) && Objects.equals(packageName, key.packageName);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * path.hashCode() + Objects.hashCode(packageName);
+    }
+  }
 }
@@ -0,0 +1,120 @@
+package org.robolectric.res.android;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.res.android.CppAssetManager2.Theme;
+import org.robolectric.res.android.CppAssetManager2.Theme.StyleKey;
+
+/** Unit test for {@link CppAssetManager2}. */
+@RunWith(JUnit4.class)
+public final class CppAssetManager2Test {
+
+  private static final int[] ATTRS = {0x01010000, 0x01010001};
+
+  private CppAssetManager2 assetManager;
+  private Theme theme;
+
+  @Before
+  public void setUp() {
+    assetManager = new CppAssetManager2();
+    assetManager.SetApkAssets(new ArrayList<>(), true);
+    theme = assetManager.NewTheme();
+  }
+
+  @Test
+  public void themeCachedStyleValues_afterCaching_returnsCachedValues() {
+    int[] values = {1, 2, 3};
+
+    cache(theme, styleKey(1), values);
+
+    assertThat(theme.GetCachedStyleValues(styleKey(1))).isSameInstanceAs(values);
+    assertThat(theme.GetCachedStyleValues(styleKey(2))).isNull();
+  }
+
+  @Test
+  public void themeCachedStyleValues_keyIncludesAttributes() {
+    cache(theme, styleKey(1), new int[] {1});
+
+    StyleKey otherAttrs = new StyleKey(0, 0, 1, new int[] {0x01010002}, 1);
+    assertThat(theme.GetCachedStyleValues(otherAttrs)).isNull();
+  }
+
+  @Test
+  public void themeApplyStyle_dropsCachedStyleValues() {
+    cache(theme, styleKey(1), new int[] {1});
+
+    theme.ApplyStyle(0x7f010000, true);
+
+    assertThat(theme.GetCachedStyleValues(styleKey(1))).isNull();
+  }
+
+  @Test
+  public void themeClear_dropsCachedStyleValues() {
+    cache(theme, styleKey(1), new int[] {1});
+
+    theme.Clear();
+
+    assertThat(theme.GetCachedStyleValues(styleKey(1))).isNull();
+  }
+
+  @Test
+  public void themeSetTo_dropsCachedStyleValues() {
+    cache(theme, styleKey(1), new int[] {1});
+
+    theme.SetTo(assetManager.NewTheme());
+
+    assertThat(theme.GetCachedStyleValues(styleKey(1))).isNull();
+  }
+
+  @Test
+  public void setConfiguration_withChanges_dropsCachedStyleValues() {
+    cache(theme, styleKey(1), new int[] {1});
+    ResTable_config configuration = new ResTable_config();
+    configuration.density = 240;
+
+    assetManager.SetConfiguration(configuration);
+
+    assertThat(theme.GetCachedStyleValues(styleKey(1))).isNull();
+  }
+
+  @Test
+  public void setConfiguration_withoutChanges_keepsCachedStyleValues() {
+    int[] values = {1};
+    cache(theme, styleKey(1), values);
+
+    assetManager.SetConfiguration(new ResTable_config());
+
+    assertThat(theme.GetCachedStyleValues(styleKey(1))).isSameInstanceAs(values);
+  }
+
+  @Test
+  public void themeCachedStyleValues_pastCapacity_evictsLeastRecentlyUsed() {
+    for (int i = 0; i < 128; i++) {
+      cache(theme, styleKey(i), new int[] {i});
+    }
+    // Makes the first key the most recently used one.
+    assertThat(theme.GetCachedStyleValues(styleKey(0))).isNotNull();
+
+    cache(theme, styleKey(128), new int[] {128});
+
+    assertThat(theme.GetCachedStyleValues(styleKey(0))).isNotNull();
+    assertThat(theme.GetCachedStyleValues(styleKey(1))).isNull();
+    assertThat(theme.GetCachedStyleValues(styleKey(2))).isNotNull();
+    assertThat(theme.GetCachedStyleValues(styleKey(128))).isNotNull();
+  }
+
+  private static StyleKey styleKey(int styleResId) {
+    return new StyleKey(0, 0, styleResId, ATTRS, ATTRS.length);
+  }
+
+  /** Caches {@code values} the way ApplyStyle() does, after a lookup that missed. */
+  private static void cache(Theme theme, StyleKey key, int[] values) {
+    theme.GetCachedStyleValues(key);
+    theme.CacheStyleValues(key, values);
+  }
+}
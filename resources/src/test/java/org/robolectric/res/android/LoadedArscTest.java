@@ -0,0 +1,68 @@
+package org.robolectric.res.android;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.res.android.ResourceTypes.RES_TABLE_TYPE_TYPE;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.res.android.LoadedArsc.LoadedPackage;
+import org.robolectric.res.android.ResourceTypes.ResChunk_header;
+import org.robolectric.res.android.ResourceTypes.ResTable_type;
+
+/** Unit test for {@link LoadedArsc}. */
+@RunWith(JUnit4.class)
+public final class LoadedArscTest {
+
+  /** The size of a configuration with just the fields up to minorVersion. */
+  private static final int CONFIG_SIZE = 28;
+
+  @Test
+  public void getEntryOffset_sparseType_findsEveryEntry() {
+    ResTable_type type = sparseType(new int[] {2, 5, 9, 200}, new int[] {0, 16, 32, 48});
+
+    assertThat(LoadedPackage.GetEntryOffset(type, 2)).isEqualTo(0);
+    assertThat(LoadedPackage.GetEntryOffset(type, 5)).isEqualTo(16);
+    assertThat(LoadedPackage.GetEntryOffset(type, 9)).isEqualTo(32);
+    assertThat(LoadedPackage.GetEntryOffset(type, 200)).isEqualTo(48);
+  }
+
+  @Test
+  public void getEntryOffset_sparseType_missingEntry_returnsNoEntry() {
+    ResTable_type type = sparseType(new int[] {2, 5, 9, 200}, new int[] {0, 16, 32, 48});
+
+    assertThat(LoadedPackage.GetEntryOffset(type, 0)).isEqualTo(ResTable_type.NO_ENTRY);
+    assertThat(LoadedPackage.GetEntryOffset(type, 3)).isEqualTo(ResTable_type.NO_ENTRY);
+    assertThat(LoadedPackage.GetEntryOffset(type, 10)).isEqualTo(ResTable_type.NO_ENTRY);
+    assertThat(LoadedPackage.GetEntryOffset(type, 201)).isEqualTo(ResTable_type.NO_ENTRY);
+  }
+
+  /**
+   * Returns a sparse type chunk with entries at {@code indices}, which must be sorted, and at the
+   * given {@code offsets} from the start of the entry data.
+   */
+  private static ResTable_type sparseType(int[] indices, int[] offsets) {
+    int headerSize = ResTable_type.SIZEOF_WITHOUT_CONFIG + CONFIG_SIZE;
+    int entriesStart = headerSize + 4 * indices.length;
+    ByteBuffer buf = ByteBuffer.allocate(entriesStart).order(ByteOrder.LITTLE_ENDIAN);
+
+    buf.putShort((short) RES_TABLE_TYPE_TYPE);
+    buf.putShort((short) headerSize);
+    buf.putInt(entriesStart);
+    buf.put((byte) 1); // id
+    buf.put((byte) ResTable_type.FLAG_SPARSE);
+    buf.putShort((short) 0); // reserved
+    buf.putInt(indices.length); // entryCount
+    buf.putInt(entriesStart);
+    buf.putInt(CONFIG_SIZE);
+    buf.position(ResChunk_header.SIZEOF + 12 + CONFIG_SIZE);
+    for (int i = 0; i < indices.length; i++) {
+      buf.putShort((short) indices[i]);
+      // Offsets are stored divided by 4.
+      buf.putShort((short) (offsets[i] / 4));
+    }
+    return new ResTable_type(buf, 0);
+  }
+}
@@ -0,0 +1,202 @@
+package org.robolectric.res.android;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit test for {@link NativeObjRegistry}. */
+@RunWith(JUnit4.class)
+public final class NativeObjRegistryTest {
+
+  private final NativeObjRegistry<Object> registry = new NativeObjRegistry<>("test");
+
+  @Test
+  public void register_assignsNewIds() {
+    Object first = new Object();
+    Object second = new Object();
+
+    long firstId = registry.register(first);
+    long secondId = registry.register(second);
+
+    assertThat(firstId).isEqualTo(1);
+    assertThat(secondId).isEqualTo(2);
+    assertThat(registry.getNativeObject(firstId)).isSameInstanceAs(first);
+    assertThat(registry.getNativeObject(secondId)).isSameInstanceAs(second);
+  }
+
+  @Test
+  public void register_twice_throws() {
+    Object o = new Object();
+    registry.register(o);
+
+    try {
+      registry.register(o);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @Test
+  public void unregister_removesObjectWithoutReusingId() {
+    Object o = new Object();
+    long id = registry.register(o);
+
+    assertThat(registry.unregister(id)).isSameInstanceAs(o);
+
+    assertThat(registry.peekNativeObject(id)).isNull();
+    assertThat(registry.register(o)).isNotEqualTo(id);
+  }
+
+  @Test
+  public void unregister_twice_throws() {
+    long id = registry.register(new Object());
+    registry.unregister(id);
+
+    try {
+      registry.unregister(id);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @Test
+  public void getNativeObject_unknownId_throws() {
+    long id = registry.register(new Object());
+
+    try {
+      registry.getNativeObject(id + 1);
+      fail();
+    } catch (NullPointerException expected) {
+      assertThat(expected).hasMessageThat().contains("Currently registered ids: [" + id + "]");
+    }
+  }
+
+  @Test
+  public void update_replacesObject() {
+    Object original = new Object();
+    Object replacement = new Object();
+    long id = registry.register(original);
+
+    registry.update(id, replacement);
+
+    assertThat(registry.getNativeObject(id)).isSameInstanceAs(replacement);
+    // the original object is no longer registered
+    assertThat(registry.register(original)).isNotEqualTo(id);
+  }
+
+  @Test
+  public void update_unknownId_throws() {
+    try {
+      registry.update(42, new Object());
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @Test
+  public void update_objectRegisteredWithAnotherId_throws() {
+    Object o = new Object();
+    Object other = new Object();
+    long id = registry.register(o);
+    long otherId = registry.register(other);
+
+    try {
+      registry.update(otherId, o);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    assertThat(registry.getNativeObject(id)).isSameInstanceAs(o);
+    assertThat(registry.getNativeObject(otherId)).isSameInstanceAs(other);
+  }
+
+  @Test
+  public void update_sameObject_keepsRegistration() {
+    Object o = new Object();
+    long id = registry.register(o);
+
+    registry.update(id, o);
+
+    assertThat(registry.getNativeObject(id)).isSameInstanceAs(o);
+    try {
+      registry.register(o);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @Test
+  public void clear_resetsIds() {
+    long id = registry.register(new Object());
+    registry.register(new Object());
+
+    registry.clear();
+
+    assertThat(registry.peekNativeObject(id)).isNull();
+    assertThat(registry.register(new Object())).isEqualTo(1);
+  }
+
+  @Test
+  public void manyObjects_areAllRetrievable() {
+    List<Object> objects = new ArrayList<>();
+    List<Long> ids = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      Object o = new Object();
+      objects.add(o);
+      ids.add(registry.register(o));
+    }
+    // remove every other one, so that removals shift entries around
+    for (int i = 0; i < ids.size(); i += 2) {
+      registry.unregister((long) ids.get(i));
+    }
+
+    for (int i = 0; i < ids.size(); i++) {
+      if (i % 2 == 0) {
+        assertThat(registry.peekNativeObject(ids.get(i))).isNull();
+      } else {
+        assertThat(registry.getNativeObject(ids.get(i))).isSameInstanceAs(objects.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void obtainAndRecycleFromSeveralThreads() throws Exception {
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Set<Long>>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  Set<Long> seenIds = new HashSet<>();
+                  for (int i = 0; i < 10_000; i++) {
+                    Object o = new Object();
+                    long id = registry.register(o);
+                    seenIds.add(id);
+                    assertThat(registry.getNativeObject(id)).isSameInstanceAs(o);
+                    assertThat(registry.unregister(id)).isSameInstanceAs(o);
+                  }
+                  return seenIds;
+                }));
+      }
+
+      Set<Long> allIds = new HashSet<>();
+      for (Future<Set<Long>> future : futures) {
+        allIds.addAll(future.get());
+      }
+      assertThat(allIds).hasSize(threads * 10_000);
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
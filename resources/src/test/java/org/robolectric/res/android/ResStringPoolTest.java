@@ -0,0 +1,94 @@
+package org.robolectric.res.android;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.res.android.Errors.NO_ERROR;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.res.android.ResourceTypes.ResStringPool_header;
+
+/** Unit test for {@link ResStringPool}. */
+@RunWith(JUnit4.class)
+public final class ResStringPoolTest {
+
+  @Test
+  public void stringAt_cachedAndUncached_returnSameString() {
+    ResStringPool pool = createPool(3);
+
+    long misses = ResStringPool.getDecodeCacheMissCount();
+    String uncached = pool.stringAt(1);
+    assertThat(ResStringPool.getDecodeCacheMissCount()).isEqualTo(misses + 1);
+
+    long hits = ResStringPool.getDecodeCacheHitCount();
+    String cached = pool.stringAt(1);
+    assertThat(ResStringPool.getDecodeCacheHitCount()).isEqualTo(hits + 1);
+
+    assertThat(uncached).isEqualTo("string1");
+    assertThat(cached).isEqualTo(uncached);
+  }
+
+  @Test
+  public void stringAt_collidingSlots_returnsRightString() {
+    int count = ResStringPool.kDecodeCacheMaxEntries + 2;
+    ResStringPool pool = createPool(count);
+    int colliding = ResStringPool.kDecodeCacheMaxEntries + 1;
+
+    for (int i = 0; i < 3; i++) {
+      assertThat(pool.stringAt(1)).isEqualTo("string1");
+      assertThat(pool.stringAt(colliding)).isEqualTo("string" + colliding);
+    }
+  }
+
+  @Test
+  public void stringAt_outOfRange_returnsNull() {
+    ResStringPool pool = createPool(3);
+
+    assertThat(pool.stringAt(-1)).isNull();
+    assertThat(pool.stringAt(3)).isNull();
+  }
+
+  @Test
+  public void prewarmDecodeCache_decodesEveryString() {
+    ResStringPool pool = createPool(5);
+
+    pool.prewarmDecodeCache();
+
+    long misses = ResStringPool.getDecodeCacheMissCount();
+    for (int i = 0; i < 5; i++) {
+      assertThat(pool.stringAt(i)).isEqualTo("string" + i);
+    }
+    assertThat(ResStringPool.getDecodeCacheMissCount()).isEqualTo(misses);
+  }
+
+  @Test
+  public void setTo_dropsDecodeCache() {
+    ResStringPool pool = createPool(3);
+    assertThat(pool.stringAt(1)).isEqualTo("string1");
+
+    ByteBuffer buf = writePool(3, "other");
+    assertThat(pool.setTo(buf, 0, buf.limit(), false)).isEqualTo(NO_ERROR);
+
+    assertThat(pool.stringAt(1)).isEqualTo("other1");
+  }
+
+  private static ResStringPool createPool(int stringCount) {
+    ResStringPool pool = new ResStringPool();
+    ByteBuffer buf = writePool(stringCount, "string");
+    assertThat(pool.setTo(buf, 0, buf.limit(), false)).isEqualTo(NO_ERROR);
+    return pool;
+  }
+
+  private static ByteBuffer writePool(int stringCount, String prefix) {
+    ResStringPool_header.Writer writer = new ResStringPool_header.Writer();
+    for (int i = 0; i < stringCount; i++) {
+      writer.string(prefix + i);
+    }
+    ByteBuffer buf = ByteBuffer.allocate(32 * stringCount + 64).order(ByteOrder.LITTLE_ENDIAN);
+    writer.write(buf);
+    buf.flip();
+    return buf;
+  }
+}
@@ -0,0 +1,87 @@
+package org.robolectric.res.builder;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class XmlBlockTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path xmlFile;
+
+  @Before
+  public void setUp() throws Exception {
+    xmlFile = temporaryFolder.newFile("layout.xml").toPath();
+    Files.write(
+        xmlFile,
+        ("<foo xmlns:app=\"http://schemas.android.com/apk/res-auto\" app:bar=\" baz \">\n"
+                + "  <child>text<![CDATA[more]]></child>\n"
+                + "  <!-- comment -->\n"
+                + "  <empty/>\n"
+                + "</foo>")
+            .getBytes(UTF_8));
+  }
+
+  @After
+  public void tearDown() {
+    XmlBlock.clearCache();
+  }
+
+  @Test
+  public void create_shouldCachePerPathAndPackage() {
+    XmlBlock xmlBlock = XmlBlock.create(xmlFile, "pkg");
+
+    assertThat(XmlBlock.create(xmlFile, "pkg")).isSameInstanceAs(xmlBlock);
+    assertThat(XmlBlock.create(xmlFile, "other")).isNotSameInstanceAs(xmlBlock);
+  }
+
+  @Test
+  public void create_shouldCompileEvents() {
+    XmlBlock xmlBlock = XmlBlock.create(xmlFile, "pkg");
+
+    assertThat(xmlBlock.getEventCount()).isEqualTo(7);
+    assertEvent(xmlBlock, 0, XmlBlock.START_TAG, "foo");
+    assertEvent(xmlBlock, 1, XmlBlock.START_TAG, "child");
+    assertThat(xmlBlock.getEventType(2)).isEqualTo(XmlBlock.TEXT);
+    assertThat(xmlBlock.getText(2)).isEqualTo("text");
+    assertEvent(xmlBlock, 3, XmlBlock.END_TAG, "child");
+    assertEvent(xmlBlock, 4, XmlBlock.START_TAG, "empty");
+    assertEvent(xmlBlock, 5, XmlBlock.END_TAG, "empty");
+    assertEvent(xmlBlock, 6, XmlBlock.END_TAG, "foo");
+  }
+
+  @Test
+  public void getTextContent_shouldIncludeNestedCharacterData() {
+    XmlBlock xmlBlock = XmlBlock.create(xmlFile, "pkg");
+
+    assertThat(xmlBlock.getTextContent(1)).isEqualTo("textmore");
+    assertThat(xmlBlock.getTextContent(3)).isEqualTo("textmore");
+    assertThat(xmlBlock.getTextContent(4)).isEqualTo("");
+    assertThat(xmlBlock.getTextContent(0).trim()).isEqualTo("textmore");
+  }
+
+  @Test
+  public void element_shouldExposeAttributes() {
+    XmlBlock.Element element = XmlBlock.create(xmlFile, "pkg").getElement(0);
+
+    assertThat(element.getAttributeCount()).isEqualTo(2);
+    assertThat(element.getAttributeValue("http://schemas.android.com/apk/res-auto", "bar"))
+        .isEqualTo(" baz ");
+    assertThat(element.getAttributeValue(null, "bar")).isNull();
+  }
+
+  private static void assertEvent(XmlBlock xmlBlock, int event, int type, String name) {
+    assertThat(xmlBlock.getEventType(event)).isEqualTo(type);
+    assertThat(xmlBlock.getElement(event).getName()).isEqualTo(name);
+  }
+}
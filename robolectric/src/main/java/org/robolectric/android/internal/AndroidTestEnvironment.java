@@ -62,6 +62,7 @@ import org.robolectric.res.ResourcePath;
 import org.robolectric.res.ResourceTable;
 import org.robolectric.res.ResourceTableFactory;
 import org.robolectric.res.RoutingResourceTable;
+import org.robolectric.res.android.ResStringPool;
 import org.robolectric.shadow.api.Shadow;
 import org.robolectric.shadows.ClassNameResolver;
 import org.robolectric.shadows.LegacyManifestParser;
@@ -79,6 +80,7 @@ import org.robolectric.shadows.ShadowLog;
 import org.robolectric.shadows.ShadowLooper;
 import org.robolectric.shadows.ShadowPackageManager;
 import org.robolectric.shadows.ShadowPackageParser;
+import org.robolectric.shadows.ShadowPausedLooper;
 import org.robolectric.shadows.ShadowPackageParser._Package_;
 import org.robolectric.util.PerfStatsCollector;
 import org.robolectric.util.ReflectionHelpers;
@@ -589,18 +591,19 @@ public class AndroidTestEnvironment implements TestEnvironment {
   @Override
   public void checkStateAfterTestFailure(Throwable t) throws Throwable {
     if (hasUnexecutedRunnables()) {
-      t.addSuppressed(new UnExecutedRunnablesException());
+      t.addSuppressed(new UnExecutedRunnablesException(getMainLooperStats()));
     }
     throw t;
   }
 
   private static final class UnExecutedRunnablesException extends Exception {
 
-    UnExecutedRunnablesException() {
+    UnExecutedRunnablesException(String looperStats) {
       super(
           "Main looper has queued unexecuted runnables. "
               + "This might be the cause of the test failure. "
-              + "You might need a shadowOf(getMainLooper()).idle() call.");
+              + "You might need a shadowOf(getMainLooper()).idle() call."
+              + (looperStats == null ? "" : "\nMain looper stats: " + looperStats));
     }
 
     @Override
@@ -615,9 +618,19 @@ public class AndroidTestEnvironment implements TestEnvironment {
     return !shadowLooper.isIdle();
   }
 
+  private static String getMainLooperStats() {
+    if (ShadowLooper.looperMode() != LooperMode.Mode.PAUSED
+        || !ShadowPausedLooper.isInstrumentationEnabled()) {
+      return null;
+    }
+    ShadowPausedLooper shadowLooper = Shadow.extract(Looper.getMainLooper());
+    return shadowLooper.getStats().toString();
+  }
+
   @Override
   public void resetState() {
     Locale.setDefault(initialLocale);
+    ResStringPool.reportDecodeCacheStats();
     for (ShadowProvider provider : shadowProviders) {
       provider.reset();
     }
@@ -0,0 +1,112 @@
+package org.robolectric.android.util.concurrent;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.LooperMode;
+
+/** Unit tests for {@link Quiescence} */
+@RunWith(AndroidJUnit4.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class QuiescenceTest {
+  private final List<String> executedTasksRecord = new CopyOnWriteArrayList<>();
+  private HandlerThread handlerThread;
+  private PausedExecutorService executorService;
+
+  @Before
+  public void setUp() {
+    handlerThread = new HandlerThread("background");
+    handlerThread.start();
+    executorService = new PausedExecutorService();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executorService.shutdown();
+    handlerThread.quit();
+    handlerThread.join();
+  }
+
+  @Test
+  public void idleUntilQuiescent_followsTasksAcrossQueues() {
+    Handler mainHandler = new Handler(Looper.getMainLooper());
+    Handler backgroundHandler = new Handler(handlerThread.getLooper());
+    mainHandler.post(
+        () -> {
+          executedTasksRecord.add("main");
+          executorService.execute(
+              () -> {
+                executedTasksRecord.add("executor");
+                backgroundHandler.post(
+                    () -> {
+                      executedTasksRecord.add("background");
+                      mainHandler.post(() -> executedTasksRecord.add("main again"));
+                    });
+              });
+        });
+
+    Quiescence.idleUntilQuiescent();
+
+    assertThat(executedTasksRecord)
+        .containsExactly("main", "executor", "background", "main again")
+        .inOrder();
+    assertThat(executorService.hasQueuedTasks()).isFalse();
+  }
+
+  @Test
+  public void idleUntilQuiescent_doesNotRunDelayedTasks() {
+    new Handler(Looper.getMainLooper()).postDelayed(() -> executedTasksRecord.add("delayed"), 100);
+
+    Quiescence.idleUntilQuiescent();
+
+    assertThat(executedTasksRecord).isEmpty();
+  }
+
+  @Test
+  public void idleUntilQuiescent_reportsBusyQueueWhenBudgetIsExceeded() {
+    Handler mainHandler = new Handler(Looper.getMainLooper());
+    Runnable repostingRunnable =
+        new Runnable() {
+          @Override
+          public void run() {
+            executorService.execute(() -> mainHandler.post(this));
+          }
+        };
+    mainHandler.post(repostingRunnable);
+
+    IllegalStateException e =
+        assertThrows(
+            IllegalStateException.class,
+            () -> Quiescence.idleUntilQuiescent(Duration.ofMillis(100)));
+
+    assertThat(e).hasMessageThat().contains("main looper=");
+    assertThat(e).hasMessageThat().contains("PausedExecutorService@");
+    executorService.shutdown();
+    mainHandler.removeCallbacks(repostingRunnable);
+  }
+
+  @Test
+  public void idleUntilQuiescent_ignoresExecutorsFromEarlierTests() {
+    PausedExecutorService leakedExecutorService = new PausedExecutorService();
+    leakedExecutorService.execute(() -> executedTasksRecord.add("leaked"));
+    // what happens between tests
+    PausedExecutorService.resetInstances();
+
+    Quiescence.idleUntilQuiescent();
+
+    assertThat(executedTasksRecord).isEmpty();
+    assertThat(leakedExecutorService.hasQueuedTasks()).isTrue();
+    leakedExecutorService.shutdown();
+  }
+}
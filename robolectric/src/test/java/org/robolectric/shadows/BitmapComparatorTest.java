@@ -0,0 +1,117 @@
+package org.robolectric.shadows;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class BitmapComparatorTest {
+
+  @Test
+  public void compare_identicalBitmaps_matches() {
+    Bitmap actual = createBitmap(Color.BLUE);
+    Bitmap expected = createBitmap(Color.BLUE);
+
+    BitmapComparator.Result result =
+        new BitmapComparator.Builder().build().compare(actual, expected);
+
+    assertThat(result.matches()).isTrue();
+    assertThat(result.getDifferentPixelCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void compare_differentSizes_doesNotMatch() {
+    Bitmap actual = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+    Bitmap expected = Bitmap.createBitmap(10, 11, Bitmap.Config.ARGB_8888);
+
+    BitmapComparator.Result result =
+        new BitmapComparator.Builder().build().compare(actual, expected);
+
+    assertThat(result.matches()).isFalse();
+    assertThat(result.getDifferentPixelCount()).isEqualTo(-1);
+  }
+
+  @Test
+  public void compare_withChannelTolerance_matchesCloseColors() {
+    Bitmap actual = createBitmap(Color.rgb(100, 100, 100));
+    Bitmap expected = createBitmap(Color.rgb(102, 99, 100));
+
+    assertThat(new BitmapComparator.Builder().build().compare(actual, expected).matches())
+        .isFalse();
+    assertThat(
+            new BitmapComparator.Builder()
+                .setChannelTolerance(2)
+                .build()
+                .compare(actual, expected)
+                .matches())
+        .isTrue();
+  }
+
+  @Test
+  public void compare_withMaxDifferentPixels_allowsSomeDifferences() {
+    Bitmap actual = createBitmap(Color.WHITE);
+    Bitmap expected = createBitmap(Color.WHITE);
+    actual.setPixel(3, 4, Color.BLACK);
+    actual.setPixel(5, 6, Color.BLACK);
+
+    assertThat(
+            new BitmapComparator.Builder()
+                .setMaxDifferentPixels(1)
+                .build()
+                .compare(actual, expected)
+                .matches())
+        .isFalse();
+    assertThat(
+            new BitmapComparator.Builder()
+                .setMaxDifferentPixels(2)
+                .build()
+                .compare(actual, expected)
+                .matches())
+        .isTrue();
+  }
+
+  @Test
+  public void compare_withDiffBitmap_marksDifferentPixels() {
+    Bitmap actual = createBitmap(Color.WHITE);
+    Bitmap expected = createBitmap(Color.WHITE);
+    actual.setPixel(3, 4, Color.BLACK);
+    actual.setPixel(5, 6, Color.BLACK);
+
+    BitmapComparator.Result result =
+        new BitmapComparator.Builder().setCreateDiffBitmap(true).build().compare(actual, expected);
+
+    assertThat(result.matches()).isFalse();
+    assertThat(result.getDifferentPixelCount()).isEqualTo(2);
+    Bitmap diff = result.getDiffBitmap();
+    assertThat(diff.getPixel(3, 4)).isEqualTo(Color.RED);
+    assertThat(diff.getPixel(5, 6)).isEqualTo(Color.RED);
+    assertThat(diff.getPixel(0, 0)).isEqualTo(0x3fffffff);
+  }
+
+  @Test
+  public void compare_withMaxHashDistance_rejectsDissimilarBitmaps() {
+    Bitmap actual = createBitmap(Color.BLACK);
+    Bitmap expected = createBitmap(Color.BLACK);
+    for (int y = 0; y < 8; y++) {
+      for (int x = 0; x < 16; x++) {
+        expected.setPixel(x, y, Color.WHITE);
+      }
+    }
+
+    BitmapComparator.Result result =
+        new BitmapComparator.Builder().setMaxHashDistance(4).build().compare(actual, expected);
+
+    assertThat(result.matches()).isFalse();
+    assertThat(result.isRejectedByHash()).isTrue();
+  }
+
+  private static Bitmap createBitmap(int color) {
+    Bitmap bitmap = Bitmap.createBitmap(16, 16, Bitmap.Config.ARGB_8888);
+    bitmap.eraseColor(color);
+    return bitmap;
+  }
+}
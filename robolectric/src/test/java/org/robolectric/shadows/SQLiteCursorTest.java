@@ -7,7 +7,9 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteCursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteStatement;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.Arrays;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -460,6 +462,38 @@ public class SQLiteCursorTest {
     assertThat(cursor.getDouble(4)).isEqualTo(0d);
   }
 
+  @Test
+  public void largeResult_isReadThroughSeveralWindows() {
+    database.execSQL("CREATE TABLE big(id INTEGER PRIMARY KEY, padding TEXT);");
+    char[] padding = new char[10_000];
+    Arrays.fill(padding, 'x');
+    SQLiteStatement insert = database.compileStatement("INSERT INTO big VALUES (?, ?);");
+    database.beginTransaction();
+    for (int i = 0; i < 500; i++) {
+      insert.bindLong(1, i);
+      insert.bindString(2, new String(padding));
+      insert.executeInsert();
+    }
+    database.setTransactionSuccessful();
+    database.endTransaction();
+
+    SQLiteCursor cursor = (SQLiteCursor) database.rawQuery("SELECT * FROM big ORDER BY id;", null);
+    assertThat(cursor.getCount()).isEqualTo(500);
+    assertThat(cursor.getWindow().getNumRows()).isLessThan(500);
+
+    int count = 0;
+    while (cursor.moveToNext()) {
+      assertThat(cursor.getInt(0)).isEqualTo(count++);
+      assertThat(cursor.getString(1)).hasLength(10_000);
+    }
+    assertThat(count).isEqualTo(500);
+
+    assertThat(cursor.moveToPosition(10)).isTrue();
+    assertThat(cursor.getInt(0)).isEqualTo(10);
+    assertThat(cursor.getWindow().getStartPosition()).isAtMost(10);
+    cursor.close();
+  }
+
   private void addPeople() {
     String[] inserts = {
       "INSERT INTO table_name (id, name, long_value, float_value, double_value) VALUES(1234,"
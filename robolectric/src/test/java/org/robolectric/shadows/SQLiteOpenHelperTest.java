@@ -212,6 +212,76 @@ public class SQLiteOpenHelperTest {
     assertThat(db1.isOpen()).isTrue();
   }
 
+  @Test
+  public void schemaSnapshots_restoreDatabaseWithoutCallingOnCreate() {
+    ShadowSQLiteOpenHelper.setUseSchemaSnapshots(true);
+    Context context = ApplicationProvider.getApplicationContext();
+    String name = "snapshot" + System.nanoTime();
+
+    TestOpenHelper helper1 = new TestOpenHelper(context, name, null, 1);
+    assertInitialDB(helper1.getWritableDatabase(), helper1);
+    helper1.close();
+    assertThat(context.deleteDatabase(name)).isTrue();
+
+    TestOpenHelper helper2 = new TestOpenHelper(context, name, null, 1);
+    SQLiteDatabase database = helper2.getWritableDatabase();
+    assertSubsequentDB(database, helper2);
+    assertThat(database.getVersion()).isEqualTo(1);
+    helper2.close();
+  }
+
+  @Test
+  public void schemaSnapshots_disabledByDefault() {
+    Context context = ApplicationProvider.getApplicationContext();
+    String name = "snapshot" + System.nanoTime();
+
+    TestOpenHelper helper1 = new TestOpenHelper(context, name, null, 1);
+    helper1.getWritableDatabase();
+    helper1.close();
+    context.deleteDatabase(name);
+
+    TestOpenHelper helper2 = new TestOpenHelper(context, name, null, 1);
+    assertInitialDB(helper2.getWritableDatabase(), helper2);
+    helper2.close();
+  }
+
+  @Test
+  public void schemaSnapshots_differentIdentityHash_callsOnCreate() {
+    ShadowSQLiteOpenHelper.setUseSchemaSnapshots(true);
+    Context context = ApplicationProvider.getApplicationContext();
+    String name = "snapshot" + System.nanoTime();
+
+    CallbackOpenHelper helper1 = new CallbackOpenHelper(context, name, new RoomCallback("hash1"));
+    assertInitialDB(helper1.getWritableDatabase(), helper1);
+    helper1.close();
+    assertThat(context.deleteDatabase(name)).isTrue();
+
+    CallbackOpenHelper helper2 = new CallbackOpenHelper(context, name, new RoomCallback("hash2"));
+    assertInitialDB(helper2.getWritableDatabase(), helper2);
+    helper2.close();
+    assertThat(context.deleteDatabase(name)).isTrue();
+
+    CallbackOpenHelper helper3 = new CallbackOpenHelper(context, name, new RoomCallback("hash1"));
+    assertSubsequentDB(helper3.getWritableDatabase(), helper3);
+    helper3.close();
+  }
+
+  @Test
+  public void schemaSnapshots_differentCallbackClass_callsOnCreate() {
+    ShadowSQLiteOpenHelper.setUseSchemaSnapshots(true);
+    Context context = ApplicationProvider.getApplicationContext();
+    String name = "snapshot" + System.nanoTime();
+
+    CallbackOpenHelper helper1 = new CallbackOpenHelper(context, name, new RoomCallback("hash"));
+    assertInitialDB(helper1.getWritableDatabase(), helper1);
+    helper1.close();
+    assertThat(context.deleteDatabase(name)).isTrue();
+
+    CallbackOpenHelper helper2 = new CallbackOpenHelper(context, name, new Object());
+    assertInitialDB(helper2.getWritableDatabase(), helper2);
+    helper2.close();
+  }
+
   private static void assertInitialDB(SQLiteDatabase database, TestOpenHelper helper) {
     assertDatabaseOpened(database, helper);
     assertThat(helper.onCreateCalled).isTrue();
@@ -262,4 +332,25 @@ public class SQLiteOpenHelperTest {
       super.close();
     }
   }
+
+  /** Like the helper androidx.sqlite uses for every Room database, whatever its schema. */
+  private static class CallbackOpenHelper extends TestOpenHelper {
+    @SuppressWarnings("unused")
+    private final Object mCallback;
+
+    CallbackOpenHelper(Context context, String name, Object callback) {
+      super(context, name, null, 1);
+      this.mCallback = callback;
+    }
+  }
+
+  /** Like Room's RoomOpenHelper, which knows the identity hash of its database's schema. */
+  private static class RoomCallback {
+    @SuppressWarnings("unused")
+    private final String mIdentityHash;
+
+    RoomCallback(String identityHash) {
+      this.mIdentityHash = identityHash;
+    }
+  }
 }
@@ -275,6 +275,40 @@ public class ShadowBitmapFactoryTest {
     assertEquals(Color.WHITE, getPngImageColorFromByteArray("res/drawable/pure_white.png"));
   }
 
+  @Test
+  public void decodeByteArray_twice_returnsIndependentBitmaps() throws IOException {
+    byte[] bytes = getBitmapByteArrayFromResourceStream("res/drawable/pure_red.png");
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inMutable = true;
+    Bitmap first = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+    first.eraseColor(Color.BLUE);
+
+    Bitmap second = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+
+    assertThat(first.getPixel(0, 0)).isEqualTo(Color.BLUE);
+    assertThat(second.getPixel(0, 0)).isEqualTo(Color.RED);
+  }
+
+  @Test
+  public void decodeByteArray_withSampleSize_afterDecodingFullSize() throws IOException {
+    byte[] bytes = getBitmapByteArrayFromResourceStream("res/drawable/an_image.png");
+    Bitmap full = BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inSampleSize = 2;
+
+    Bitmap sampled = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+
+    assertThat(sampled.getWidth()).isEqualTo(full.getWidth() / 2);
+    assertThat(sampled.getHeight()).isEqualTo(full.getHeight() / 2);
+  }
+
+  @Test
+  public void decodeByteArray_withDecodedImageCacheDisabled() {
+    ShadowBitmapFactory.setDecodedImageCacheSize(0);
+
+    assertEquals(Color.GREEN, getPngImageColorFromByteArray("res/drawable/pure_green.png"));
+  }
+
   @Test
   public void decodeStream_shouldGetWidthAndHeightFromHints() throws Exception {
     ShadowBitmapFactory.provideWidthAndHeightHints(Uri.parse("content:/path"), 123, 456);
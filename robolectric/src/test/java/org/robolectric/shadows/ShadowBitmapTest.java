@@ -351,6 +351,50 @@ public class ShadowBitmapTest {
     assertThat(b1).isSameInstanceAs(b3);
   }
 
+  @Test
+  public void copy_isIndependentOfSource() {
+    Bitmap original = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+    original.setPixel(1, 1, Color.RED);
+    Bitmap copy = original.copy(Bitmap.Config.ARGB_8888, true);
+    assertThat(copy.sameAs(original)).isTrue();
+
+    original.setPixel(2, 2, Color.BLUE);
+    copy.setPixel(3, 3, Color.GREEN);
+
+    assertThat(copy.getPixel(1, 1)).isEqualTo(Color.RED);
+    assertThat(copy.getPixel(2, 2)).isEqualTo(0);
+    assertThat(original.getPixel(3, 3)).isEqualTo(0);
+    assertThat(copy.sameAs(original)).isFalse();
+  }
+
+  @Test
+  public void createBitmap_subset_isIndependentOfSource() {
+    Bitmap original = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+    original.setPixel(5, 6, Color.RED);
+    Bitmap subset = Bitmap.createBitmap(original, 4, 4, 4, 4);
+    Bitmap subsetOfSubset = Bitmap.createBitmap(subset, 1, 1, 2, 3);
+
+    original.setPixel(5, 6, Color.BLUE);
+    subset.setPixel(0, 0, Color.GREEN);
+
+    assertThat(subset.getPixel(1, 2)).isEqualTo(Color.RED);
+    assertThat(subsetOfSubset.getPixel(0, 1)).isEqualTo(Color.RED);
+    assertThat(subsetOfSubset.getPixel(0, 0)).isEqualTo(0);
+    assertThat(original.getPixel(4, 4)).isEqualTo(0);
+  }
+
+  @Test
+  public void copy_ofBlankBitmap_isBlank() {
+    Bitmap original = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+    Bitmap copy = original.copy(Bitmap.Config.ARGB_8888, true);
+
+    copy.setPixel(0, 0, Color.RED);
+
+    assertThat(original.getPixel(0, 0)).isEqualTo(0);
+    assertThat(copy.getPixel(0, 0)).isEqualTo(Color.RED);
+    assertThat(copy.getPixel(1, 1)).isEqualTo(0);
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void throwsExceptionForInvalidDimensions() {
     Bitmap b = Bitmap.createBitmap(10, 20, Bitmap.Config.ARGB_8888);
@@ -522,6 +566,54 @@ public class ShadowBitmapTest {
     assertThat(Arrays.equals(pixelsOriginal, pixelsReconstructed)).isTrue();
   }
 
+  @Test
+  public void copyPixelsToBuffer_rgb565() {
+    Bitmap bitmap = Bitmap.createBitmap(2, 1, Bitmap.Config.RGB_565);
+    bitmap.setPixel(0, 0, Color.RED);
+    bitmap.setPixel(1, 0, Color.BLUE);
+    ShortBuffer buffer = ShortBuffer.allocate(2);
+
+    bitmap.copyPixelsToBuffer(buffer);
+
+    assertThat(buffer.array()).isEqualTo(new short[] {(short) 0xf800, (short) 0x001f});
+    buffer.rewind();
+    Bitmap reconstructed = Bitmap.createBitmap(2, 1, Bitmap.Config.RGB_565);
+    reconstructed.copyPixelsFromBuffer(buffer);
+    assertThat(reconstructed.getPixel(0, 0)).isEqualTo(Color.RED);
+    assertThat(reconstructed.getPixel(1, 0)).isEqualTo(Color.BLUE);
+  }
+
+  @Test
+  public void copyPixelsToBuffer_alpha8() {
+    Bitmap bitmap = Bitmap.createBitmap(2, 1, Bitmap.Config.ALPHA_8);
+    bitmap.setPixel(0, 0, 0x80000000);
+    bitmap.setPixel(1, 0, 0xff000000);
+    ByteBuffer buffer = ByteBuffer.allocate(bitmap.getByteCount());
+
+    bitmap.copyPixelsToBuffer(buffer);
+
+    assertThat(buffer.position()).isEqualTo(2);
+    assertThat(buffer.array()).isEqualTo(new byte[] {(byte) 0x80, (byte) 0xff});
+    buffer.rewind();
+    Bitmap reconstructed = Bitmap.createBitmap(2, 1, Bitmap.Config.ALPHA_8);
+    reconstructed.copyPixelsFromBuffer(buffer);
+    assertThat(reconstructed.getPixel(0, 0)).isEqualTo(0x80000000);
+    assertThat(reconstructed.getPixel(1, 0)).isEqualTo(0xff000000);
+  }
+
+  @Test
+  public void getPixels_withStrideAndOffset_copiesRegion() {
+    Bitmap bitmap = Bitmap.createBitmap(4, 4, Bitmap.Config.ARGB_8888);
+    bitmap.setPixels(new int[] {1, 2, 0, 3, 4}, 0, 3, 1, 1, 2, 2);
+
+    int[] pixels = new int[6];
+    bitmap.getPixels(pixels, 1, 3, 1, 1, 2, 2);
+
+    assertThat(pixels).isEqualTo(new int[] {0, 1, 2, 0, 3, 4});
+    assertThat(bitmap.getPixel(0, 0)).isEqualTo(0);
+    assertThat(bitmap.getPixel(2, 2)).isEqualTo(4);
+  }
+
   @Test
   public void compress_shouldLessThanBeforeForWebp() {
     Bitmap bitmap = Bitmap.createBitmap(400, 200, Bitmap.Config.ARGB_8888);
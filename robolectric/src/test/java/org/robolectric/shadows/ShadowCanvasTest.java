@@ -2,6 +2,7 @@ package org.robolectric.shadows;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.robolectric.Shadows.shadowOf;
 import static org.robolectric.shadows.ShadowPath.Point.Type.LINE_TO;
 
@@ -19,6 +20,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowCanvas.DrawHistoryMode;
 import org.robolectric.shadows.ShadowCanvas.RoundRectPaintHistoryEvent;
 
 @RunWith(AndroidJUnit4.class)
@@ -496,4 +498,177 @@ public class ShadowCanvasTest {
     assertThat(roundRectPaintHistoryEvent.rect).isEqualTo(rect0);
     assertThat(roundRectPaintHistoryEvent.paint.getColor()).isEqualTo(Color.WHITE);
   }
+
+  @Test
+  public void drawHistoryModeOff_recordsNothing() {
+    ShadowCanvas.setDrawHistoryMode(DrawHistoryMode.OFF);
+    Canvas canvas = new Canvas(targetBitmap);
+    Path path = new Path();
+    path.lineTo(10, 10);
+
+    canvas.drawPath(path, new Paint());
+    canvas.drawRect(1f, 2f, 3f, 4f, new Paint());
+    canvas.drawText("hello", 1f, 2f, new Paint());
+    canvas.drawBitmap(imageBitmap, 1, 2, new Paint());
+
+    ShadowCanvas shadowCanvas = shadowOf(canvas);
+    assertThat(shadowCanvas.getPathPaintHistoryCount()).isEqualTo(0);
+    assertThat(shadowCanvas.getRectPaintHistoryCount()).isEqualTo(0);
+    assertThat(shadowCanvas.getTextHistoryCount()).isEqualTo(0);
+    assertThat(shadowCanvas.getDescription()).isEmpty();
+  }
+
+  @Test
+  public void drawHistoryModeBounded_keepsLastEvents() {
+    ShadowCanvas.setDrawHistoryMode(DrawHistoryMode.BOUNDED);
+    ShadowCanvas.setDrawHistorySize(2);
+    Canvas canvas = new Canvas(targetBitmap);
+
+    for (int i = 0; i < 5; i++) {
+      canvas.drawRect(i, i, i + 1, i + 1, new Paint());
+    }
+
+    ShadowCanvas shadowCanvas = shadowOf(canvas);
+    assertThat(shadowCanvas.getRectPaintHistoryCount()).isEqualTo(2);
+    assertThat(shadowCanvas.getDrawnRect(0).left).isEqualTo(3f);
+    assertThat(shadowCanvas.getLastDrawnRect().left).isEqualTo(4f);
+  }
+
+  @Test
+  public void drawHistoryModeBounded_keepsLastDescriptions() {
+    ShadowCanvas.setDrawHistoryMode(DrawHistoryMode.BOUNDED);
+    ShadowCanvas.setDrawHistorySize(2);
+    Canvas canvas = new Canvas(targetBitmap);
+
+    for (int i = 1; i <= 3; i++) {
+      canvas.drawBitmap(imageBitmap, i, i, new Paint());
+    }
+
+    assertEquals(
+        "Bitmap for file:/an/image.jpg at (2,2)\n" + "Bitmap for file:/an/image.jpg at (3,3)",
+        shadowOf(canvas).getDescription());
+  }
+
+  @Test
+  public void drawPath_describesPathAsDrawn() {
+    Canvas canvas = new Canvas(targetBitmap);
+    Path path = new Path();
+    path.lineTo(10, 10);
+
+    canvas.drawPath(path, new Paint());
+    String drawnPoints = shadowOf(path).getPoints().toString();
+    path.lineTo(20, 20);
+
+    assertThat(shadowOf(canvas).getDescription()).isEqualTo("Path " + drawnPoints);
+  }
+
+  @Test
+  public void rasterization_drawRect_honorsMatrixAndClip() {
+    ShadowCanvas.setRasterizationEnabled(true);
+    Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+    Canvas canvas = new Canvas(bitmap);
+    Paint paint = new Paint();
+    paint.setColor(Color.RED);
+
+    canvas.translate(2, 2);
+    canvas.clipRect(0, 0, 4, 4);
+    canvas.drawRect(0, 0, 10, 10, paint);
+
+    assertThat(bitmap.getPixel(3, 3)).isEqualTo(Color.RED);
+    assertThat(bitmap.getPixel(5, 5)).isEqualTo(Color.RED);
+    assertThat(bitmap.getPixel(1, 1)).isEqualTo(Color.TRANSPARENT);
+    assertThat(bitmap.getPixel(6, 6)).isEqualTo(Color.TRANSPARENT);
+  }
+
+  @Test
+  public void rasterization_restore_undoesMatrixAndClip() {
+    ShadowCanvas.setRasterizationEnabled(true);
+    Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+    Canvas canvas = new Canvas(bitmap);
+    Paint paint = new Paint();
+    paint.setColor(Color.BLUE);
+
+    int saveCount = canvas.save();
+    canvas.translate(5, 5);
+    canvas.clipRect(0, 0, 1, 1);
+    canvas.restoreToCount(saveCount);
+    canvas.drawRect(0, 0, 2, 2, paint);
+
+    assertThat(bitmap.getPixel(0, 0)).isEqualTo(Color.BLUE);
+    assertThat(bitmap.getPixel(1, 1)).isEqualTo(Color.BLUE);
+    assertThat(bitmap.getPixel(5, 5)).isEqualTo(Color.TRANSPARENT);
+  }
+
+  @Test
+  public void rasterization_saveLayer_countsSaves() {
+    ShadowCanvas.setRasterizationEnabled(true);
+    Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+    Canvas canvas = new Canvas(bitmap);
+    assertThat(canvas.getSaveCount()).isEqualTo(1);
+
+    int saveCount = canvas.saveLayer(new RectF(0, 0, 5, 5), null, Canvas.ALL_SAVE_FLAG);
+    assertThat(saveCount).isEqualTo(1);
+    assertThat(canvas.getSaveCount()).isEqualTo(2);
+    assertThat(canvas.saveLayerAlpha(0, 0, 5, 5, 128, Canvas.ALL_SAVE_FLAG)).isEqualTo(2);
+    assertThat(canvas.save()).isEqualTo(3);
+    assertThat(canvas.getSaveCount()).isEqualTo(4);
+
+    canvas.restoreToCount(saveCount);
+    assertThat(canvas.getSaveCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void restoreToCount_belowOne_throws() {
+    Canvas canvas = new Canvas(targetBitmap);
+
+    try {
+      canvas.restoreToCount(0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test
+  public void rasterization_restoreToCount_belowOne_throws() {
+    ShadowCanvas.setRasterizationEnabled(true);
+    Canvas canvas = new Canvas(Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888));
+    canvas.save();
+
+    try {
+      canvas.restoreToCount(0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test
+  public void rasterization_drawStrokedCircle_leavesCenterEmpty() {
+    ShadowCanvas.setRasterizationEnabled(true);
+    Bitmap bitmap = Bitmap.createBitmap(20, 20, Bitmap.Config.ARGB_8888);
+    Canvas canvas = new Canvas(bitmap);
+    Paint paint = new Paint();
+    paint.setColor(Color.GREEN);
+    paint.setStyle(Paint.Style.STROKE);
+    paint.setStrokeWidth(2);
+
+    canvas.drawCircle(10, 10, 8, paint);
+
+    assertThat(bitmap.getPixel(10, 2)).isEqualTo(Color.GREEN);
+    assertThat(bitmap.getPixel(10, 10)).isEqualTo(Color.TRANSPARENT);
+  }
+
+  @Test
+  public void rasterization_drawBitmap_scalesSourceIntoDestination() {
+    ShadowCanvas.setRasterizationEnabled(true);
+    Bitmap source = Bitmap.createBitmap(2, 2, Bitmap.Config.ARGB_8888);
+    source.eraseColor(Color.RED);
+    Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+    Canvas canvas = new Canvas(bitmap);
+
+    canvas.drawBitmap(source, null, new Rect(2, 2, 6, 6), null);
+
+    assertThat(bitmap.getPixel(2, 2)).isEqualTo(Color.RED);
+    assertThat(bitmap.getPixel(5, 5)).isEqualTo(Color.RED);
+    assertThat(bitmap.getPixel(6, 6)).isEqualTo(Color.TRANSPARENT);
+  }
 }
@@ -1,13 +1,17 @@
 package org.robolectric.shadows;
 
 import static android.os.Build.VERSION_CODES.Q;
+import static android.os.Build.VERSION_CODES.R;
 import static com.google.common.truth.Truth.assertThat;
 
 import android.graphics.fonts.Font;
 import android.graphics.fonts.FontStyle;
+import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -32,4 +36,17 @@ public class ShadowFontBuilderTest {
     assertThat(font.getStyle().getWeight()).isEqualTo(FontStyle.FONT_WEIGHT_NORMAL);
     assertThat(font.getStyle().getSlant()).isEqualTo(FontStyle.FONT_SLANT_UPRIGHT);
   }
+
+  @Test
+  @Config(minSdk = R)
+  public void fontBuilder_fromAsset_readsAssetContents() throws IOException {
+    Font font =
+        new Font.Builder(ApplicationProvider.getApplicationContext().getAssets(), "myFont.ttf")
+            .build();
+
+    ByteBuffer buffer = font.getBuffer();
+    byte[] contents = new byte[buffer.remaining()];
+    buffer.duplicate().get(contents);
+    assertThat(contents).isEqualTo(Files.readAllBytes(fontFile.toPath()));
+  }
 }
@@ -106,6 +106,37 @@ public class ShadowMatrixTest {
     assertThat(shadow.getSetOperations()).isEmpty();
   }
 
+  @Test
+  public void set_isNotAffectedByLaterOperationsOnSource() {
+    final Matrix matrix1 = new Matrix();
+    matrix1.preScale(1, 2);
+    matrix1.postTranslate(3, 4);
+
+    final Matrix matrix2 = new Matrix();
+    matrix2.set(matrix1);
+    matrix1.preRotate(5);
+    matrix1.postSkew(6, 7);
+    matrix1.setScale(8, 9);
+
+    final ShadowMatrix shadow = shadowOf(matrix2);
+    assertThat(shadow.getPreOperations()).containsExactly("scale 1.0 2.0");
+    assertThat(shadow.getPostOperations()).containsExactly("translate 3.0 4.0");
+    assertThat(shadow.getSetOperations()).isEmpty();
+  }
+
+  @Test
+  public void preConcat_describesOtherMatrixAsConcatenated() {
+    final Matrix matrix = new Matrix();
+    final Matrix other = new Matrix();
+    other.setTranslate(5, 7);
+    final String otherDescription = other.toString();
+
+    matrix.preConcat(other);
+    other.setScale(2, 3);
+
+    assertThat(shadowOf(matrix).getPreOperations()).containsExactly("matrix " + otherDescription);
+  }
+
   @Test
   public void testIsIdentity() {
     final Matrix matrix = new Matrix();
@@ -1378,6 +1378,84 @@ public class ShadowParcelTest {
     assertThat(actualFd).isEqualTo(expectedFd);
   }
 
+  @Test
+  public void byteBacked_marshallAndUnmarshall() {
+    ShadowParcel.setByteBacked(true);
+    Bundle bundle = new Bundle();
+    bundle.putString("key", "value");
+    bundle.putByteArray("bytes", new byte[1_000_000]);
+    parcel.writeInt(1);
+    parcel.writeString("hello");
+    parcel.writeBundle(bundle);
+
+    byte[] rawBytes = parcel.marshall();
+    Parcel parcel2 = Parcel.obtain();
+    parcel2.unmarshall(rawBytes, 0, rawBytes.length);
+    assertThat(parcel2.dataPosition()).isEqualTo(parcel2.dataSize());
+    parcel2.setDataPosition(0);
+
+    assertThat(parcel2.dataSize()).isEqualTo(parcel.dataSize());
+    assertThat(parcel2.readInt()).isEqualTo(1);
+    assertThat(parcel2.readString()).isEqualTo("hello");
+    Bundle bundle2 = parcel2.readBundle(getClass().getClassLoader());
+    assertThat(bundle2.getString("key")).isEqualTo("value");
+    assertThat(bundle2.getByteArray("bytes")).hasLength(1_000_000);
+    assertInvariants(parcel2);
+    parcel2.recycle();
+  }
+
+  @Test
+  public void byteBacked_unmarshallIntoNonEmptyParcel_replacesContents() {
+    ShadowParcel.setByteBacked(true);
+    parcel.writeInt(1);
+    parcel.writeString("hello");
+    byte[] rawBytes = parcel.marshall();
+    Parcel parcel2 = Parcel.obtain();
+    parcel2.writeString("some longer contents");
+    parcel2.writeStrongBinder(new Binder());
+    parcel2.writeInt(2);
+
+    parcel2.unmarshall(rawBytes, 0, rawBytes.length);
+
+    assertThat(parcel2.dataSize()).isEqualTo(rawBytes.length);
+    assertThat(parcel2.dataPosition()).isEqualTo(rawBytes.length);
+    assertThat(parcel2.marshall()).isEqualTo(rawBytes);
+    parcel2.setDataPosition(0);
+    assertThat(parcel2.readInt()).isEqualTo(1);
+    assertThat(parcel2.readString()).isEqualTo("hello");
+    assertInvariants(parcel2);
+    parcel2.recycle();
+  }
+
+  @Test
+  public void byteBacked_usesLittleEndianNativeLayout() {
+    ShadowParcel.setByteBacked(true);
+    parcel.writeInt(0x01020304);
+    parcel.writeString("ab");
+
+    assertThat(parcel.marshall())
+        .isEqualTo(new byte[] {4, 3, 2, 1, 2, 0, 0, 0, 'a', 0, 'b', 0, 0, 0, 0, 0});
+    parcel.setDataPosition(0);
+    assertThat(parcel.readByte()).isEqualTo((byte) 4);
+  }
+
+  @Test
+  public void byteBacked_readsBindersBack() {
+    ShadowParcel.setByteBacked(true);
+    Binder binder = new Binder();
+    parcel.writeStrongBinder(binder);
+    parcel.writeStrongBinder(null);
+    parcel.setDataPosition(0);
+
+    assertThat(parcel.readStrongBinder()).isSameInstanceAs(binder);
+    assertThat(parcel.readStrongBinder()).isNull();
+    try {
+      parcel.marshall();
+      fail();
+    } catch (RuntimeException expected) {
+    }
+  }
+
   private void assertInvariants() {
     assertInvariants(parcel);
   }
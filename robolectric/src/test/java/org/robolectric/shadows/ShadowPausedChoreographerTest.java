@@ -0,0 +1,73 @@
+package org.robolectric.shadows;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.shadows.ShadowLooper.shadowMainLooper;
+
+import android.animation.ValueAnimator;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.LooperMode;
+
+/** Tests for {@link ShadowPausedChoreographer}. */
+@RunWith(AndroidJUnit4.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class ShadowPausedChoreographerTest {
+
+  @Test
+  public void coalesceFrames_animationJumpsToEnd() {
+    ShadowChoreographer.setCoalesceFrames(true);
+    AtomicInteger updates = new AtomicInteger();
+    ValueAnimator animator = ValueAnimator.ofInt(0, 100).setDuration(1000);
+    animator.addUpdateListener(animation -> updates.incrementAndGet());
+    animator.start();
+    shadowMainLooper().idle();
+
+    shadowMainLooper().idleFor(Duration.ofSeconds(2));
+
+    assertThat(animator.isRunning()).isFalse();
+    assertThat(animator.getAnimatedValue()).isEqualTo(100);
+    assertThat(updates.get()).isLessThan(5);
+  }
+
+  @Test
+  public void coalesceFrames_frameRequestedOutsideOfFrameRunsOnIdle() {
+    ShadowChoreographer.setCoalesceFrames(true);
+    AtomicInteger frames = new AtomicInteger();
+    long startTime = SystemClock.uptimeMillis();
+
+    Choreographer.getInstance().postFrameCallback(frameTimeNanos -> frames.incrementAndGet());
+    shadowMainLooper().idle();
+    Choreographer.getInstance().postFrameCallback(frameTimeNanos -> frames.incrementAndGet());
+    shadowMainLooper().idle();
+
+    assertThat(frames.get()).isEqualTo(2);
+    assertThat(SystemClock.uptimeMillis()).isLessThan(startTime + 16);
+  }
+
+  @Test
+  public void coalesceFrames_frameRequestedInFrameWaitsForClock() {
+    ShadowChoreographer.setCoalesceFrames(true);
+    AtomicInteger frames = new AtomicInteger();
+    Choreographer.FrameCallback callback =
+        new Choreographer.FrameCallback() {
+          @Override
+          public void doFrame(long frameTimeNanos) {
+            frames.incrementAndGet();
+            Choreographer.getInstance().postFrameCallback(this);
+          }
+        };
+
+    Choreographer.getInstance().postFrameCallback(callback);
+    shadowMainLooper().idle();
+    assertThat(frames.get()).isEqualTo(1);
+
+    shadowMainLooper().idleFor(Duration.ofMinutes(10));
+    assertThat(frames.get()).isEqualTo(2);
+    Choreographer.getInstance().removeFrameCallback(callback);
+  }
+}
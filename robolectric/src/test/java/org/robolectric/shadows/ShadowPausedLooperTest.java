@@ -370,6 +370,69 @@ public class ShadowPausedLooperTest {
     verify(mockRunnable, times(1)).run();
   }
 
+  @Test
+  public void idleFor_jumpsOverEmptyFrames() {
+    long startTime = SystemClock.uptimeMillis();
+    long skippedFramesBefore = ShadowPausedLooper.getSkippedFrameCount();
+    Runnable mockRunnable = mock(Runnable.class);
+    new Handler().postDelayed(mockRunnable, 1000);
+
+    shadowMainLooper().idleFor(Duration.ofMillis(1600));
+
+    verify(mockRunnable, times(1)).run();
+    assertThat(SystemClock.uptimeMillis()).isEqualTo(startTime + 1600);
+    // 1000ms / 16ms to reach the message, then 600ms / 16ms to reach the end time
+    assertThat(ShadowPausedLooper.getSkippedFrameCount() - skippedFramesBefore)
+        .isEqualTo(62 + 37);
+  }
+
+  @Test
+  public void idleFor_backgroundLooper_executesTasksInOrder() throws Exception {
+    Handler handler = new Handler(handlerThread.getLooper());
+    StringBuilder order = new StringBuilder();
+    handler.postDelayed(() -> order.append("b"), 200);
+    handler.postDelayed(() -> order.append("a"), 100);
+    handler.postDelayed(() -> order.append("c"), 200);
+    ShadowLooper shadowLooper = shadowOf(handlerThread.getLooper());
+    shadowLooper.pause();
+
+    shadowLooper.idleFor(Duration.ofMillis(300));
+
+    assertThat(order.toString()).isEqualTo("abc");
+  }
+
+  @Test
+  public void instrumentation_recordsDispatchStats() {
+    ShadowPausedLooper.setInstrumentationEnabled(true);
+    ShadowPausedLooper shadowLooper = Shadow.extract(getMainLooper());
+    Handler mainHandler = new Handler();
+    Runnable runnable = () -> {};
+    mainHandler.post(runnable);
+    mainHandler.post(runnable);
+    mainHandler.sendEmptyMessage(42);
+
+    shadowLooper.idle();
+
+    LooperStats stats = shadowLooper.getStats();
+    assertThat(stats.getDispatchStatsByHandler().get(Handler.class.getName()).getCount())
+        .isEqualTo(3);
+    assertThat(stats.getDispatchStatsByCallback().get(runnable.getClass().getName()).getCount())
+        .isEqualTo(2);
+    assertThat(stats.getDispatchStatsByCallback()).containsKey(Handler.class.getName() + "#what=42");
+    assertThat(stats.getMaxQueueDepth()).isEqualTo(3);
+    assertThat(stats.getLongestMessage()).isNotNull();
+  }
+
+  @Test
+  public void instrumentation_disabledByDefault() {
+    ShadowPausedLooper shadowLooper = Shadow.extract(getMainLooper());
+    new Handler().post(() -> {});
+
+    shadowLooper.idle();
+
+    assertThat(shadowLooper.getStats().getDispatchStatsByHandler()).isEmpty();
+  }
+
   @Test
   public void idleExecutesPostedRunnables() {
     ShadowPausedLooper shadowLooper = Shadow.extract(getMainLooper());
@@ -7,6 +7,7 @@ import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import android.os.MessageQueue;
+import android.os.SystemClock;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import java.time.Duration;
 import java.util.concurrent.CountDownLatch;
@@ -82,6 +83,23 @@ public class ShadowPausedMessageQueueTest {
     t.join();
   }
 
+  @Test
+  public void next_notReleasedBeforeMessageIsDue() throws InterruptedException {
+    Message msg = Message.obtain();
+    msg.setTarget(new Handler());
+    shadowQueue.doEnqueueMessage(msg, SystemClock.uptimeMillis() + 100);
+    NextThread t = NextThread.startSync(shadowQueue);
+
+    ShadowSystemClock.advanceBy(Duration.ofMillis(50));
+    // Queues are notified before advanceBy returns, so a woken thread isn't WAITING again until
+    // it has found its message not to be due yet.
+    t.awaitWaitingOrFinished();
+    assertThat(t.finished.getCount()).isEqualTo(1);
+
+    ShadowSystemClock.advanceBy(Duration.ofMillis(50));
+    t.join();
+  }
+
   @Test
   public void reset_clearsMsg1() {
     assertMainQueueEmptyAndAdd();
@@ -104,6 +122,7 @@ public class ShadowPausedMessageQueueTest {
   private static class NextThread extends Thread {
 
     private final CountDownLatch latch = new CountDownLatch(1);
+    private final CountDownLatch finished = new CountDownLatch(1);
     private final ShadowPausedMessageQueue shadowQueue;
 
     private NextThread(ShadowPausedMessageQueue shadowQueue) {
@@ -114,6 +133,13 @@ public class ShadowPausedMessageQueueTest {
     public void run() {
       latch.countDown();
       shadowQueue.getNext();
+      finished.countDown();
+    }
+
+    private void awaitWaitingOrFinished() {
+      while (finished.getCount() > 0 && getState() != State.WAITING) {
+        Thread.yield();
+      }
     }
 
     public static NextThread startSync(ShadowPausedMessageQueue shadowQueue)
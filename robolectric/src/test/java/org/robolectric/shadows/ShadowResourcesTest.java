@@ -1,7 +1,9 @@
 package org.robolectric.shadows;
 
 import static android.os.Build.VERSION_CODES.N_MR1;
+import static android.os.Build.VERSION_CODES.P;
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assume.assumeFalse;
 import static org.robolectric.shadows.ShadowAssetManager.useLegacy;
 
 import android.content.res.Resources;
@@ -10,6 +12,7 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.os.Build;
 import android.util.AttributeSet;
+import android.util.DisplayMetrics;
 import android.util.TypedValue;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
@@ -74,6 +77,23 @@ public class ShadowResourcesTest {
     assertThat(bitmap.getWidth()).isEqualTo(100);
   }
 
+  @Test
+  @Config(minSdk = P, qualifiers = "mdpi")
+  public void getValueForDensity_afterLookupWithoutDensity_returnsValueForDensity() {
+    assumeFalse(useLegacy());
+    TypedValue value = new TypedValue();
+    TypedValue hdpiValue = new TypedValue();
+
+    resources.getValue(R.drawable.an_image, value, true);
+    resources.getValueForDensity(
+        R.drawable.an_image, DisplayMetrics.DENSITY_HIGH, hdpiValue, true);
+
+    assertThat(value.string.toString()).doesNotContain("-hdpi");
+    assertThat(hdpiValue.string.toString()).contains("-hdpi");
+    resources.getValue(R.drawable.an_image, value, true);
+    assertThat(value.string.toString()).doesNotContain("-hdpi");
+  }
+
   @Test
   public void openRawResourceFd_returnsNull_todo_FIX() {
     if (useLegacy()) {
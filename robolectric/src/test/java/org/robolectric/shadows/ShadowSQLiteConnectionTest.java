@@ -8,6 +8,7 @@ import static org.robolectric.shadows.ShadowSQLiteConnection.convertSQLWithLocal
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteDatatypeMismatchException;
 import android.database.sqlite.SQLiteStatement;
@@ -19,6 +20,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -187,6 +190,60 @@ public class ShadowSQLiteConnectionTest {
     statement2.execute();
   }
 
+  @Test
+  public void perConnectionWorkers_connectionsRunConcurrently() throws Exception {
+    ShadowSQLiteConnection.setUsePerConnectionWorkers(true);
+    SQLiteDatabase writerDb = createDatabase("workers.db");
+    writerDb.execSQL("CREATE TABLE t (value INTEGER)");
+    SQLiteDatabase waiterDb = SQLiteDatabase.openDatabase(databasePath.getPath(), null, 0);
+    try (Cursor cursor = waiterDb.rawQuery("PRAGMA busy_timeout = 10000", null)) {
+      cursor.moveToFirst();
+    }
+
+    writerDb.beginTransaction();
+    writerDb.execSQL("INSERT INTO t(value) VALUES (1)");
+    CountDownLatch started = new CountDownLatch(1);
+    AtomicReference<Throwable> waiterFailure = new AtomicReference<>();
+    Thread waiter =
+        new Thread(
+            () -> {
+              started.countDown();
+              try {
+                // Blocks on its worker until the other connection's transaction ends.
+                waiterDb.execSQL("INSERT INTO t(value) VALUES (2)");
+              } catch (Throwable t) {
+                waiterFailure.set(t);
+              }
+            });
+    waiter.start();
+    started.await();
+    while (waiter.getState() != Thread.State.WAITING && waiter.isAlive()) {
+      Thread.yield();
+    }
+    // With a shared worker this would wait for the blocked insert, which would time out.
+    writerDb.setTransactionSuccessful();
+    writerDb.endTransaction();
+    waiter.join();
+
+    assertThat(waiterFailure.get()).isNull();
+    assertThat(DatabaseUtils.longForQuery(writerDb, "SELECT SUM(value) FROM t", null))
+        .isEqualTo(3);
+    assertThat(ShadowSQLiteConnection.getHandoffCount()).isGreaterThan(0);
+    waiterDb.close();
+    writerDb.close();
+  }
+
+  @Test
+  public void perConnectionWorkers_reset_closesConnection() {
+    ShadowSQLiteConnection.setUsePerConnectionWorkers(true);
+    SQLiteConnection workerConn = getSQLiteConnection();
+    assertThat(workerConn.isOpen()).isTrue();
+
+    ShadowSQLiteConnection.reset();
+
+    assertThat(workerConn.isOpen()).isFalse();
+  }
+
   private SQLiteDatabase createDatabase(String filename) {
     databasePath = ApplicationProvider.getApplicationContext().getDatabasePath(filename);
     databasePath.getParentFile().mkdirs();
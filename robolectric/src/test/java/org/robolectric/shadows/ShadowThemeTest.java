@@ -126,6 +126,51 @@ public class ShadowThemeTest {
         .isEqualTo("parent string");
   }
 
+  @Test
+  public void obtainStyledAttributes_twice_returnsSameValues() {
+    Resources.Theme theme = resources.newTheme();
+    theme.applyStyle(R.style.SimpleChildWithAdditionalAttributes, true);
+    int[] attrs = {R.attr.child_string, R.attr.parent_string};
+
+    TypedArray first = theme.obtainStyledAttributes(attrs);
+    TypedArray second = theme.obtainStyledAttributes(attrs);
+
+    for (int i = 0; i < attrs.length; i++) {
+      assertThat(second.getType(i)).isEqualTo(first.getType(i));
+      assertThat(second.getString(i)).isEqualTo(first.getString(i));
+    }
+    assertThat(second.getString(0)).isEqualTo("child string");
+    assertThat(second.getString(1)).isEqualTo("parent string");
+  }
+
+  @Test
+  public void applyStyle_afterObtainStyledAttributes_updatesValues() {
+    Resources.Theme theme = resources.newTheme();
+    theme.applyStyle(R.style.SimpleParent, true);
+    assertThat(theme.obtainStyledAttributes(new int[] {R.attr.parent_string}).getString(0))
+        .isEqualTo("parent string");
+
+    theme.applyStyle(R.style.SimpleChildWithOverride, true);
+
+    assertThat(theme.obtainStyledAttributes(new int[] {R.attr.parent_string}).getString(0))
+        .isEqualTo("parent string overridden by child");
+  }
+
+  @Test
+  public void setTo_afterObtainStyledAttributes_updatesValues() {
+    Resources.Theme sourceTheme = resources.newTheme();
+    sourceTheme.applyStyle(R.style.StyleB, false);
+    Resources.Theme destTheme = resources.newTheme();
+    destTheme.applyStyle(R.style.StyleA, false);
+    assertThat(destTheme.obtainStyledAttributes(new int[] {R.attr.string1}).getString(0))
+        .isEqualTo("string 1 from style A");
+
+    destTheme.setTo(sourceTheme);
+
+    assertThat(destTheme.obtainStyledAttributes(new int[] {R.attr.string1}).getString(0))
+        .isEqualTo("string 1 from style B");
+  }
+
   @Test
   public void setTo_shouldCopyAllAttributesToEmptyTheme() {
     Resources.Theme theme1 = resources.newTheme();
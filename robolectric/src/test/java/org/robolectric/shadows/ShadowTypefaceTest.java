@@ -4,6 +4,7 @@ import static android.os.Build.VERSION_CODES.LOLLIPOP;
 import static android.os.Build.VERSION_CODES.O_MR1;
 import static android.os.Build.VERSION_CODES.P;
 import static android.os.Build.VERSION_CODES.Q;
+import static android.os.Build.VERSION_CODES.R;
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.fail;
 import static org.robolectric.Shadows.shadowOf;
@@ -42,6 +43,15 @@ public class ShadowTypefaceTest {
     assertThat(shadowOf(typeface).getFontDescription().getStyle()).isEqualTo(Typeface.BOLD);
   }
 
+  @Test
+  public void create_withSameFamilyAndStyle_shouldShareFontDescription() {
+    Typeface typeface = Typeface.create("roboto", Typeface.BOLD);
+    Typeface otherTypeface = Typeface.create("roboto", Typeface.BOLD);
+
+    assertThat(shadowOf(otherTypeface).getFontDescription())
+        .isSameInstanceAs(shadowOf(typeface).getFontDescription());
+  }
+
   @Test
   public void create_withFamily_shouldCreateTypeface() {
     Typeface typeface = Typeface.create(Typeface.create("roboto", Typeface.BOLD), Typeface.ITALIC);
@@ -155,16 +165,18 @@ public class ShadowTypefaceTest {
   }
 
   @Test
-  @Config(minSdk = Q)
-  public void typeface_customFallbackBuilder_afterReset() throws IOException {
+  @Config(minSdk = Q, maxSdk = R)
+  public void typeface_customFallbackBuilder_eachBuildGetsItsOwnFont() throws IOException {
     Font font = new Font.Builder(fontFile).build();
     FontFamily family = new FontFamily.Builder(font).build();
-    // This invokes the Typeface static initializer, which creates some default typefaces.
-    Typeface.create("roboto", Typeface.BOLD);
-    // Call the resetter to clear the FONTS map in Typeface
-    ShadowTypeface.reset();
+
     Typeface typeface =
         new Typeface.CustomFallbackBuilder(family).setStyle(font.getStyle()).build();
-    assertThat(typeface).isNotNull();
+    Typeface otherTypeface =
+        new Typeface.CustomFallbackBuilder(family).setStyle(font.getStyle()).build();
+
+    long nativeInstance = ReflectionHelpers.getField(typeface, "native_instance");
+    long otherNativeInstance = ReflectionHelpers.getField(otherTypeface, "native_instance");
+    assertThat(otherNativeInstance).isNotEqualTo(nativeInstance);
   }
 }
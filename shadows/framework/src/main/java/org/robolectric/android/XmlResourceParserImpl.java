@@ -17,19 +17,18 @@ import org.robolectric.res.Fs;
 import org.robolectric.res.ResName;
 import org.robolectric.res.ResourceTable;
 import org.robolectric.res.StringResources;
+import org.robolectric.res.builder.XmlBlock;
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
 import org.xmlpull.v1.XmlPullParserException;
 
 /**
  * Concrete implementation of the {@link XmlResourceParser}.
  *
  * Clients expects a pull parser while the resource loader
- * initialise this object with a {@link Document}.
- * This implementation navigates the dom and emulates a pull
- * parser by raising all the opportune events.
+ * initialise this object with an {@link XmlBlock}.
+ * This implementation walks the block's pre-compiled event
+ * stream and emulates a pull parser by raising all the
+ * opportune events.
  *
  * Note that the original android implementation is based on
  * a set of native methods calls. Here those methods are
@@ -52,13 +51,16 @@ public class XmlResourceParserImpl implements XmlResourceParser {
       XmlResourceParser.FEATURE_VALIDATION
   };
 
-  private final Document document;
+  private final XmlBlock xmlBlock;
   private final Path fileName;
   private final String packageName;
   private final ResourceTable resourceTable;
   private final String applicationNamespace;
 
-  private Node currentNode;
+  /** Index of the current event in {@link #xmlBlock}, or -1 before the root element. */
+  private int currentEvent = -1;
+  /** The element of the current tag event, or null if not positioned on a tag. */
+  private XmlBlock.Element currentElement;
 
   private boolean mStarted = false;
   private boolean mDecNextDepth = false;
@@ -85,8 +87,20 @@ public class XmlResourceParserImpl implements XmlResourceParser {
       String packageName,
       String applicationPackageName,
       ResourceTable resourceTable) {
-    this.document = document;
-    this.fileName = fileName;
+    this(
+        XmlBlock.create(document, fileName, packageName),
+        packageName,
+        applicationPackageName,
+        resourceTable);
+  }
+
+  public XmlResourceParserImpl(
+      XmlBlock xmlBlock,
+      String packageName,
+      String applicationPackageName,
+      ResourceTable resourceTable) {
+    this.xmlBlock = xmlBlock;
+    this.fileName = xmlBlock.getPath();
     this.packageName = packageName;
     this.resourceTable = resourceTable;
     this.applicationNamespace = ANDROID_RES_NS_PREFIX + applicationPackageName;
@@ -188,10 +202,10 @@ public class XmlResourceParserImpl implements XmlResourceParser {
 
   @Override
   public String getText() {
-    if (currentNode == null) {
+    if (!hasCurrentNode()) {
       return "";
     }
-    return StringResources.processStringResources(currentNode.getTextContent());
+    return StringResources.processStringResources(xmlBlock.getTextContent(currentEvent));
   }
 
   @Override
@@ -244,7 +258,7 @@ public class XmlResourceParserImpl implements XmlResourceParser {
 
   @Override
   public String getNamespace() {
-    String namespace = currentNode != null ? currentNode.getNamespaceURI() : null;
+    String namespace = currentElement != null ? currentElement.getNamespace() : null;
     if (namespace == null) {
       return "";
     }
@@ -254,46 +268,37 @@ public class XmlResourceParserImpl implements XmlResourceParser {
 
   @Override
   public String getName() {
-    if (currentNode == null) {
+    if (!hasCurrentNode()) {
       return null;
     }
-    return currentNode.getNodeName();
+    return currentElement != null ? currentElement.getName() : "#text";
   }
 
-  Node getAttributeAt(int index) {
-    if (currentNode == null) {
-      throw new IndexOutOfBoundsException(String.valueOf(index));
-    }
-    NamedNodeMap map = currentNode.getAttributes();
-    if (index >= map.getLength()) {
+  private XmlBlock.Element getElementForAttributeAt(int index) {
+    if (currentElement == null
+        || index < 0
+        || index >= currentElement.getAttributeCount()) {
       throw new IndexOutOfBoundsException(String.valueOf(index));
     }
-    return map.item(index);
+    return currentElement;
   }
 
   public String getAttribute(String namespace, String name) {
-    if (currentNode == null) {
+    if (currentElement == null) {
       return null;
     }
 
-    Element element = (Element) currentNode;
-    if (element.hasAttributeNS(namespace, name)) {
-      return element.getAttributeNS(namespace, name).trim();
-    } else if (applicationNamespace.equals(namespace)
-        && element.hasAttributeNS(AttributeResource.RES_AUTO_NS_URI, name)) {
-      return element.getAttributeNS(AttributeResource.RES_AUTO_NS_URI, name).trim();
+    String value = currentElement.getAttributeValue(namespace, name);
+    if (value == null && applicationNamespace.equals(namespace)) {
+      value = currentElement.getAttributeValue(AttributeResource.RES_AUTO_NS_URI, name);
     }
-
-    return null;
+    return value == null ? null : value.trim();
   }
 
   @Override
   public String getAttributeNamespace(int index) {
-    Node attr = getAttributeAt(index);
-    if (attr == null) {
-      return "";
-    }
-    return maybeReplaceNamespace(attr.getNamespaceURI());
+    return maybeReplaceNamespace(
+        getElementForAttributeAt(index).getAttributeNamespace(index));
   }
 
   private String maybeReplaceNamespace(String namespace) {
@@ -308,9 +313,7 @@ public class XmlResourceParserImpl implements XmlResourceParser {
 
   @Override
   public String getAttributeName(int index) {
-    Node attr = getAttributeAt(index);
-    String name = attr.getLocalName();
-    return name == null ? attr.getNodeName() : name;
+    return getElementForAttributeAt(index).getAttributeName(index);
   }
 
   @Override
@@ -327,15 +330,15 @@ public class XmlResourceParserImpl implements XmlResourceParser {
 
   @Override
   public int getAttributeCount() {
-    if (currentNode == null) {
+    if (currentElement == null) {
       return -1;
     }
-    return currentNode.getAttributes().getLength();
+    return currentElement.getAttributeCount();
   }
 
   @Override
   public String getAttributeValue(int index) {
-    return qualify(getAttributeAt(index).getNodeValue());
+    return qualify(getElementForAttributeAt(index).getAttributeValue(index));
   }
 
   // for testing only...
@@ -407,157 +410,24 @@ public class XmlResourceParserImpl implements XmlResourceParser {
   }
 
   /**
-   * A twin implementation of the native android nativeNext(status)
-   *
-   * @throws XmlPullParserException
+   * A twin implementation of the native android nativeNext(status), walking the pre-compiled
+   * event stream of the {@link XmlBlock}.
    */
-  private int nativeNext() throws XmlPullParserException {
-    switch (mEventType) {
-      case (CDSECT): {
-        throw new IllegalArgumentException(
-            "CDSECT is not handled by Android");
-      }
-      case (COMMENT): {
-        throw new IllegalArgumentException(
-            "COMMENT is not handled by Android");
-      }
-      case (DOCDECL): {
-        throw new IllegalArgumentException(
-            "DOCDECL is not handled by Android");
-      }
-      case (ENTITY_REF): {
-        throw new IllegalArgumentException(
-            "ENTITY_REF is not handled by Android");
-      }
-      case (END_DOCUMENT): {
-        // The end document event should have been filtered
-        // from the invoker. This should never happen.
-        throw new IllegalArgumentException(
-            "END_DOCUMENT should not be found here.");
-      }
-      case (END_TAG): {
-        return navigateToNextNode(currentNode);
-      }
-      case (IGNORABLE_WHITESPACE): {
-        throw new IllegalArgumentException(
-            "IGNORABLE_WHITESPACE");
-      }
-      case (PROCESSING_INSTRUCTION): {
-        throw new IllegalArgumentException(
-            "PROCESSING_INSTRUCTION");
-      }
-      case (START_DOCUMENT): {
-        currentNode = document.getDocumentElement();
-        return START_TAG;
-      }
-      case (START_TAG): {
-        if (currentNode.hasChildNodes()) {
-          // The node has children, navigate down
-          return processNextNodeType(
-              currentNode.getFirstChild());
-        } else {
-          // The node has no children
-          return END_TAG;
-        }
-      }
-      case (TEXT): {
-        return navigateToNextNode(currentNode);
-      }
-      default: {
-        // This can only happen if mEventType is
-        // assigned with an unmapped integer.
-        throw new RuntimeException(
-            "Robolectric-> Uknown XML event type: " + mEventType);
-      }
-    }
-
-  }
-
-  /*protected*/ int processNextNodeType(Node node)
-      throws XmlPullParserException {
-    switch (node.getNodeType()) {
-      case (Node.ATTRIBUTE_NODE): {
-        throw new IllegalArgumentException("ATTRIBUTE_NODE");
-      }
-      case (Node.CDATA_SECTION_NODE): {
-        return navigateToNextNode(node);
-      }
-      case (Node.COMMENT_NODE): {
-        return navigateToNextNode(node);
-      }
-      case (Node.DOCUMENT_FRAGMENT_NODE): {
-        throw new IllegalArgumentException("DOCUMENT_FRAGMENT_NODE");
-      }
-      case (Node.DOCUMENT_NODE): {
-        throw new IllegalArgumentException("DOCUMENT_NODE");
-      }
-      case (Node.DOCUMENT_TYPE_NODE): {
-        throw new IllegalArgumentException("DOCUMENT_TYPE_NODE");
-      }
-      case (Node.ELEMENT_NODE): {
-        currentNode = node;
-        return START_TAG;
-      }
-      case (Node.ENTITY_NODE): {
-        throw new IllegalArgumentException("ENTITY_NODE");
-      }
-      case (Node.ENTITY_REFERENCE_NODE): {
-        throw new IllegalArgumentException("ENTITY_REFERENCE_NODE");
-      }
-      case (Node.NOTATION_NODE): {
-        throw new IllegalArgumentException("DOCUMENT_TYPE_NODE");
-      }
-      case (Node.PROCESSING_INSTRUCTION_NODE): {
-        throw new IllegalArgumentException("DOCUMENT_TYPE_NODE");
-      }
-      case (Node.TEXT_NODE): {
-        if (isWhitespace(node.getNodeValue())) {
-          // Skip whitespaces
-          return navigateToNextNode(node);
-        } else {
-          currentNode = node;
-          return TEXT;
-        }
-      }
-      default: {
-        throw new RuntimeException(
-            "Robolectric -> Unknown node type: " +
-                node.getNodeType() + ".");
-      }
+  private int nativeNext() {
+    currentEvent++;
+    if (currentEvent >= xmlBlock.getEventCount()) {
+      currentEvent = xmlBlock.getEventCount();
+      currentElement = null;
+      return END_DOCUMENT;
     }
+    int ev = xmlBlock.getEventType(currentEvent);
+    currentElement = ev == TEXT ? null : xmlBlock.getElement(currentEvent);
+    return ev;
   }
 
-  /**
-   * Navigate to the next node after a node and all of his
-   * children have been explored.
-   *
-   * If the node has unexplored siblings navigate to the
-   * next sibling. Otherwise return to its parent.
-   *
-   * @param node the node which was just explored.
-   * @return {@link XmlPullParserException#START_TAG} if the given
-   *         node has siblings, {@link XmlPullParserException#END_TAG}
-   *         if the node has no unexplored siblings or
-   *         {@link XmlPullParserException#END_DOCUMENT} if the explored
-   *         was the root document.
-   * @throws XmlPullParserException if the parser fails to
-   *                                parse the next node.
-   */
-  int navigateToNextNode(Node node)
-      throws XmlPullParserException {
-    Node nextNode = node.getNextSibling();
-    if (nextNode != null) {
-      // Move to the next siblings
-      return processNextNodeType(nextNode);
-    } else {
-      // Goes back to the parent
-      if (document.getDocumentElement().equals(node)) {
-        currentNode = null;
-        return END_DOCUMENT;
-      }
-      currentNode = node.getParentNode();
-      return END_TAG;
-    }
+  /** Returns true if the parser is positioned on a start tag, end tag or text. */
+  private boolean hasCurrentNode() {
+    return currentEvent >= 0 && currentEvent < xmlBlock.getEventCount();
   }
 
   @Override
@@ -4,8 +4,12 @@ import androidx.annotation.NonNull;
 import com.google.common.annotations.Beta;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.AbstractFuture;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Queue;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -14,9 +18,11 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import org.robolectric.annotation.LooperMode;
 import org.robolectric.util.Logger;
+import org.robolectric.util.VirtualThreads;
 
 /**
  * Executor service that queues any posted tasks.
@@ -54,6 +60,10 @@ public class PausedExecutorService extends AbstractExecutorService {
     }
   }
 
+  // all live instances created during the current test, so that Quiescence can drain them
+  private static final Set<PausedExecutorService> instances =
+      Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
   private final ExecutorService realService;
   private final Queue<Runnable> deferredTasks = new ConcurrentLinkedQueue<>();
   private Thread executorThread;
@@ -76,12 +86,36 @@ public class PausedExecutorService extends AbstractExecutorService {
   }
 
   public PausedExecutorService() {
+    ThreadFactory threadFactory =
+        VirtualThreads.threadFactory(PausedExecutorService.class.getSimpleName(), Thread::new);
     this.realService =
         Executors.newSingleThreadExecutor(
             r -> {
-              executorThread = new Thread(r);
+              executorThread = threadFactory.newThread(r);
               return executorThread;
             });
+    instances.add(this);
+  }
+
+  /** Returns the instances which have not been shut down. */
+  static List<PausedExecutorService> getActiveInstances() {
+    List<PausedExecutorService> active = new ArrayList<>();
+    synchronized (instances) {
+      for (PausedExecutorService instance : instances) {
+        if (!instance.isShutdown()) {
+          active.add(instance);
+        }
+      }
+    }
+    return active;
+  }
+
+  /**
+   * Forgets the instances created so far, so that {@link Quiescence} doesn't run tasks left on
+   * executors that earlier tests never shut down. Called between tests.
+   */
+  public static void resetInstances() {
+    instances.clear();
   }
 
   /**
@@ -168,6 +202,17 @@ public class PausedExecutorService extends AbstractExecutorService {
     }
   }
 
+  @Override
+  public String toString() {
+    return getClass().getSimpleName()
+        + "@"
+        + Integer.toHexString(System.identityHashCode(this))
+        + "["
+        + (isShutdown() ? "shut down, " : "")
+        + deferredTasks.size()
+        + " queued tasks]";
+  }
+
   @Override
   protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
     return newTaskFor(Executors.callable(runnable, value));
@@ -0,0 +1,132 @@
+package org.robolectric.android.util.concurrent;
+
+import static org.robolectric.shadows.ShadowLooper.assertLooperMode;
+
+import android.os.Looper;
+import com.google.common.annotations.Beta;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Idles all loopers and {@link PausedExecutorService}s until none of them has any work left to do.
+ *
+ * <p>Tasks run by one queue commonly post to another, e.g. a background {@link
+ * android.os.HandlerThread} posting its result to the main looper, which in turn submits more work
+ * to an executor. {@link #idleUntilQuiescent()} repeatedly drains every queue, executors first,
+ * then background loopers and finally the main looper, until a full pass finds all of them idle.
+ *
+ * <p>Only work that is due at the current time is executed; the clock is not advanced. Tasks posted
+ * to real thread pools (e.g. {@link android.os.AsyncTask#THREAD_POOL_EXECUTOR}) are not tracked,
+ * but results they post to loopers are.
+ *
+ * <p>Must be called from the main thread in {@link LooperMode.Mode#PAUSED}.
+ *
+ * <p>NOTE: Beta API, subject to change.
+ */
+@Beta
+public final class Quiescence {
+
+  private static final Duration DEFAULT_BUDGET = Duration.ofSeconds(10);
+
+  private Quiescence() {}
+
+  /** Like {@link #idleUntilQuiescent(Duration)}, with a budget of ten seconds. */
+  public static void idleUntilQuiescent() {
+    idleUntilQuiescent(DEFAULT_BUDGET);
+  }
+
+  /**
+   * Drains all loopers and paused executors until they are all idle.
+   *
+   * @param budget the wall-clock time to spend before giving up
+   * @throws IllegalStateException if the system is still busy once the budget is used up. The
+   *     message lists the queues that had work in the most passes, to help find the task that keeps
+   *     re-posting itself.
+   */
+  public static void idleUntilQuiescent(Duration budget) {
+    assertLooperMode(LooperMode.Mode.PAUSED);
+    if (Looper.myLooper() != Looper.getMainLooper()) {
+      throw new IllegalStateException("idleUntilQuiescent must be called from the main thread");
+    }
+
+    long deadline = System.nanoTime() + budget.toNanos();
+    Map<String, Integer> busyPasses = new LinkedHashMap<>();
+    int passes = 0;
+    while (true) {
+      boolean didWork = false;
+      passes++;
+
+      for (PausedExecutorService executor : PausedExecutorService.getActiveInstances()) {
+        if (executor.runAll() > 0) {
+          didWork = true;
+          busyPasses.merge(executor.toString(), 1, Integer::sum);
+        }
+      }
+
+      for (Looper looper : backgroundLoopers()) {
+        ShadowLooper shadowLooper = Shadow.extract(looper);
+        if (!shadowLooper.isIdle()) {
+          shadowLooper.idle();
+          didWork = true;
+          busyPasses.merge(describe(looper), 1, Integer::sum);
+        }
+      }
+
+      ShadowLooper shadowMainLooper = ShadowLooper.shadowMainLooper();
+      if (!shadowMainLooper.isIdle()) {
+        shadowMainLooper.idle();
+        didWork = true;
+        busyPasses.merge(describe(Looper.getMainLooper()), 1, Integer::sum);
+      }
+
+      if (!didWork) {
+        return;
+      }
+      if (System.nanoTime() - deadline > 0) {
+        throw new IllegalStateException(
+            "Not quiescent after "
+                + budget.toMillis()
+                + "ms ("
+                + passes
+                + " passes). Passes with pending work, by queue: "
+                + sortByCount(busyPasses));
+      }
+    }
+  }
+
+  private static List<Looper> backgroundLoopers() {
+    List<Looper> loopers = new ArrayList<>();
+    for (Looper looper : ShadowLooper.getAllLoopers()) {
+      // messages left on the queue of a quit looper will never run
+      if (looper != Looper.getMainLooper() && looper.getThread().isAlive()) {
+        loopers.add(looper);
+      }
+    }
+    return loopers;
+  }
+
+  private static String describe(Looper looper) {
+    return looper == Looper.getMainLooper()
+        ? "main looper"
+        : "looper of thread '" + looper.getThread().getName() + "'";
+  }
+
+  private static String sortByCount(Map<String, Integer> busyPasses) {
+    List<Map.Entry<String, Integer>> entries = new ArrayList<>(busyPasses.entrySet());
+    entries.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+    StringBuilder buf = new StringBuilder();
+    for (Map.Entry<String, Integer> entry : entries) {
+      if (buf.length() > 0) {
+        buf.append(", ");
+      }
+      buf.append(entry.getKey()).append('=').append(entry.getValue());
+    }
+    return buf.toString();
+  }
+}
@@ -0,0 +1,307 @@
+package org.robolectric.shadows;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.robolectric.shadow.api.Shadow;
+
+/**
+ * Compares the pixels of bitmaps, e.g. rendered ones against golden images in screenshot tests.
+ *
+ * <p>Pixels are compared as non-premultiplied ARGB values, regardless of the bitmaps' configs.
+ * Two pixels match if none of their channels differ by more than the channel tolerance, and two
+ * bitmaps match if they have the same size and at most the allowed number of pixels don't match.
+ *
+ * <pre>
+ *   BitmapComparator comparator = new BitmapComparator.Builder().setChannelTolerance(2).build();
+ *   BitmapComparator.Result result = comparator.compare(rendered, golden);
+ *   assertWithMessage(result.toString()).that(result.matches()).isTrue();
+ * </pre>
+ */
+public final class BitmapComparator {
+  /** Images at least this large have their rows compared in parallel. */
+  private static final int PARALLEL_COMPARISON_MIN_PIXELS = 1 << 20;
+  private static final int ROWS_PER_TASK = 64;
+  /** The number of blocks per side of the grid the perceptual hash averages the image on. */
+  private static final int HASH_GRID_SIZE = 8;
+  /** The number of pixels sampled per side of a block of the perceptual hash grid. */
+  private static final int HASH_SAMPLES_PER_BLOCK = 4;
+  private static final int DIFF_COLOR = Color.RED;
+
+  private final int channelTolerance;
+  private final int maxDifferentPixels;
+  private final int maxHashDistance;
+  private final boolean createDiffBitmap;
+
+  private BitmapComparator(Builder builder) {
+    this.channelTolerance = builder.channelTolerance;
+    this.maxDifferentPixels = builder.maxDifferentPixels;
+    this.maxHashDistance = builder.maxHashDistance;
+    this.createDiffBitmap = builder.createDiffBitmap;
+  }
+
+  /** Compares {@code actual} against {@code expected}. */
+  public Result compare(Bitmap actual, Bitmap expected) {
+    int width = expected.getWidth();
+    int height = expected.getHeight();
+    if (actual.getWidth() != width || actual.getHeight() != height) {
+      return new Result(false, -1, false, null);
+    }
+    if (width == 0 || height == 0) {
+      return new Result(true, 0, false, null);
+    }
+    int[] actualPixels = getPixels(actual);
+    int[] expectedPixels = getPixels(expected);
+    if (actualPixels == expectedPixels) {
+      return new Result(true, 0, false, createDiffBitmap ? createDiffBitmap(width, height) : null);
+    }
+
+    // The diff needs every pixel, so there's no shortcut when one is asked for.
+    if (!createDiffBitmap
+        && maxHashDistance >= 0
+        && hashDistance(
+                perceptualHash(actualPixels, width, height),
+                perceptualHash(expectedPixels, width, height))
+            > maxHashDistance) {
+      return new Result(false, 0, true, null);
+    }
+
+    int[] diffPixels = createDiffBitmap ? new int[width * height] : null;
+    AtomicInteger differentPixelCount = new AtomicInteger();
+    if ((long) width * height >= PARALLEL_COMPARISON_MIN_PIXELS) {
+      IntStream.range(0, (height + ROWS_PER_TASK - 1) / ROWS_PER_TASK)
+          .parallel()
+          .forEach(
+              task ->
+                  compareRows(
+                      actualPixels,
+                      expectedPixels,
+                      diffPixels,
+                      width,
+                      task * ROWS_PER_TASK,
+                      Math.min(height, (task + 1) * ROWS_PER_TASK),
+                      differentPixelCount));
+    } else {
+      compareRows(
+          actualPixels, expectedPixels, diffPixels, width, 0, height, differentPixelCount);
+    }
+    int differentPixels = differentPixelCount.get();
+
+    Bitmap diffBitmap = null;
+    if (diffPixels != null) {
+      diffBitmap = createDiffBitmap(width, height);
+      diffBitmap.setPixels(diffPixels, 0, width, 0, 0, width, height);
+    }
+    return new Result(differentPixels <= maxDifferentPixels, differentPixels, false, diffBitmap);
+  }
+
+  /**
+   * Compares rows {@code [startRow, endRow)}, adding the pixels that differ to {@code
+   * differentPixelCount}. Stops once too many pixels differ, unless a diff is being made.
+   */
+  private void compareRows(
+      int[] actualPixels,
+      int[] expectedPixels,
+      int[] diffPixels,
+      int width,
+      int startRow,
+      int endRow,
+      AtomicInteger differentPixelCount) {
+    for (int row = startRow; row < endRow; row++) {
+      if (diffPixels == null && differentPixelCount.get() > maxDifferentPixels) {
+        return;
+      }
+      int differentPixels = 0;
+      for (int i = row * width, end = i + width; i < end; i++) {
+        int actualPixel = actualPixels[i];
+        int expectedPixel = expectedPixels[i];
+        boolean different =
+            actualPixel != expectedPixel && !withinTolerance(actualPixel, expectedPixel);
+        if (different) {
+          differentPixels++;
+        }
+        if (diffPixels != null) {
+          diffPixels[i] = different ? DIFF_COLOR : fade(expectedPixel);
+        }
+      }
+      if (differentPixels > 0) {
+        differentPixelCount.addAndGet(differentPixels);
+      }
+    }
+  }
+
+  private boolean withinTolerance(int actualPixel, int expectedPixel) {
+    for (int shift = 0; shift < 32; shift += 8) {
+      int actualChannel = (actualPixel >>> shift) & 0xff;
+      int expectedChannel = (expectedPixel >>> shift) & 0xff;
+      if (Math.abs(actualChannel - expectedChannel) > channelTolerance) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns {@code color} at a quarter of its alpha, as context around the differences. */
+  private static int fade(int color) {
+    return (color & 0x00ffffff) | (((color >>> 26) & 0x3f) << 24);
+  }
+
+  private static Bitmap createDiffBitmap(int width, int height) {
+    return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+  }
+
+  private static int[] getPixels(Bitmap bitmap) {
+    ShadowBitmap shadowBitmap = Shadow.extract(bitmap);
+    int[] pixels = shadowBitmap.getArgbPixelsForReading();
+    return pixels != null ? pixels : new int[bitmap.getWidth() * bitmap.getHeight()];
+  }
+
+  /**
+   * Returns an average hash of the image: one bit per block of an 8x8 grid, set if the block is
+   * brighter than the whole image. Only a few pixels of each block are sampled.
+   */
+  static long perceptualHash(int[] pixels, int width, int height) {
+    int[] blockLuminances = new int[HASH_GRID_SIZE * HASH_GRID_SIZE];
+    long totalLuminance = 0;
+    int samplesPerSide = HASH_GRID_SIZE * HASH_SAMPLES_PER_BLOCK;
+    for (int sampleY = 0; sampleY < samplesPerSide; sampleY++) {
+      int y = (int) ((2L * sampleY + 1) * height / (2 * samplesPerSide));
+      for (int sampleX = 0; sampleX < samplesPerSide; sampleX++) {
+        int x = (int) ((2L * sampleX + 1) * width / (2 * samplesPerSide));
+        int luminance = luminance(pixels[y * width + x]);
+        int block =
+            (sampleY / HASH_SAMPLES_PER_BLOCK) * HASH_GRID_SIZE
+                + sampleX / HASH_SAMPLES_PER_BLOCK;
+        blockLuminances[block] += luminance;
+        totalLuminance += luminance;
+      }
+    }
+    long averageBlockLuminance = totalLuminance / blockLuminances.length;
+    long hash = 0;
+    for (int block = 0; block < blockLuminances.length; block++) {
+      if (blockLuminances[block] > averageBlockLuminance) {
+        hash |= 1L << block;
+      }
+    }
+    return hash;
+  }
+
+  /** Returns the number of bits two perceptual hashes differ in. */
+  static int hashDistance(long hash, long otherHash) {
+    return Long.bitCount(hash ^ otherHash);
+  }
+
+  /** Returns the luminance of {@code color} premultiplied by its alpha, from 0 to 255 * 255. */
+  private static int luminance(int color) {
+    int alpha = color >>> 24;
+    int red = (color >> 16) & 0xff;
+    int green = (color >> 8) & 0xff;
+    int blue = color & 0xff;
+    return alpha * ((red * 299 + green * 587 + blue * 114) / 1000);
+  }
+
+  /** Builds {@link BitmapComparator}s. By default, bitmaps must match exactly. */
+  public static class Builder {
+    private int channelTolerance;
+    private int maxDifferentPixels;
+    private int maxHashDistance = -1;
+    private boolean createDiffBitmap;
+
+    /** Sets by how much each of the ARGB channels of matching pixels may differ. */
+    public Builder setChannelTolerance(int channelTolerance) {
+      if (channelTolerance < 0 || channelTolerance > 255) {
+        throw new IllegalArgumentException("channelTolerance must be in [0, 255]");
+      }
+      this.channelTolerance = channelTolerance;
+      return this;
+    }
+
+    /** Sets how many pixels may not match for the bitmaps to still match. */
+    public Builder setMaxDifferentPixels(int maxDifferentPixels) {
+      if (maxDifferentPixels < 0) {
+        throw new IllegalArgumentException("maxDifferentPixels must be >= 0");
+      }
+      this.maxDifferentPixels = maxDifferentPixels;
+      return this;
+    }
+
+    /**
+     * Rejects bitmaps whose perceptual hashes differ in more than {@code maxHashDistance} of
+     * their 64 bits before comparing their pixels, which is cheap but approximate: it can reject
+     * bitmaps whose pixels would match. Disabled by default, and when creating a diff bitmap.
+     */
+    public Builder setMaxHashDistance(int maxHashDistance) {
+      if (maxHashDistance < 0 || maxHashDistance > 64) {
+        throw new IllegalArgumentException("maxHashDistance must be in [0, 64]");
+      }
+      this.maxHashDistance = maxHashDistance;
+      return this;
+    }
+
+    /**
+     * Sets whether to create a bitmap showing the pixels that don't match in red, over a faded
+     * copy of the expected bitmap. This compares every pixel, even once the bitmaps don't match.
+     */
+    public Builder setCreateDiffBitmap(boolean createDiffBitmap) {
+      this.createDiffBitmap = createDiffBitmap;
+      return this;
+    }
+
+    public BitmapComparator build() {
+      return new BitmapComparator(this);
+    }
+  }
+
+  /** The result of comparing two bitmaps. */
+  public static final class Result {
+    private final boolean matches;
+    private final int differentPixelCount;
+    private final boolean rejectedByHash;
+    private final Bitmap diffBitmap;
+
+    private Result(
+        boolean matches, int differentPixelCount, boolean rejectedByHash, Bitmap diffBitmap) {
+      this.matches = matches;
+      this.differentPixelCount = differentPixelCount;
+      this.rejectedByHash = rejectedByHash;
+      this.diffBitmap = diffBitmap;
+    }
+
+    public boolean matches() {
+      return matches;
+    }
+
+    /**
+     * Returns the number of pixels that don't match, or -1 if the bitmaps have different sizes.
+     * Unless a diff bitmap was created, the comparison stops once the bitmaps don't match, so
+     * this is only a lower bound then, and 0 if they were rejected by their perceptual hashes.
+     */
+    public int getDifferentPixelCount() {
+      return differentPixelCount;
+    }
+
+    /** Returns whether the bitmaps were rejected by their perceptual hashes alone. */
+    public boolean isRejectedByHash() {
+      return rejectedByHash;
+    }
+
+    /** Returns the diff bitmap, if one was asked for and the bitmaps have the same size. */
+    public Bitmap getDiffBitmap() {
+      return diffBitmap;
+    }
+
+    @Override
+    public String toString() {
+      if (differentPixelCount < 0) {
+        return "bitmaps have different sizes";
+      } else if (rejectedByHash) {
+        return "bitmaps have different perceptual hashes";
+      }
+      return (matches ? "bitmaps match" : "bitmaps don't match")
+          + " with "
+          + differentPixelCount
+          + " different pixels";
+    }
+  }
+}
@@ -0,0 +1,263 @@
+package org.robolectric.shadows;
+
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import org.robolectric.shadow.api.Shadow;
+
+/**
+ * Draws Canvas operations into the pixels of the target bitmap through Java2D, keeping track of
+ * the canvas matrix and clip.
+ *
+ * @see ShadowCanvas#setRasterizationEnabled(boolean)
+ */
+final class CanvasRasterizer {
+  private final Deque<State> savedStates = new ArrayDeque<>();
+  private AffineTransform matrix = new AffineTransform();
+  /** The clip in bitmap coordinates, or {@code null} if nothing is clipped out. */
+  private Area clip;
+
+  // Kept for as long as the target's pixels don't change, so consecutive draws share it.
+  private BufferedImage image;
+  private Graphics2D graphics;
+
+  /** Saves the matrix and clip, and returns the save count from before. */
+  int save() {
+    savedStates.push(new State(matrix, clip));
+    return savedStates.size();
+  }
+
+  /** Returns the number of saved states plus one, as Android counts the initial state. */
+  int getSaveCount() {
+    return savedStates.size() + 1;
+  }
+
+  void restore() {
+    if (savedStates.isEmpty()) {
+      throw new IllegalStateException("Underflow in restore - more restores than saves");
+    }
+    State state = savedStates.pop();
+    matrix = state.matrix;
+    clip = state.clip;
+  }
+
+  void restoreToCount(int saveCount) {
+    while (getSaveCount() > saveCount) {
+      restore();
+    }
+  }
+
+  void concat(AffineTransform transform) {
+    matrix = new AffineTransform(matrix);
+    matrix.concatenate(transform);
+  }
+
+  /** Intersects the clip with {@code shape}, given in canvas coordinates. */
+  boolean clip(Shape shape) {
+    Area area = new Area(matrix.createTransformedShape(shape));
+    if (clip != null) {
+      area.intersect(clip);
+    }
+    clip = area;
+    return !clip.isEmpty();
+  }
+
+  /** Draws {@code shape} as {@code paint}'s style says. */
+  void drawShape(ShadowBitmap target, Shape shape, Paint paint) {
+    Paint.Style style = paint.getStyle() == null ? Paint.Style.FILL : paint.getStyle();
+    if (style != Paint.Style.STROKE) {
+      fillShape(target, shape, paint);
+    }
+    if (style != Paint.Style.FILL) {
+      strokeShape(target, shape, paint);
+    }
+  }
+
+  void fillShape(ShadowBitmap target, Shape shape, Paint paint) {
+    Graphics2D graphics = prepareGraphics(target, paint);
+    if (graphics != null) {
+      graphics.fill(shape);
+    }
+  }
+
+  void strokeShape(ShadowBitmap target, Shape shape, Paint paint) {
+    Graphics2D graphics = prepareGraphics(target, paint);
+    if (graphics != null) {
+      graphics.setStroke(
+          new BasicStroke(
+              paint.getStrokeWidth(), toJavaCap(paint.getStrokeCap()),
+              toJavaJoin(paint.getStrokeJoin()), 4));
+      graphics.draw(shape);
+    }
+  }
+
+  void drawPath(ShadowBitmap target, Path path, Paint paint) {
+    ShadowPath shadowPath = Shadow.extract(path);
+    Shape shape = shadowPath.getJavaShape();
+    Path.FillType fillType = path.getFillType();
+    if (fillType == Path.FillType.INVERSE_WINDING || fillType == Path.FillType.INVERSE_EVEN_ODD) {
+      Area inverse = new Area(getCanvasBounds(target));
+      inverse.subtract(new Area(shape));
+      shape = inverse;
+    }
+    drawShape(target, shape, paint);
+  }
+
+  /** Fills the clip with {@code color}. */
+  void drawColor(ShadowBitmap target, int color) {
+    Graphics2D graphics = prepareGraphics(target, null);
+    if (graphics != null) {
+      graphics.setColor(new Color(color, true));
+      graphics.setTransform(new AffineTransform());
+      graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+    }
+  }
+
+  void drawText(ShadowBitmap target, String text, float x, float y, Paint paint) {
+    Graphics2D graphics = prepareGraphics(target, paint);
+    if (graphics == null || paint.getTextSize() <= 0) {
+      return;
+    }
+    graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 1).deriveFont(paint.getTextSize()));
+    if (paint.getTextAlign() == Paint.Align.CENTER) {
+      x -= graphics.getFontMetrics().stringWidth(text) / 2f;
+    } else if (paint.getTextAlign() == Paint.Align.RIGHT) {
+      x -= graphics.getFontMetrics().stringWidth(text);
+    }
+    graphics.drawString(text, x, y);
+  }
+
+  /**
+   * Draws the {@code src} part of {@code source}, or all of it, scaled into {@code dst}, given in
+   * canvas coordinates.
+   */
+  void drawBitmap(ShadowBitmap target, ShadowBitmap source, Rect src, RectF dst, Paint paint) {
+    BufferedImage sourceImage = source.getBufferedImageForReading();
+    if (sourceImage == null) {
+      return;
+    }
+    Rect region = new Rect(0, 0, sourceImage.getWidth(), sourceImage.getHeight());
+    if (src != null && !region.intersect(src)) {
+      return;
+    }
+    float scaleX = dst.width() / (src == null ? region.width() : src.width());
+    float scaleY = dst.height() / (src == null ? region.height() : src.height());
+    AffineTransform transform = AffineTransform.getTranslateInstance(dst.left, dst.top);
+    transform.scale(scaleX, scaleY);
+    if (src != null) {
+      transform.translate(region.left - src.left, region.top - src.top);
+    }
+    drawImage(
+        target,
+        sourceImage.getSubimage(region.left, region.top, region.width(), region.height()),
+        transform,
+        paint);
+  }
+
+  /** Draws {@code source} transformed by {@code transform}, given in canvas coordinates. */
+  void drawBitmap(
+      ShadowBitmap target, ShadowBitmap source, AffineTransform transform, Paint paint) {
+    BufferedImage sourceImage = source.getBufferedImageForReading();
+    if (sourceImage != null) {
+      drawImage(target, sourceImage, transform, paint);
+    }
+  }
+
+  private void drawImage(
+      ShadowBitmap target, BufferedImage source, AffineTransform transform, Paint paint) {
+    Graphics2D graphics = prepareGraphics(target, paint);
+    if (graphics == null) {
+      return;
+    }
+    boolean filter = paint != null && (paint.getFlags() & Paint.FILTER_BITMAP_FLAG) != 0;
+    graphics.setRenderingHint(
+        RenderingHints.KEY_INTERPOLATION,
+        filter
+            ? RenderingHints.VALUE_INTERPOLATION_BILINEAR
+            : RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+    graphics.drawImage(source, transform, null);
+  }
+
+  /**
+   * Returns a Graphics2D drawing into the pixels of {@code target} with the current matrix, clip
+   * and {@code paint}, or {@code null} if the target has no pixels.
+   */
+  private Graphics2D prepareGraphics(ShadowBitmap target, Paint paint) {
+    // Called before every draw, since the pixels are copied if they've been shared since.
+    BufferedImage targetImage = target.getBufferedImage();
+    if (targetImage == null) {
+      return null;
+    }
+    if (targetImage != image) {
+      if (graphics != null) {
+        graphics.dispose();
+      }
+      image = targetImage;
+      graphics = image.createGraphics();
+    }
+    graphics.setTransform(new AffineTransform());
+    graphics.setClip(clip);
+    graphics.setTransform(matrix);
+    if (paint != null) {
+      graphics.setColor(new Color(paint.getColor(), true));
+      graphics.setRenderingHint(
+          RenderingHints.KEY_ANTIALIASING,
+          paint.isAntiAlias()
+              ? RenderingHints.VALUE_ANTIALIAS_ON
+              : RenderingHints.VALUE_ANTIALIAS_OFF);
+    }
+    return graphics;
+  }
+
+  /** Returns the bounds of {@code target} in canvas coordinates. */
+  private Shape getCanvasBounds(ShadowBitmap target) {
+    Rectangle2D bounds = new Rectangle2D.Float(0, 0, target.getWidth(), target.getHeight());
+    try {
+      return matrix.createInverse().createTransformedShape(bounds);
+    } catch (NoninvertibleTransformException e) {
+      return new Rectangle2D.Float();
+    }
+  }
+
+  private static int toJavaCap(Paint.Cap cap) {
+    if (cap == Paint.Cap.ROUND) {
+      return BasicStroke.CAP_ROUND;
+    } else if (cap == Paint.Cap.SQUARE) {
+      return BasicStroke.CAP_SQUARE;
+    }
+    return BasicStroke.CAP_BUTT;
+  }
+
+  private static int toJavaJoin(Paint.Join join) {
+    if (join == Paint.Join.ROUND) {
+      return BasicStroke.JOIN_ROUND;
+    } else if (join == Paint.Join.BEVEL) {
+      return BasicStroke.JOIN_BEVEL;
+    }
+    return BasicStroke.JOIN_MITER;
+  }
+
+  private static final class State {
+    private final AffineTransform matrix;
+    private final Area clip;
+
+    State(AffineTransform matrix, Area clip) {
+      this.matrix = matrix;
+      this.clip = clip;
+    }
+  }
+}
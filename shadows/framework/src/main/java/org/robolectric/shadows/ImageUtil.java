@@ -97,7 +97,7 @@ public class ImageUtil {
     if (srcWidth <= 0 || srcHeight <= 0 || dstWidth <= 0 || dstHeight <= 0) {
       return false;
     }
-    BufferedImage before = ((ShadowBitmap) Shadow.extract(src)).getBufferedImage();
+    BufferedImage before = ((ShadowBitmap) Shadow.extract(src)).getBufferedImageForReading();
     if (before == null || before.getColorModel() == null) {
       return false;
     }
@@ -136,7 +136,7 @@ public class ImageUtil {
         int width = realBitmap.getWidth();
         int height = realBitmap.getHeight();
         boolean needAlphaChannel = needAlphaChannel(format);
-        BufferedImage bufferedImage = Shadows.shadowOf(realBitmap).getBufferedImage();
+        BufferedImage bufferedImage = Shadows.shadowOf(realBitmap).getBufferedImageForReading();
         if (bufferedImage == null) {
           bufferedImage =
               new BufferedImage(
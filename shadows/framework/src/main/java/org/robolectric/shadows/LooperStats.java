@@ -0,0 +1,162 @@
+package org.robolectric.shadows;
+
+import android.os.Handler;
+import android.os.Message;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.robolectric.annotation.LooperMode;
+
+/**
+ * Statistics about the messages dispatched by a {@link LooperMode.Mode.PAUSED} looper.
+ *
+ * <p>Statistics are only collected while instrumentation is enabled, see {@link
+ * ShadowPausedLooper#setInstrumentationEnabled(boolean)}. They cover messages executed via {@link
+ * ShadowLooper#idle()} and friends, which includes everything run on the main looper; messages
+ * processed by the real loop of an unpaused background looper are not recorded.
+ */
+public final class LooperStats {
+
+  /** Dispatch count and execution time of one kind of message. */
+  public static final class DispatchStats {
+    private int count;
+    private long totalNanos;
+    private long maxNanos;
+
+    private DispatchStats() {}
+
+    private DispatchStats(DispatchStats other) {
+      this.count = other.count;
+      this.totalNanos = other.totalNanos;
+      this.maxNanos = other.maxNanos;
+    }
+
+    private void record(long nanos) {
+      count++;
+      totalNanos += nanos;
+      maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    public int getCount() {
+      return count;
+    }
+
+    public Duration getTotalTime() {
+      return Duration.ofNanos(totalNanos);
+    }
+
+    public Duration getMaxTime() {
+      return Duration.ofNanos(maxNanos);
+    }
+
+    @Override
+    public String toString() {
+      return count
+          + " dispatches, "
+          + totalNanos / 1000
+          + "us total, "
+          + maxNanos / 1000
+          + "us max";
+    }
+  }
+
+  private final Map<String, DispatchStats> byHandler = new HashMap<>();
+  private final Map<String, DispatchStats> byCallback = new HashMap<>();
+  private int maxQueueDepth;
+  private String longestMessage;
+  private long longestMessageNanos;
+
+  LooperStats() {}
+
+  /** Returns the key used for a message in {@link #getDispatchStatsByCallback()}. */
+  static String callbackKey(Message msg) {
+    Runnable callback = msg.getCallback();
+    return callback != null
+        ? callback.getClass().getName()
+        : handlerKey(msg.getTarget()) + "#what=" + msg.what;
+  }
+
+  static String handlerKey(Handler handler) {
+    return handler.getClass().getName();
+  }
+
+  synchronized void recordDispatch(
+      String handlerKey, String callbackKey, int queueDepth, long nanos) {
+    byHandler.computeIfAbsent(handlerKey, k -> new DispatchStats()).record(nanos);
+    byCallback.computeIfAbsent(callbackKey, k -> new DispatchStats()).record(nanos);
+    maxQueueDepth = Math.max(maxQueueDepth, queueDepth);
+    if (longestMessage == null || nanos > longestMessageNanos) {
+      longestMessage = callbackKey;
+      longestMessageNanos = nanos;
+    }
+  }
+
+  synchronized void reset() {
+    byHandler.clear();
+    byCallback.clear();
+    maxQueueDepth = 0;
+    longestMessage = null;
+    longestMessageNanos = 0;
+  }
+
+  /** Returns the stats of dispatched messages, keyed by the class name of their target Handler. */
+  public synchronized Map<String, DispatchStats> getDispatchStatsByHandler() {
+    return copy(byHandler);
+  }
+
+  /**
+   * Returns the stats of dispatched messages, keyed by the class name of their callback Runnable,
+   * or by {@code <handler class name>#what=<what>} for messages without a callback.
+   */
+  public synchronized Map<String, DispatchStats> getDispatchStatsByCallback() {
+    return copy(byCallback);
+  }
+
+  /** Returns the highest number of messages seen in the queue when a message was dispatched. */
+  public synchronized int getMaxQueueDepth() {
+    return maxQueueDepth;
+  }
+
+  /** Returns the callback key of the message that took the longest to execute, if any. */
+  @Nullable
+  public synchronized String getLongestMessage() {
+    return longestMessage;
+  }
+
+  public synchronized Duration getLongestMessageTime() {
+    return Duration.ofNanos(longestMessageNanos);
+  }
+
+  /** Returns a summary of the callbacks which took the most time. */
+  @Override
+  public synchronized String toString() {
+    List<Map.Entry<String, DispatchStats>> entries = new ArrayList<>(byCallback.entrySet());
+    entries.sort((a, b) -> Long.compare(b.getValue().totalNanos, a.getValue().totalNanos));
+    StringBuilder buf = new StringBuilder();
+    buf.append("max queue depth ").append(maxQueueDepth);
+    if (longestMessage != null) {
+      buf.append(", longest message ")
+          .append(longestMessage)
+          .append(" (")
+          .append(longestMessageNanos / 1000)
+          .append("us)");
+    }
+    int shown = Math.min(10, entries.size());
+    for (Map.Entry<String, DispatchStats> entry : entries.subList(0, shown)) {
+      buf.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue());
+    }
+    return buf.toString();
+  }
+
+  private static Map<String, DispatchStats> copy(Map<String, DispatchStats> map) {
+    Map<String, DispatchStats> copy = new HashMap<>();
+    for (Map.Entry<String, DispatchStats> entry : map.entrySet()) {
+      copy.put(entry.getKey(), new DispatchStats(entry.getValue()));
+    }
+    return Collections.unmodifiableMap(copy);
+  }
+}
@@ -15,9 +15,10 @@ import android.graphics.RectF;
 import android.os.Build;
 import android.os.Parcel;
 import android.util.DisplayMetrics;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
-import java.awt.image.ColorModel;
 import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.awt.image.WritableRaster;
 import java.io.FileDescriptor;
 import java.io.InputStream;
@@ -25,12 +26,17 @@ import java.io.OutputStream;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Supplier;
 import org.robolectric.Shadows;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
 import org.robolectric.annotation.RealObject;
 import org.robolectric.shadow.api.Shadow;
+import org.robolectric.util.PerfStatsCollector;
 import org.robolectric.util.ReflectionHelpers;
 
 @SuppressWarnings({"UnusedDeclaration"})
@@ -60,10 +66,20 @@ public class ShadowBitmap {
 
   private int width;
   private int height;
-  private BufferedImage bufferedImage;
+  /**
+   * The pixels of this bitmap, or of the bitmap it was derived from. {@code null} if there is no
+   * pixel data, or if blank pixels are yet to be allocated, see {@link #pixelsPending}.
+   */
+  private PixelBuffer pixelBuffer;
+  /** The part of {@link #pixelBuffer} holding this bitmap's pixels, or {@code null} for all. */
+  private Rectangle pixelRegion;
+  /** Whether blank pixels are allocated on first access. */
+  private boolean pixelsPending;
   private Bitmap.Config config;
   private boolean mutable;
   private String description = "";
+  /** Draw descriptions not yet rendered into {@link #description}, oldest first. */
+  private ArrayDeque<DrawDescription> pendingDrawDescriptions;
   private boolean recycled = false;
   private boolean hasMipMap;
   private boolean isPremultiplied;
@@ -231,7 +247,7 @@ public class ShadowBitmap {
     if (displayMetrics != null) {
       scaledBitmap.setDensity(displayMetrics.densityDpi);
     }
-    shadowBitmap.bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    shadowBitmap.setBlankPixels();
     return scaledBitmap;
   }
 
@@ -292,10 +308,9 @@ public class ShadowBitmap {
     shadowNewBitmap.height = height;
     shadowNewBitmap.setMutable(true);
     newBitmap.setDensity(src.getDensity());
-    if ((matrix == null || matrix.isIdentity()) && shadowSrcBitmap.bufferedImage != null) {
+    if (matrix == null || matrix.isIdentity()) {
       // Only simple cases are supported for setting image data to the new Bitmap.
-      shadowNewBitmap.bufferedImage =
-          shadowSrcBitmap.bufferedImage.getSubimage(x, y, width, height);
+      shadowNewBitmap.sharePixels(shadowSrcBitmap, new Rectangle(x, y, width, height));
     }
     return newBitmap;
   }
@@ -350,7 +365,7 @@ public class ShadowBitmap {
       BufferedImage bufferedImage, int width, int height, Bitmap.Config config) {
     Bitmap newBitmap = Bitmap.createBitmap(width, height, config);
     ShadowBitmap shadowBitmap = Shadow.extract(newBitmap);
-    shadowBitmap.bufferedImage = bufferedImage;
+    shadowBitmap.setBufferedImage(bufferedImage);
     return newBitmap;
   }
 
@@ -384,16 +399,7 @@ public class ShadowBitmap {
       shadowBitmap.config = Config.ARGB_8888;
     }
     if (!ImageUtil.scaledBitmap(src, scaledBitmap, filter)) {
-      shadowBitmap.bufferedImage =
-          new BufferedImage(dstWidth, dstHeight, BufferedImage.TYPE_INT_ARGB);
-      shadowBitmap.setPixelsInternal(
-          new int[shadowBitmap.getHeight() * shadowBitmap.getWidth()],
-          0,
-          0,
-          0,
-          0,
-          shadowBitmap.getWidth(),
-          shadowBitmap.getHeight());
+      shadowBitmap.setBlankPixels();
     }
     return scaledBitmap;
   }
@@ -407,15 +413,25 @@ public class ShadowBitmap {
 
   void setPixelsInternal(
       int[] pixels, int offset, int stride, int x, int y, int width, int height) {
-    if (bufferedImage == null) {
-      bufferedImage = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_ARGB);
+    if (!hasPixels()) {
+      setBlankPixels();
+    }
+    BufferedImage image = getWritableImage();
+    int[] imagePixels = getArgbPixels(image);
+    if (imagePixels != null && isInImage(x, y, width, height)) {
+      for (int row = 0; row < height; row++) {
+        System.arraycopy(
+            pixels, offset + row * stride, imagePixels, (y + row) * this.width + x, width);
+      }
+    } else {
+      image.setRGB(x, y, width, height, pixels, offset, stride);
     }
-    bufferedImage.setRGB(x, y, width, height, pixels, offset, stride);
   }
 
   @Implementation
   protected int getPixel(int x, int y) {
     internalCheckPixelAccess(x, y);
+    BufferedImage bufferedImage = getReadableImage();
     if (bufferedImage != null) {
       // Note that getPixel() returns a non-premultiplied ARGB value; if
       // config is RGB_565, our return value will likely be more precise than
@@ -431,10 +447,10 @@ public class ShadowBitmap {
   protected void setPixel(int x, int y, int color) {
     checkBitmapMutable();
     internalCheckPixelAccess(x, y);
-    if (bufferedImage == null) {
-      bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    if (!hasPixels()) {
+      setBlankPixels();
     }
-    bufferedImage.setRGB(x, y, color);
+    getWritableImage().setRGB(x, y, color);
   }
 
   /**
@@ -445,7 +461,16 @@ public class ShadowBitmap {
   @Implementation
   protected void getPixels(
       int[] pixels, int offset, int stride, int x, int y, int width, int height) {
-    bufferedImage.getRGB(x, y, width, height, pixels, offset, stride);
+    BufferedImage image = getReadableImage();
+    int[] imagePixels = getArgbPixels(image);
+    if (imagePixels != null && isInImage(x, y, width, height)) {
+      for (int row = 0; row < height; row++) {
+        System.arraycopy(
+            imagePixels, (y + row) * this.width + x, pixels, offset + row * stride, width);
+      }
+    } else {
+      image.getRGB(x, y, width, height, pixels, offset, stride);
+    }
   }
 
   @Implementation
@@ -477,12 +502,7 @@ public class ShadowBitmap {
     shadowBitmap.mutable = isMutable;
     shadowBitmap.height = getHeight();
     shadowBitmap.width = getWidth();
-    if (bufferedImage != null) {
-      ColorModel cm = bufferedImage.getColorModel();
-      WritableRaster raster =
-          bufferedImage.copyData(bufferedImage.getRaster().createCompatibleWritableRaster());
-      shadowBitmap.bufferedImage = new BufferedImage(cm, raster, false, null);
-    }
+    shadowBitmap.sharePixels(this, null);
     return newBitmap;
   }
 
@@ -511,17 +531,44 @@ public class ShadowBitmap {
   }
 
   public void appendDescription(String s) {
-    description += s;
+    description = getDescription() + s;
   }
 
   public void setDescription(String s) {
     description = s;
+    pendingDrawDescriptions = null;
   }
 
   public String getDescription() {
+    if (pendingDrawDescriptions != null) {
+      StringBuilder builder = new StringBuilder(description);
+      for (DrawDescription drawDescription : pendingDrawDescriptions) {
+        if (drawDescription.onNewLine && builder.length() != 0) {
+          builder.append('\n');
+        }
+        builder.append(drawDescription.text.get());
+      }
+      description = builder.toString();
+      pendingDrawDescriptions = null;
+    }
     return description;
   }
 
+  /**
+   * Appends the description of a draw operation, which is only rendered once the description is
+   * read. If {@code limit} is positive, only the last {@code limit} unread draw descriptions are
+   * kept.
+   */
+  void appendDrawDescription(boolean onNewLine, Supplier<String> text, int limit) {
+    if (pendingDrawDescriptions == null) {
+      pendingDrawDescriptions = new ArrayDeque<>();
+    }
+    if (limit > 0 && pendingDrawDescriptions.size() >= limit) {
+      pendingDrawDescriptions.removeFirst();
+    }
+    pendingDrawDescriptions.addLast(new DrawDescription(onNewLine, text));
+  }
+
   @Implementation
   protected final boolean hasAlpha() {
     return hasAlpha;
@@ -534,7 +581,7 @@ public class ShadowBitmap {
 
   @Implementation
   protected Bitmap extractAlpha() {
-    WritableRaster raster = bufferedImage.getAlphaRaster();
+    WritableRaster raster = getReadableImage().getAlphaRaster();
     BufferedImage alphaImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
     alphaImage.getAlphaRaster().setRect(raster);
     return createBitmap(alphaImage, getWidth(), getHeight(), Bitmap.Config.ALPHA_8);
@@ -591,8 +638,8 @@ public class ShadowBitmap {
 
   @Implementation
   protected void eraseColor(int color) {
-    if (bufferedImage != null) {
-      int[] pixels = ((DataBufferInt) bufferedImage.getRaster().getDataBuffer()).getData();
+    if (hasPixels()) {
+      int[] pixels = ((DataBufferInt) getWritableImage().getRaster().getDataBuffer()).getData();
       Arrays.fill(pixels, color);
     }
     setDescription(String.format("Bitmap (%d, %d)", width, height));
@@ -630,68 +677,158 @@ public class ShadowBitmap {
     if (isRecycled()) {
       throw new IllegalStateException("Can't call copyPixelsFromBuffer() on a recycled bitmap");
     }
+    checkBufferSupported(dst);
 
-    // See the related comment in #copyPixelsToBuffer(Buffer).
-    if (getBytesPerPixel(config) != INTERNAL_BYTES_PER_PIXEL) {
-      throw new RuntimeException("Not implemented: only Bitmaps with " + INTERNAL_BYTES_PER_PIXEL
-              + " bytes per pixel are supported");
+    if (!hasPixels()) {
+      setBlankPixels();
     }
-    if (!(dst instanceof ByteBuffer) && !(dst instanceof IntBuffer)) {
-      throw new RuntimeException("Not implemented: unsupported Buffer subclass");
-    }
-
-    ByteBuffer byteBuffer = null;
-    IntBuffer intBuffer;
-    if (dst instanceof IntBuffer) {
-      intBuffer = (IntBuffer) dst;
-    } else {
-      byteBuffer = (ByteBuffer) dst;
-      intBuffer = byteBuffer.asIntBuffer();
+    BufferedImage image = getWritableImage();
+    int pixelCount = width * height;
+    int[] pixels = getArgbPixels(image);
+    int[] colors = pixels != null ? pixels : new int[pixelCount];
+    switch (config) {
+      case ARGB_8888:
+        {
+          IntBuffer intBuffer =
+              dst instanceof IntBuffer ? (IntBuffer) dst : ((ByteBuffer) dst).asIntBuffer();
+          checkBufferLargeEnough(intBuffer, pixelCount);
+          intBuffer.get(colors, 0, pixelCount);
+          break;
+        }
+      case RGB_565:
+        {
+          ShortBuffer shortBuffer =
+              dst instanceof ShortBuffer ? (ShortBuffer) dst : ((ByteBuffer) dst).asShortBuffer();
+          checkBufferLargeEnough(shortBuffer, pixelCount);
+          short[] rgb565 = new short[pixelCount];
+          shortBuffer.get(rgb565);
+          for (int i = 0; i < pixelCount; i++) {
+            colors[i] = rgb565ToArgb(rgb565[i]);
+          }
+          break;
+        }
+      default:
+        {
+          ByteBuffer byteBuffer = ((ByteBuffer) dst).duplicate();
+          checkBufferLargeEnough(byteBuffer, pixelCount);
+          byte[] alpha = new byte[pixelCount];
+          byteBuffer.get(alpha);
+          for (int i = 0; i < pixelCount; i++) {
+            colors[i] = alpha[i] << 24;
+          }
+          break;
+        }
     }
-
-    if (intBuffer.remaining() < (width * height)) {
-      throw new RuntimeException("Buffer not large enough for pixels");
+    if (dst instanceof ByteBuffer) {
+      dst.position(dst.position() + pixelCount * getBytesPerPixel(config));
     }
-
-    int[] colors = new int[width * height];
-    intBuffer.get(colors);
-    if (byteBuffer != null) {
-      byteBuffer.position(byteBuffer.position() + intBuffer.position() * INTERNAL_BYTES_PER_PIXEL);
+    if (pixels == null) {
+      image.setRGB(0, 0, width, height, colors, 0, width);
     }
-    bufferedImage.setRGB(0, 0, width, height, colors, 0, width);
   }
 
+  /**
+   * Copies the pixels to the buffer, as ints in the buffer's byte order for ARGB_8888 bitmaps (with
+   * alpha in the most significant byte), shorts in the buffer's byte order for RGB_565 bitmaps, and
+   * alpha bytes for ALPHA_8 bitmaps.
+   */
   @Implementation
   protected void copyPixelsToBuffer(Buffer dst) {
-    // Ensure that the Bitmap uses 4 bytes per pixel, since we always use 4 bytes per pixels
-    // internally. Clients of this API probably expect that the buffer size must be >=
-    // getByteCount(), but if we don't enforce this restriction then for RGB_4444 and other
-    // configs that value would be smaller then the buffer size we actually need.
-    if (getBytesPerPixel(config) != INTERNAL_BYTES_PER_PIXEL) {
-      throw new RuntimeException("Not implemented: only Bitmaps with " + INTERNAL_BYTES_PER_PIXEL
-              + " bytes per pixel are supported");
+    // Clients of this API probably expect that the buffer size must be >= getByteCount(), so only
+    // configs whose pixels are written with exactly getBytesPerPixel() bytes are supported.
+    checkBufferSupported(dst);
+
+    int pixelCount = width * height;
+    BufferedImage image = getReadableImage();
+    int[] colors = getArgbPixels(image);
+    if (colors == null) {
+      colors = new int[pixelCount];
+      if (image != null) {
+        image.getRGB(0, 0, width, height, colors, 0, width);
+      }
     }
+    switch (config) {
+      case ARGB_8888:
+        {
+          IntBuffer intBuffer =
+              dst instanceof IntBuffer ? (IntBuffer) dst : ((ByteBuffer) dst).asIntBuffer();
+          checkBufferLargeEnough(intBuffer, pixelCount);
+          intBuffer.put(colors, 0, pixelCount);
+          break;
+        }
+      case RGB_565:
+        {
+          ShortBuffer shortBuffer =
+              dst instanceof ShortBuffer ? (ShortBuffer) dst : ((ByteBuffer) dst).asShortBuffer();
+          checkBufferLargeEnough(shortBuffer, pixelCount);
+          short[] rgb565 = new short[pixelCount];
+          for (int i = 0; i < pixelCount; i++) {
+            rgb565[i] = argbToRgb565(colors[i]);
+          }
+          shortBuffer.put(rgb565);
+          break;
+        }
+      default:
+        {
+          ByteBuffer byteBuffer = ((ByteBuffer) dst).duplicate();
+          checkBufferLargeEnough(byteBuffer, pixelCount);
+          byte[] alpha = new byte[pixelCount];
+          for (int i = 0; i < pixelCount; i++) {
+            alpha[i] = (byte) (colors[i] >>> 24);
+          }
+          byteBuffer.put(alpha);
+          break;
+        }
+    }
+    if (dst instanceof ByteBuffer) {
+      dst.position(dst.position() + pixelCount * getBytesPerPixel(config));
+    }
+  }
 
-    if (!(dst instanceof ByteBuffer) && !(dst instanceof IntBuffer)) {
+  private void checkBufferSupported(Buffer buffer) {
+    if (config == null) {
+      throw new NullPointerException("Bitmap config was null.");
+    }
+    boolean supported;
+    switch (config) {
+      case ARGB_8888:
+        supported = buffer instanceof ByteBuffer || buffer instanceof IntBuffer;
+        break;
+      case RGB_565:
+        supported = buffer instanceof ByteBuffer || buffer instanceof ShortBuffer;
+        break;
+      case ALPHA_8:
+        supported = buffer instanceof ByteBuffer;
+        break;
+      default:
+        throw new RuntimeException(
+            "Not implemented: only ARGB_8888, RGB_565 and ALPHA_8 Bitmaps are supported");
+    }
+    if (!supported) {
       throw new RuntimeException("Not implemented: unsupported Buffer subclass");
     }
+  }
 
-    int[] pixels = new int[width * height];
-    getPixels(pixels, 0, width, 0, 0, width, height);
-
-    if (dst instanceof ByteBuffer) {
-      ByteBuffer byteBuffer = (ByteBuffer) dst;
-      for (int color : pixels) {
-        byteBuffer.putInt(color);
-      }
-    } else if (dst instanceof IntBuffer) {
-      IntBuffer intBuffer = (IntBuffer) dst;
-      for (int color : pixels) {
-        intBuffer.put(color);
-      }
+  private static void checkBufferLargeEnough(Buffer buffer, int pixelCount) {
+    if (buffer.remaining() < pixelCount) {
+      throw new RuntimeException("Buffer not large enough for pixels");
     }
   }
 
+  private static short argbToRgb565(int color) {
+    return (short) (((color >> 8) & 0xf800) | ((color >> 5) & 0x07e0) | ((color >> 3) & 0x001f));
+  }
+
+  private static int rgb565ToArgb(short color) {
+    int r = (color >> 11) & 0x1f;
+    int g = (color >> 5) & 0x3f;
+    int b = color & 0x1f;
+    return 0xff000000
+        | ((r << 3) | (r >> 2)) << 16
+        | ((g << 2) | (g >> 4)) << 8
+        | ((b << 3) | (b >> 2));
+  }
+
   @Implementation(minSdk = KITKAT)
   protected void reconfigure(int width, int height, Bitmap.Config config) {
     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && this.config == Bitmap.Config.HARDWARE) {
@@ -705,7 +842,7 @@ public class ShadowBitmap {
     this.width = width;
     this.height = height;
     this.config = config;
-    bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    setBlankPixels();
   }
 
   @Implementation(minSdk = KITKAT)
@@ -733,14 +870,11 @@ public class ShadowBitmap {
       return false;
     }
 
-    if (bufferedImage == null && shadowOtherBitmap.bufferedImage != null) {
-      return false;
-    } else if (bufferedImage != null && shadowOtherBitmap.bufferedImage == null) {
+    if (hasPixels() != shadowOtherBitmap.hasPixels()) {
       return false;
-    } else if (bufferedImage != null && shadowOtherBitmap.bufferedImage != null) {
-      int[] pixels = ((DataBufferInt) bufferedImage.getData().getDataBuffer()).getData();
-      int[] otherPixels =
-          ((DataBufferInt) shadowOtherBitmap.bufferedImage.getData().getDataBuffer()).getData();
+    } else if (hasPixels() && !sharesPixelsWith(shadowOtherBitmap)) {
+      int[] pixels = getArgbPixelsForReading();
+      int[] otherPixels = shadowOtherBitmap.getArgbPixelsForReading();
       if (!Arrays.equals(pixels, otherPixels)) {
         return false;
       }
@@ -805,10 +939,10 @@ public class ShadowBitmap {
   }
 
   void drawRect(Rect r, Paint paint) {
-    if (bufferedImage == null) {
+    if (!hasPixels()) {
       return;
     }
-    int[] pixels = ((DataBufferInt) bufferedImage.getRaster().getDataBuffer()).getData();
+    int[] pixels = ((DataBufferInt) getWritableImage().getRaster().getDataBuffer()).getData();
 
     Rect toDraw =
         new Rect(
@@ -825,14 +959,14 @@ public class ShadowBitmap {
 
   void drawBitmap(Bitmap source, int left, int top) {
     ShadowBitmap shadowSource = Shadows.shadowOf(source);
-    if (bufferedImage == null || shadowSource.bufferedImage == null) {
+    if (!hasPixels() || !shadowSource.hasPixels()) {
       // pixel data not available, so there's nothing we can do
       return;
     }
 
-    int[] pixels = ((DataBufferInt) bufferedImage.getRaster().getDataBuffer()).getData();
     int[] sourcePixels =
-        ((DataBufferInt) shadowSource.bufferedImage.getRaster().getDataBuffer()).getData();
+        ((DataBufferInt) shadowSource.getReadableImage().getRaster().getDataBuffer()).getData();
+    int[] pixels = ((DataBufferInt) getWritableImage().getRaster().getDataBuffer()).getData();
 
     // fast path
     if (left == 0 && top == 0 && getWidth() == source.getWidth()) {
@@ -860,10 +994,198 @@ public class ShadowBitmap {
   }
 
   void setBufferedImage(BufferedImage bufferedImage) {
-    this.bufferedImage = bufferedImage;
+    releasePixels();
+    if (bufferedImage != null) {
+      pixelBuffer = new PixelBuffer(bufferedImage);
+    }
   }
 
+  /**
+   * Makes this bitmap use the given pixels, which are owned by someone else: they are copied before
+   * this bitmap first writes to them.
+   */
+  void setSharedBufferedImage(BufferedImage bufferedImage) {
+    setBufferedImage(bufferedImage);
+    // the owner of the image counts as another user
+    pixelBuffer.users++;
+  }
+
+  /** Returns the pixels of this bitmap, which the caller may modify, or {@code null}. */
   BufferedImage getBufferedImage() {
-    return bufferedImage;
+    return getWritableImage();
+  }
+
+  /**
+   * Returns the pixels of this bitmap, or {@code null}. The caller must not modify them, since they
+   * may be shared with other bitmaps.
+   */
+  BufferedImage getBufferedImageForReading() {
+    return getReadableImage();
+  }
+
+  /**
+   * Returns the pixels of this bitmap as non-premultiplied ARGB values, row after row, or {@code
+   * null} if it has none. The caller must not modify them, since they may be this bitmap's own.
+   */
+  int[] getArgbPixelsForReading() {
+    BufferedImage image = getReadableImage();
+    if (image == null) {
+      return null;
+    }
+    int[] pixels = getArgbPixels(image);
+    if (pixels == null) {
+      pixels = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+    return pixels;
+  }
+
+  /** Gives this bitmap blank pixels of its current size, which are allocated on first access. */
+  void setBlankPixels() {
+    releasePixels();
+    pixelsPending = true;
+  }
+
+  private boolean hasPixels() {
+    return pixelBuffer != null || pixelsPending;
+  }
+
+  /**
+   * Makes this bitmap use the pixels of {@code source}, or the given region of them, until either
+   * bitmap writes to them.
+   */
+  private void sharePixels(ShadowBitmap source, Rectangle region) {
+    releasePixels();
+    if (source.pixelsPending) {
+      pixelsPending = true;
+    } else if (source.pixelBuffer != null) {
+      pixelBuffer = source.pixelBuffer;
+      pixelBuffer.users++;
+      if (region == null) {
+        pixelRegion = source.pixelRegion;
+      } else if (source.pixelRegion == null) {
+        pixelRegion = region;
+      } else {
+        pixelRegion = new Rectangle(region);
+        pixelRegion.translate(source.pixelRegion.x, source.pixelRegion.y);
+      }
+      PerfStatsCollector.getInstance().incrementCount("ShadowBitmap pixels shared");
+    }
+  }
+
+  private boolean sharesPixelsWith(ShadowBitmap other) {
+    if (pixelsPending && other.pixelsPending) {
+      return true;
+    }
+    return pixelBuffer != null
+        && pixelBuffer == other.pixelBuffer
+        && Objects.equals(pixelRegion, other.pixelRegion);
+  }
+
+  /** Returns the pixels of this bitmap, allocating or copying them out if needed. */
+  private BufferedImage getReadableImage() {
+    if (pixelsPending) {
+      pixelsPending = false;
+      pixelBuffer =
+          new PixelBuffer(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB));
+      recordAllocation(width, height);
+    } else if (pixelBuffer == null) {
+      return null;
+    } else if (pixelRegion != null) {
+      // Copy the region out, so that the pixels of the image can be indexed directly.
+      Rectangle region = pixelRegion;
+      BufferedImage source = pixelBuffer.image;
+      releasePixels();
+      pixelBuffer = new PixelBuffer(copyOf(source, region));
+    }
+    return pixelBuffer.image;
+  }
+
+  /** Returns the pixels of this bitmap, first copying them if they are shared. */
+  private BufferedImage getWritableImage() {
+    BufferedImage image = getReadableImage();
+    if (image != null && pixelBuffer.users > 1) {
+      releasePixels();
+      pixelBuffer =
+          new PixelBuffer(copyOf(image, new Rectangle(image.getWidth(), image.getHeight())));
+      image = pixelBuffer.image;
+    }
+    return image;
+  }
+
+  private void releasePixels() {
+    if (pixelBuffer != null) {
+      pixelBuffer.users--;
+      pixelBuffer = null;
+    }
+    pixelRegion = null;
+    pixelsPending = false;
+  }
+
+  /**
+   * Returns the array holding the pixels of {@code image} as non-premultiplied ARGB values, row
+   * after row, if it stores them that way and has the size of this bitmap, or {@code null}.
+   */
+  private int[] getArgbPixels(BufferedImage image) {
+    if (image == null
+        || image.getType() != BufferedImage.TYPE_INT_ARGB
+        || image.getWidth() != width
+        || image.getHeight() != height) {
+      return null;
+    }
+    WritableRaster raster = image.getRaster();
+    if (raster.getParent() != null
+        || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)
+        || ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride() != width) {
+      return null;
+    }
+    return ((DataBufferInt) raster.getDataBuffer()).getData();
+  }
+
+  private boolean isInImage(int x, int y, int width, int height) {
+    return x >= 0
+        && y >= 0
+        && width >= 0
+        && height >= 0
+        && x + width <= this.width
+        && y + height <= this.height;
+  }
+
+  private static BufferedImage copyOf(BufferedImage image, Rectangle region) {
+    BufferedImage subimage = image.getSubimage(region.x, region.y, region.width, region.height);
+    WritableRaster raster =
+        subimage.copyData(
+            subimage.getRaster().createCompatibleWritableRaster(region.width, region.height));
+    recordAllocation(region.width, region.height);
+    return new BufferedImage(
+        subimage.getColorModel(), raster, subimage.isAlphaPremultiplied(), null);
+  }
+
+  private static void recordAllocation(int width, int height) {
+    PerfStatsCollector.getInstance()
+        .incrementCount(
+            "ShadowBitmap pixel bytes allocated",
+            (long) width * height * INTERNAL_BYTES_PER_PIXEL);
+  }
+
+  private static final class DrawDescription {
+    /** Whether the text goes on a line of its own, unless it's the first text. */
+    private final boolean onNewLine;
+    private final Supplier<String> text;
+
+    DrawDescription(boolean onNewLine, Supplier<String> text) {
+      this.onNewLine = onNewLine;
+      this.text = text;
+    }
+  }
+
+  /** An image holding the pixels of one or more bitmaps. */
+  private static final class PixelBuffer {
+    private final BufferedImage image;
+    /** The number of bitmaps using this image. Only one may write to it. */
+    private int users = 1;
+
+    PixelBuffer(BufferedImage image) {
+      this.image = image;
+    }
   }
 }
@@ -14,6 +14,8 @@ import android.graphics.Rect;
 import android.net.Uri;
 import android.os.Build;
 import android.util.TypedValue;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.BufferedInputStream;
@@ -25,8 +27,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
@@ -36,6 +41,7 @@ import org.robolectric.shadows.ImageUtil.RobolectricBufferedImage;
 import org.robolectric.util.Join;
 import org.robolectric.util.Logger;
 import org.robolectric.util.NamedStream;
+import org.robolectric.util.PerfStatsCollector;
 import org.robolectric.util.ReflectionHelpers;
 import org.robolectric.util.ReflectionHelpers.ClassParameter;
 import org.robolectric.util.reflector.Direct;
@@ -52,6 +58,13 @@ public class ShadowBitmapFactory {
   // forthcoming release will switch the default to false, which is consistent with real Android.
   private static boolean allowInvalidImageData = true;
 
+  private static final long DECODED_IMAGE_CACHE_SIZE_BY_DEFAULT =
+      Long.getLong("robolectric.bitmapFactory.decodedImageCacheBytes", 64L * 1024 * 1024);
+
+  private static volatile long decodedImageCacheSize = DECODED_IMAGE_CACHE_SIZE_BY_DEFAULT;
+  // kept across tests, for as long as the sandbox lives
+  private static final DecodedImageCache decodedImageCache = new DecodedImageCache();
+
   @Implementation
   protected static Bitmap decodeResourceStream(
       Resources res, TypedValue value, InputStream is, Rect pad, BitmapFactory.Options opts) {
@@ -75,7 +88,7 @@ public class ShadowBitmapFactory {
     final TypedValue value = new TypedValue();
     InputStream is = res.openRawResource(id, value);
 
-    RobolectricBufferedImage image = getImageFromStream(is);
+    RobolectricBufferedImage image = decodeImage(is);
     if (!allowInvalidImageData && image == null) {
       if (options != null) {
         options.outWidth = -1;
@@ -99,13 +112,23 @@ public class ShadowBitmapFactory {
   protected static Bitmap decodeFile(String pathName, BitmapFactory.Options options) {
     // If a real file is used, attempt to get the image size from that file.
     RobolectricBufferedImage image = null;
-    if (pathName != null && new File(pathName).exists()) {
-      try (FileInputStream fileInputStream = new FileInputStream(pathName);
-          BufferedInputStream bufferedInputStream = new BufferedInputStream(fileInputStream)) {
-        image = getImageFromStream(bufferedInputStream);
-      } catch (IOException e) {
-        Logger.warn("Error getting size of bitmap file", e);
-      }
+    File file = pathName == null ? null : new File(pathName);
+    if (file != null && file.exists()) {
+      String key =
+          "file:" + file.getAbsolutePath() + ":" + file.lastModified() + ":" + file.length();
+      image =
+          decodeImage(
+              key,
+              () -> {
+                try (FileInputStream fileInputStream = new FileInputStream(file);
+                    BufferedInputStream bufferedInputStream =
+                        new BufferedInputStream(fileInputStream)) {
+                  return getImageFromStream(bufferedInputStream);
+                } catch (IOException e) {
+                  Logger.warn("Error getting size of bitmap file", e);
+                  return null;
+                }
+              });
     }
     if (!allowInvalidImageData && image == null) {
       if (options != null) {
@@ -129,7 +152,7 @@ public class ShadowBitmapFactory {
     if (fd != null && fd.valid()) {
       try (FileInputStream fileInputStream = new FileInputStream(fd);
           BufferedInputStream bufferedInputStream = new BufferedInputStream(fileInputStream); ) {
-        image = getImageFromStream(bufferedInputStream);
+        image = decodeImage(bufferedInputStream);
       } catch (IOException e) {
         Logger.warn("Error getting size of bitmap file", e);
       }
@@ -177,7 +200,7 @@ public class ShadowBitmapFactory {
 
     boolean isNamedStream = is instanceof NamedStream;
     String name = isNamedStream ? is.toString().replace("stream for ", "") : null;
-    RobolectricBufferedImage image = isNamedStream ? null : getImageFromStream(is);
+    RobolectricBufferedImage image = isNamedStream ? null : decodeImage(is);
     if (!allowInvalidImageData && image == null) {
       if (opts != null) {
         opts.outWidth = -1;
@@ -214,8 +237,7 @@ public class ShadowBitmapFactory {
       desc += " bytes " + offset + ".." + length;
     }
 
-    ByteArrayInputStream is = new ByteArrayInputStream(data, offset, length);
-    RobolectricBufferedImage image = getImageFromStream(is);
+    RobolectricBufferedImage image = decodeImage(data, offset, length);
     if (!allowInvalidImageData && image == null) {
       if (opts != null) {
         opts.outWidth = -1;
@@ -292,7 +314,12 @@ public class ShadowBitmapFactory {
 
     shadowBitmap.setWidth(p.x);
     shadowBitmap.setHeight(p.y);
-    if (image != null) {
+    if (image != null
+        && image.getBufferedImage().getType() == BufferedImage.TYPE_INT_ARGB
+        && image.getWidthAndHeight().equals(p)) {
+      // The image may be cached, so it's copied when the bitmap is first modified.
+      shadowBitmap.setSharedBufferedImage(image.getBufferedImage());
+    } else if (image != null) {
       BufferedImage bufferedImage = new BufferedImage(p.x, p.y, BufferedImage.TYPE_INT_ARGB);
       // Copy the image as TYPE_INT_ARGB for fast comparison (sameAs).
       Graphics2D g = bufferedImage.createGraphics();
@@ -300,7 +327,7 @@ public class ShadowBitmapFactory {
       g.dispose();
       shadowBitmap.setBufferedImage(bufferedImage);
     } else {
-      shadowBitmap.setPixelsInternal(new int[p.x * p.y], 0, 0, 0, 0, p.x, p.y);
+      shadowBitmap.setBlankPixels();
     }
     if (options != null) {
       options.outWidth = p.x;
@@ -368,6 +395,7 @@ public class ShadowBitmapFactory {
   public static void reset() {
     widthAndHeightMap.clear();
     allowInvalidImageData = true;
+    decodedImageCacheSize = DECODED_IMAGE_CACHE_SIZE_BY_DEFAULT;
   }
 
   private static Point selectWidthAndHeight(
@@ -401,6 +429,111 @@ public class ShadowBitmapFactory {
     ShadowBitmapFactory.allowInvalidImageData = allowInvalidImageData;
   }
 
+  /**
+   * Sets the maximum size, in bytes of pixels, of the images kept decoded by the BitmapFactory
+   * decode methods for the current test. 0 disables the cache.
+   *
+   * <p>Decoded images are cached by the contents of the data they were decoded from, or by the
+   * path, size and modification time of files, for as long as the sandbox lives, so that decoding
+   * the same resource or asset in many tests only decodes it once. Bitmaps decoded from a cached
+   * image copy its pixels before they are first modified.
+   *
+   * <p>Defaults to 64 MiB, or the value of the {@code
+   * robolectric.bitmapFactory.decodedImageCacheBytes} system property.
+   */
+  public static void setDecodedImageCacheSize(long maxSizeBytes) {
+    decodedImageCacheSize = maxSizeBytes;
+  }
+
+  private static RobolectricBufferedImage decodeImage(InputStream is) {
+    if (decodedImageCacheSize <= 0 || is == null) {
+      return getImageFromStream(is);
+    }
+    byte[] data;
+    try {
+      data = ByteStreams.toByteArray(is);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return decodeImage(data, 0, data.length);
+  }
+
+  private static RobolectricBufferedImage decodeImage(byte[] data, int offset, int length) {
+    Supplier<RobolectricBufferedImage> decoder =
+        () -> getImageFromStream(new ByteArrayInputStream(data, offset, length));
+    if (decodedImageCacheSize <= 0) {
+      return decoder.get();
+    }
+    return decodeImage(Hashing.sha256().hashBytes(data, offset, length), decoder);
+  }
+
+  private static RobolectricBufferedImage decodeImage(
+      Object key, Supplier<RobolectricBufferedImage> decoder) {
+    long maxSizeBytes = decodedImageCacheSize;
+    if (maxSizeBytes <= 0) {
+      return decoder.get();
+    }
+    RobolectricBufferedImage image = decodedImageCache.get(key);
+    if (image != null) {
+      PerfStatsCollector.getInstance()
+          .incrementCount("ShadowBitmapFactory decoded image cache hit");
+      return image;
+    }
+    image = decoder.get();
+    if (image != null) {
+      image = toArgb(image);
+      decodedImageCache.put(key, image, maxSizeBytes);
+    }
+    return image;
+  }
+
+  /** Converts the image to TYPE_INT_ARGB, the type of bitmap pixels. */
+  private static RobolectricBufferedImage toArgb(RobolectricBufferedImage image) {
+    BufferedImage source = image.getBufferedImage();
+    if (source.getType() == BufferedImage.TYPE_INT_ARGB) {
+      return image;
+    }
+    BufferedImage argb =
+        new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = argb.createGraphics();
+    g.drawImage(source, 0, 0, null);
+    g.dispose();
+    return RobolectricBufferedImage.create(argb, image.getMimeType());
+  }
+
+  /** Decoded images, least recently used first, bounded by the size of their pixels. */
+  private static final class DecodedImageCache {
+    private final LinkedHashMap<Object, RobolectricBufferedImage> images =
+        new LinkedHashMap<>(16, 0.75f, /* accessOrder= */ true);
+    private long sizeBytes;
+
+    synchronized RobolectricBufferedImage get(Object key) {
+      return images.get(key);
+    }
+
+    synchronized void put(Object key, RobolectricBufferedImage image, long maxSizeBytes) {
+      long imageBytes = sizeOf(image);
+      if (imageBytes > maxSizeBytes) {
+        return;
+      }
+      RobolectricBufferedImage previous = images.put(key, image);
+      if (previous != null) {
+        sizeBytes -= sizeOf(previous);
+      }
+      sizeBytes += imageBytes;
+      Iterator<RobolectricBufferedImage> iterator = images.values().iterator();
+      while (sizeBytes > maxSizeBytes && iterator.hasNext()) {
+        sizeBytes -= sizeOf(iterator.next());
+        iterator.remove();
+      }
+    }
+
+    private static long sizeOf(RobolectricBufferedImage image) {
+      BufferedImage bufferedImage = image.getBufferedImage();
+      return (long) bufferedImage.getWidth() * bufferedImage.getHeight() * 4;
+    }
+  }
+
   @ForType(BitmapFactory.class)
   interface BitmapFactoryReflector {
 
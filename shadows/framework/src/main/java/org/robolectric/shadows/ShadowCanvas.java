@@ -10,11 +10,20 @@ import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Supplier;
 import org.robolectric.Shadows;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
+import org.robolectric.annotation.Resetter;
 import org.robolectric.shadow.api.Shadow;
 import org.robolectric.util.Join;
 import org.robolectric.util.ReflectionHelpers;
@@ -27,14 +36,26 @@ import org.robolectric.util.ReflectionHelpers;
 @SuppressWarnings({"UnusedDeclaration"})
 @Implements(Canvas.class)
 public class ShadowCanvas {
-  private final List<RoundRectPaintHistoryEvent> roundRectPaintEvents = new ArrayList<>();
-  private List<PathPaintHistoryEvent> pathPaintEvents = new ArrayList<>();
-  private List<CirclePaintHistoryEvent> circlePaintEvents = new ArrayList<>();
-  private List<ArcPaintHistoryEvent> arcPaintEvents = new ArrayList<>();
-  private List<RectPaintHistoryEvent> rectPaintEvents = new ArrayList<>();
-  private List<LinePaintHistoryEvent> linePaintEvents = new ArrayList<>();
-  private List<OvalPaintHistoryEvent> ovalPaintEvents = new ArrayList<>();
-  private List<TextHistoryEvent> drawnTextEventHistory = new ArrayList<>();
+  private static final DrawHistoryMode DRAW_HISTORY_MODE_BY_DEFAULT =
+      DrawHistoryMode.valueOf(System.getProperty("robolectric.canvas.drawHistoryMode", "FULL"));
+  private static final int DRAW_HISTORY_SIZE_BY_DEFAULT =
+      Integer.getInteger("robolectric.canvas.drawHistorySize", 1000);
+
+  private static volatile DrawHistoryMode drawHistoryMode = DRAW_HISTORY_MODE_BY_DEFAULT;
+  private static volatile int drawHistorySize = DRAW_HISTORY_SIZE_BY_DEFAULT;
+  private static final boolean RASTERIZATION_ENABLED_BY_DEFAULT =
+      Boolean.getBoolean("robolectric.canvas.rasterize");
+
+  private static volatile boolean rasterizationEnabled = RASTERIZATION_ENABLED_BY_DEFAULT;
+
+  private final DrawHistory<RoundRectPaintHistoryEvent> roundRectPaintEvents = new DrawHistory<>();
+  private DrawHistory<PathPaintHistoryEvent> pathPaintEvents = new DrawHistory<>();
+  private DrawHistory<CirclePaintHistoryEvent> circlePaintEvents = new DrawHistory<>();
+  private DrawHistory<ArcPaintHistoryEvent> arcPaintEvents = new DrawHistory<>();
+  private DrawHistory<RectPaintHistoryEvent> rectPaintEvents = new DrawHistory<>();
+  private DrawHistory<LinePaintHistoryEvent> linePaintEvents = new DrawHistory<>();
+  private DrawHistory<OvalPaintHistoryEvent> ovalPaintEvents = new DrawHistory<>();
+  private DrawHistory<TextHistoryEvent> drawnTextEventHistory = new DrawHistory<>();
   private Paint drawnPaint;
   private Bitmap targetBitmap = ReflectionHelpers.callConstructor(Bitmap.class);
   private float translateX;
@@ -43,6 +64,7 @@ public class ShadowCanvas {
   private float scaleY = 1;
   private int height;
   private int width;
+  private CanvasRasterizer rasterizer;
 
   /**
    * Returns a textual representation of the appearance of the object.
@@ -55,6 +77,52 @@ public class ShadowCanvas {
     return shadowCanvas.getDescription();
   }
 
+  /**
+   * Sets how much of the draw history canvases record, until the end of the test. Tests drawing
+   * a lot, e.g. through animations, can use {@link DrawHistoryMode#BOUNDED} or {@link
+   * DrawHistoryMode#OFF} to keep memory use flat.
+   *
+   * <p>The default is {@link DrawHistoryMode#FULL}, or the value of the {@code
+   * robolectric.canvas.drawHistoryMode} system property.
+   */
+  public static void setDrawHistoryMode(DrawHistoryMode mode) {
+    drawHistoryMode = mode;
+  }
+
+  /**
+   * Sets how many draw events of each kind, and how many unread draw descriptions, canvases keep
+   * in {@link DrawHistoryMode#BOUNDED} mode, until the end of the test.
+   *
+   * <p>The default is 1000, or the value of the {@code robolectric.canvas.drawHistorySize} system
+   * property.
+   */
+  public static void setDrawHistorySize(int size) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("draw history size must be positive: " + size);
+    }
+    drawHistorySize = size;
+  }
+
+  /**
+   * Sets whether canvases draw into the pixels of their bitmap through Java2D, honoring the canvas
+   * matrix, clip and save/restore, until the end of the test. This allows comparing the rendered
+   * pixels against golden images. Only what the paint's color, style, stroke, anti-alias and
+   * filter bitmap settings describe is rendered; shaders, color filters and xfermodes are ignored.
+   *
+   * <p>The default is {@code false}, or the value of the {@code robolectric.canvas.rasterize}
+   * system property.
+   */
+  public static void setRasterizationEnabled(boolean enabled) {
+    rasterizationEnabled = enabled;
+  }
+
+  @Resetter
+  public static void reset() {
+    drawHistoryMode = DRAW_HISTORY_MODE_BY_DEFAULT;
+    drawHistorySize = DRAW_HISTORY_SIZE_BY_DEFAULT;
+    rasterizationEnabled = RASTERIZATION_ENABLED_BY_DEFAULT;
+  }
+
   @Implementation
   protected void __constructor__(Bitmap bitmap) {
     this.targetBitmap = bitmap;
@@ -73,72 +141,181 @@ public class ShadowCanvas {
   @Implementation
   protected void setBitmap(Bitmap bitmap) {
     targetBitmap = bitmap;
+    // like on Android, the matrix and clip start afresh
+    rasterizer = null;
   }
 
   @Implementation
   protected void drawText(String text, float x, float y, Paint paint) {
-    drawnTextEventHistory.add(new TextHistoryEvent(x, y, paint, text));
+    if (isRecordingDrawHistory()) {
+      drawnTextEventHistory.add(new TextHistoryEvent(x, y, paint, text));
+    }
+    if (getRasterizer() != null) {
+      rasterizer.drawText(getTargetShadow(), text, x, y, paint);
+    }
   }
 
   @Implementation
   protected void drawText(CharSequence text, int start, int end, float x, float y, Paint paint) {
-    drawnTextEventHistory.add(
-        new TextHistoryEvent(x, y, paint, text.subSequence(start, end).toString()));
+    if (isRecordingDrawHistory()) {
+      drawnTextEventHistory.add(
+          new TextHistoryEvent(x, y, paint, text.subSequence(start, end).toString()));
+    }
+    if (getRasterizer() != null) {
+      rasterizer.drawText(getTargetShadow(), text.subSequence(start, end).toString(), x, y, paint);
+    }
   }
 
   @Implementation
   protected void drawText(char[] text, int index, int count, float x, float y, Paint paint) {
-    drawnTextEventHistory.add(new TextHistoryEvent(x, y, paint, new String(text, index, count)));
+    if (isRecordingDrawHistory()) {
+      drawnTextEventHistory.add(
+          new TextHistoryEvent(x, y, paint, new String(text, index, count)));
+    }
+    if (getRasterizer() != null) {
+      rasterizer.drawText(getTargetShadow(), new String(text, index, count), x, y, paint);
+    }
   }
 
   @Implementation
   protected void drawText(String text, int start, int end, float x, float y, Paint paint) {
-    drawnTextEventHistory.add(new TextHistoryEvent(x, y, paint, text.substring(start, end)));
+    if (isRecordingDrawHistory()) {
+      drawnTextEventHistory.add(new TextHistoryEvent(x, y, paint, text.substring(start, end)));
+    }
+    if (getRasterizer() != null) {
+      rasterizer.drawText(getTargetShadow(), text.substring(start, end), x, y, paint);
+    }
   }
 
   @Implementation
   protected void translate(float x, float y) {
     this.translateX = x;
     this.translateY = y;
+    if (getRasterizer() != null) {
+      rasterizer.concat(AffineTransform.getTranslateInstance(x, y));
+    }
   }
 
   @Implementation
   protected void scale(float sx, float sy) {
     this.scaleX = sx;
     this.scaleY = sy;
+    if (getRasterizer() != null) {
+      rasterizer.concat(AffineTransform.getScaleInstance(sx, sy));
+    }
   }
 
   @Implementation
   protected void scale(float sx, float sy, float px, float py) {
     this.scaleX = sx;
     this.scaleY = sy;
+    if (getRasterizer() != null) {
+      AffineTransform transform = AffineTransform.getTranslateInstance(px, py);
+      transform.scale(sx, sy);
+      transform.translate(-px, -py);
+      rasterizer.concat(transform);
+    }
+  }
+
+  @Implementation
+  protected void rotate(float degrees) {
+    if (getRasterizer() != null) {
+      rasterizer.concat(AffineTransform.getRotateInstance(Math.toRadians(degrees)));
+    }
+  }
+
+  @Implementation
+  protected void concat(Matrix matrix) {
+    if (matrix != null && getRasterizer() != null) {
+      ShadowMatrix shadowMatrix = Shadow.extract(matrix);
+      rasterizer.concat(shadowMatrix.getAffineTransform());
+    }
+  }
+
+  @Implementation
+  protected boolean clipRect(Rect rect) {
+    return clipRect(rect.left, rect.top, rect.right, rect.bottom);
+  }
+
+  @Implementation
+  protected boolean clipRect(RectF rect) {
+    return clipRect(rect.left, rect.top, rect.right, rect.bottom);
+  }
+
+  @Implementation
+  protected boolean clipRect(int left, int top, int right, int bottom) {
+    return clipRect((float) left, (float) top, (float) right, (float) bottom);
+  }
+
+  @Implementation
+  protected boolean clipRect(float left, float top, float right, float bottom) {
+    if (getRasterizer() == null) {
+      return false;
+    }
+    return rasterizer.clip(new Rectangle2D.Float(left, top, right - left, bottom - top));
+  }
+
+  @Implementation
+  protected boolean clipPath(Path path) {
+    if (getRasterizer() == null) {
+      return false;
+    }
+    ShadowPath shadowPath = Shadow.extract(path);
+    return rasterizer.clip(shadowPath.getJavaShape());
   }
 
   @Implementation
   protected void drawPaint(Paint paint) {
     drawnPaint = paint;
+    if (getRasterizer() != null) {
+      rasterizer.drawColor(getTargetShadow(), paint.getColor());
+    }
   }
 
   @Implementation
   protected void drawColor(int color) {
-    appendDescription("draw color " + color);
+    if (isRecordingDrawHistory()) {
+      describeDraw(false, () -> "draw color " + color);
+    }
+    if (getRasterizer() != null) {
+      rasterizer.drawColor(getTargetShadow(), color);
+    }
   }
 
   @Implementation
   protected void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
-    describeBitmap(bitmap, paint);
-
-    int x = (int) (left + translateX);
-    int y = (int) (top + translateY);
-    if (x != 0 || y != 0) {
-      appendDescription(" at (" + x + "," + y + ")");
-  }
-
-    if (scaleX != 1 && scaleY != 1) {
-      appendDescription(" scaled by (" + scaleX + "," + scaleY + ")");
+    if (isRecordingDrawHistory()) {
+      Supplier<String> bitmapDescription = describeBitmap(bitmap, paint);
+      int x = (int) (left + translateX);
+      int y = (int) (top + translateY);
+      float scaleX = this.scaleX;
+      float scaleY = this.scaleY;
+      describeDraw(
+          true,
+          () -> {
+            StringBuilder descriptionBuilder = new StringBuilder(bitmapDescription.get());
+            if (x != 0 || y != 0) {
+              descriptionBuilder.append(" at (").append(x).append(",").append(y).append(")");
+            }
+            if (scaleX != 1 && scaleY != 1) {
+              descriptionBuilder
+                  .append(" scaled by (")
+                  .append(scaleX)
+                  .append(",")
+                  .append(scaleY)
+                  .append(")");
+            }
+            return descriptionBuilder.toString();
+          });
     }
 
-    if (bitmap != null && targetBitmap != null) {
+    if (bitmap != null && getRasterizer() != null) {
+      rasterizer.drawBitmap(
+          getTargetShadow(),
+          Shadows.shadowOf(bitmap),
+          AffineTransform.getTranslateInstance(left, top),
+          paint);
+    } else if (bitmap != null && targetBitmap != null) {
       ShadowBitmap shadowTargetBitmap = Shadows.shadowOf(targetBitmap);
       shadowTargetBitmap.drawBitmap(bitmap, (int) left, (int) top);
     }
@@ -146,74 +323,136 @@ public class ShadowCanvas {
 
   @Implementation
   protected void drawBitmap(Bitmap bitmap, Rect src, Rect dst, Paint paint) {
-    describeBitmap(bitmap, paint);
-
-    StringBuilder descriptionBuilder = new StringBuilder();
-    if (dst != null) {
-      descriptionBuilder.append(" at (").append(dst.left).append(",").append(dst.top)
-          .append(") with height=").append(dst.height()).append(" and width=").append(dst.width());
+    if (getRasterizer() != null) {
+      rasterizer.drawBitmap(
+          getTargetShadow(), Shadows.shadowOf(bitmap), src, new RectF(dst), paint);
     }
-
-    if (src != null) {
-      descriptionBuilder.append( " taken from ").append(src.toString());
+    if (!isRecordingDrawHistory()) {
+      return;
     }
-    appendDescription(descriptionBuilder.toString());
+    Supplier<String> bitmapDescription = describeBitmap(bitmap, paint);
+    Rect drawnSrc = src == null ? null : new Rect(src);
+    Rect drawnDst = dst == null ? null : new Rect(dst);
+    describeDraw(
+        true,
+        () -> {
+          StringBuilder descriptionBuilder = new StringBuilder(bitmapDescription.get());
+          if (drawnDst != null) {
+            descriptionBuilder.append(" at (").append(drawnDst.left).append(",")
+                .append(drawnDst.top).append(") with height=").append(drawnDst.height())
+                .append(" and width=").append(drawnDst.width());
+          }
+
+          if (drawnSrc != null) {
+            descriptionBuilder.append(" taken from ").append(drawnSrc.toString());
+          }
+          return descriptionBuilder.toString();
+        });
   }
 
   @Implementation
   protected void drawBitmap(Bitmap bitmap, Rect src, RectF dst, Paint paint) {
-    describeBitmap(bitmap, paint);
-
-    StringBuilder descriptionBuilder = new StringBuilder();
-    if (dst != null) {
-      descriptionBuilder.append(" at (").append(dst.left).append(",").append(dst.top)
-          .append(") with height=").append(dst.height()).append(" and width=").append(dst.width());
+    if (getRasterizer() != null) {
+      rasterizer.drawBitmap(getTargetShadow(), Shadows.shadowOf(bitmap), src, dst, paint);
     }
-
-    if (src != null) {
-      descriptionBuilder.append( " taken from ").append(src.toString());
+    if (!isRecordingDrawHistory()) {
+      return;
     }
-    appendDescription(descriptionBuilder.toString());
+    Supplier<String> bitmapDescription = describeBitmap(bitmap, paint);
+    Rect drawnSrc = src == null ? null : new Rect(src);
+    RectF drawnDst = dst == null ? null : new RectF(dst);
+    describeDraw(
+        true,
+        () -> {
+          StringBuilder descriptionBuilder = new StringBuilder(bitmapDescription.get());
+          if (drawnDst != null) {
+            descriptionBuilder.append(" at (").append(drawnDst.left).append(",")
+                .append(drawnDst.top).append(") with height=").append(drawnDst.height())
+                .append(" and width=").append(drawnDst.width());
+          }
+
+          if (drawnSrc != null) {
+            descriptionBuilder.append(" taken from ").append(drawnSrc.toString());
+          }
+          return descriptionBuilder.toString();
+        });
   }
 
   @Implementation
   protected void drawBitmap(Bitmap bitmap, Matrix matrix, Paint paint) {
-    describeBitmap(bitmap, paint);
-
-    ShadowMatrix shadowMatrix = Shadow.extract(matrix);
-    appendDescription(" transformed by " + shadowMatrix.getDescription());
+    if (getRasterizer() != null) {
+      ShadowMatrix shadowMatrix = Shadow.extract(matrix);
+      rasterizer.drawBitmap(
+          getTargetShadow(), Shadows.shadowOf(bitmap), shadowMatrix.getAffineTransform(), paint);
+    }
+    if (isRecordingDrawHistory()) {
+      Supplier<String> bitmapDescription = describeBitmap(bitmap, paint);
+      ShadowMatrix shadowMatrix = Shadow.extract(new Matrix(matrix));
+      describeDraw(
+          true, () -> bitmapDescription.get() + " transformed by " + shadowMatrix.getDescription());
+    }
   }
 
   @Implementation
   protected void drawPath(Path path, Paint paint) {
-    pathPaintEvents.add(new PathPaintHistoryEvent(new Path(path), new Paint(paint)));
+    if (isRecordingDrawHistory()) {
+      Path drawnPath = new Path(path);
+      pathPaintEvents.add(new PathPaintHistoryEvent(drawnPath, new Paint(paint)));
 
-    separateLines();
-    ShadowPath shadowPath = Shadow.extract(path);
-    appendDescription("Path " + shadowPath.getPoints().toString());
+      ShadowPath shadowPath = Shadow.extract(drawnPath);
+      describeDraw(true, () -> "Path " + shadowPath.getPoints().toString());
+    }
+    if (getRasterizer() != null) {
+      rasterizer.drawPath(getTargetShadow(), path, paint);
+    }
   }
 
   @Implementation
   protected void drawCircle(float cx, float cy, float radius, Paint paint) {
-    circlePaintEvents.add(new CirclePaintHistoryEvent(cx, cy, radius, paint));
+    if (isRecordingDrawHistory()) {
+      circlePaintEvents.add(new CirclePaintHistoryEvent(cx, cy, radius, paint));
+    }
+    if (getRasterizer() != null) {
+      rasterizer.drawShape(
+          getTargetShadow(),
+          new Ellipse2D.Float(cx - radius, cy - radius, 2 * radius, 2 * radius),
+          paint);
+    }
   }
 
   @Implementation
   protected void drawArc(
       RectF oval, float startAngle, float sweepAngle, boolean useCenter, Paint paint) {
-    arcPaintEvents.add(new ArcPaintHistoryEvent(oval, startAngle, sweepAngle, useCenter, paint));
+    if (isRecordingDrawHistory()) {
+      arcPaintEvents.add(
+          new ArcPaintHistoryEvent(oval, startAngle, sweepAngle, useCenter, paint));
+    }
+    if (getRasterizer() != null) {
+      rasterizeArc(oval, startAngle, sweepAngle, useCenter ? Arc2D.PIE : Arc2D.CHORD, paint);
+    }
   }
 
   @Implementation
   protected void drawRect(float left, float top, float right, float bottom, Paint paint) {
-    rectPaintEvents.add(new RectPaintHistoryEvent(left, top, right, bottom, paint));
+    if (isRecordingDrawHistory()) {
+      rectPaintEvents.add(new RectPaintHistoryEvent(left, top, right, bottom, paint));
+    }
+    if (getRasterizer() != null) {
+      rasterizer.drawShape(
+          getTargetShadow(), new Rectangle2D.Float(left, top, right - left, bottom - top), paint);
+    }
   }
 
   @Implementation
   protected void drawRect(Rect r, Paint paint) {
-    rectPaintEvents.add(new RectPaintHistoryEvent(r.left, r.top, r.right, r.bottom, paint));
+    if (isRecordingDrawHistory()) {
+      rectPaintEvents.add(new RectPaintHistoryEvent(r.left, r.top, r.right, r.bottom, paint));
+    }
 
-    if (targetBitmap != null) {
+    if (getRasterizer() != null) {
+      rasterizer.drawShape(
+          getTargetShadow(), new Rectangle2D.Float(r.left, r.top, r.width(), r.height()), paint);
+    } else if (targetBitmap != null) {
       ShadowBitmap shadowTargetBitmap = Shadows.shadowOf(targetBitmap);
       shadowTargetBitmap.drawRect(r, paint);
     }
@@ -221,34 +460,167 @@ public class ShadowCanvas {
 
   @Implementation
   protected void drawRoundRect(RectF rect, float rx, float ry, Paint paint) {
-    roundRectPaintEvents.add(
-        new RoundRectPaintHistoryEvent(
-            rect.left, rect.top, rect.right, rect.bottom, rx, ry, paint));
+    if (isRecordingDrawHistory()) {
+      roundRectPaintEvents.add(
+          new RoundRectPaintHistoryEvent(
+              rect.left, rect.top, rect.right, rect.bottom, rx, ry, paint));
+    }
+    if (getRasterizer() != null) {
+      rasterizer.drawShape(
+          getTargetShadow(),
+          new RoundRectangle2D.Float(
+              rect.left, rect.top, rect.width(), rect.height(), 2 * rx, 2 * ry),
+          paint);
+    }
   }
 
   @Implementation
   protected void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
-    linePaintEvents.add(new LinePaintHistoryEvent(startX, startY, stopX, stopY, paint));
+    if (isRecordingDrawHistory()) {
+      linePaintEvents.add(new LinePaintHistoryEvent(startX, startY, stopX, stopY, paint));
+    }
+    if (getRasterizer() != null) {
+      rasterizer.strokeShape(
+          getTargetShadow(), new Line2D.Float(startX, startY, stopX, stopY), paint);
+    }
   }
 
   @Implementation
   protected void drawOval(RectF oval, Paint paint) {
-    ovalPaintEvents.add(new OvalPaintHistoryEvent(oval, paint));
+    if (isRecordingDrawHistory()) {
+      ovalPaintEvents.add(new OvalPaintHistoryEvent(oval, paint));
+    }
+    if (getRasterizer() != null) {
+      rasterizer.drawShape(
+          getTargetShadow(),
+          new Ellipse2D.Float(oval.left, oval.top, oval.width(), oval.height()),
+          paint);
+    }
   }
 
   @Implementation
   protected int save() {
+    if (getRasterizer() != null) {
+      return rasterizer.save();
+    }
+    return 1;
+  }
+
+  @Implementation
+  protected int save(int saveFlags) {
+    return save();
+  }
+
+  // Layers are saved like the rest of the state; what's drawn into them goes straight to the
+  // bitmap, without the layer's paint or alpha.
+  @Implementation
+  protected int saveLayer(RectF bounds, Paint paint, int saveFlags) {
+    return save();
+  }
+
+  @Implementation
+  protected int saveLayer(
+      float left, float top, float right, float bottom, Paint paint, int saveFlags) {
+    return save();
+  }
+
+  @Implementation
+  protected int saveLayerAlpha(RectF bounds, int alpha, int saveFlags) {
+    return save();
+  }
+
+  @Implementation
+  protected int saveLayerAlpha(
+      float left, float top, float right, float bottom, int alpha, int saveFlags) {
+    return save();
+  }
+
+  @Implementation
+  protected int getSaveCount() {
+    if (getRasterizer() != null) {
+      return rasterizer.getSaveCount();
+    }
     return 1;
   }
 
   @Implementation
-  protected void restore() {}
+  protected void restore() {
+    if (getRasterizer() != null) {
+      rasterizer.restore();
+    }
+  }
+
+  @Implementation
+  protected void restoreToCount(int saveCount) {
+    if (saveCount < 1) {
+      throw new IllegalArgumentException(
+          "Underflow in restoreToCount - more restores than saves");
+    }
+    if (getRasterizer() != null) {
+      rasterizer.restoreToCount(saveCount);
+    }
+  }
+
+  /** Returns the rasterizer drawing into the target bitmap, if rasterization is enabled. */
+  private CanvasRasterizer getRasterizer() {
+    if (!rasterizationEnabled) {
+      return null;
+    }
+    if (rasterizer == null) {
+      rasterizer = new CanvasRasterizer();
+    }
+    return rasterizer;
+  }
+
+  private ShadowBitmap getTargetShadow() {
+    return Shadow.extract(targetBitmap);
+  }
+
+  /**
+   * Rasterizes an arc. Android angles go clockwise on screen and Java2D ones counterclockwise,
+   * and only the stroke of an arc without center follows the arc alone.
+   */
+  private void rasterizeArc(
+      RectF oval, float startAngle, float sweepAngle, int fillClosure, Paint paint) {
+    Paint.Style style = paint.getStyle() == null ? Paint.Style.FILL : paint.getStyle();
+    if (style != Paint.Style.STROKE) {
+      rasterizer.fillShape(
+          getTargetShadow(),
+          new Arc2D.Float(
+              oval.left, oval.top, oval.width(), oval.height(), -startAngle, -sweepAngle,
+              fillClosure),
+          paint);
+    }
+    if (style != Paint.Style.FILL) {
+      rasterizer.strokeShape(
+          getTargetShadow(),
+          new Arc2D.Float(
+              oval.left, oval.top, oval.width(), oval.height(), -startAngle, -sweepAngle,
+              fillClosure == Arc2D.PIE ? Arc2D.PIE : Arc2D.OPEN),
+          paint);
+    }
+  }
 
-  private void describeBitmap(Bitmap bitmap, Paint paint) {
-    separateLines();
+  private static boolean isRecordingDrawHistory() {
+    return drawHistoryMode != DrawHistoryMode.OFF;
+  }
 
+  /** Adds the description of a draw operation to the target bitmap, rendered once it's read. */
+  private void describeDraw(boolean onNewLine, Supplier<String> description) {
+    ShadowBitmap shadowBitmap = Shadow.extract(targetBitmap);
+    shadowBitmap.appendDrawDescription(
+        onNewLine,
+        description,
+        drawHistoryMode == DrawHistoryMode.BOUNDED ? drawHistorySize : 0);
+  }
+
+  /**
+   * Captures what's needed to describe drawing {@code bitmap} with {@code paint}, without
+   * rendering the description yet.
+   */
+  private Supplier<String> describeBitmap(Bitmap bitmap, Paint paint) {
     ShadowBitmap shadowBitmap = Shadow.extract(bitmap);
-    appendDescription(shadowBitmap.getDescription());
+    String bitmapDescription = shadowBitmap.getDescription();
 
     if (paint != null) {
       ColorFilter colorFilter = paint.getColorFilter();
@@ -258,17 +630,23 @@ public class ShadowCanvas {
           ShadowColorMatrixColorFilter shadowColorMatrixColorFilter =
               Shadow.extract(colorMatrixColorFilter);
           ColorMatrix colorMatrix = shadowColorMatrixColorFilter.getMatrix();
-          appendDescription(" with ColorMatrixColorFilter<" + formatColorMatric(colorMatrix) + ">");
+          float[] colorMatrixArray = Arrays.copyOf(colorMatrix.getArray(), 20);
+          return () ->
+              bitmapDescription
+                  + " with ColorMatrixColorFilter<"
+                  + formatColorMatric(colorMatrixArray)
+                  + ">";
         } else {
-          appendDescription(" with " + colorFilter);
+          return () -> bitmapDescription + " with " + colorFilter;
         }
       }
     }
+    return () -> bitmapDescription;
   }
 
-  private String formatColorMatric(ColorMatrix colorMatrix) {
+  private static String formatColorMatric(float[] colorMatrixArray) {
     List<String> floats = new ArrayList<>();
-    for (float f : colorMatrix.getArray()) {
+    for (float f : colorMatrixArray) {
       String format = String.format("%.2f", f);
       format = format.replace(".00", "");
       floats.add(format);
@@ -276,12 +654,6 @@ public class ShadowCanvas {
     return Join.join(",", floats);
   }
 
-  private void separateLines() {
-    if (getDescription().length() != 0) {
-      appendDescription("\n");
-    }
-  }
-
   public int getPathPaintHistoryCount() {
     return pathPaintEvents.size();
   }
@@ -371,7 +743,7 @@ public class ShadowCanvas {
   }
 
   public RectPaintHistoryEvent getLastDrawnRect() {
-    return rectPaintEvents.get(rectPaintEvents.size() - 1);
+    return rectPaintEvents.getLast();
   }
 
   public int getRectPaintHistoryCount() {
@@ -383,7 +755,7 @@ public class ShadowCanvas {
   }
 
   public RoundRectPaintHistoryEvent getLastDrawnRoundRect() {
-    return roundRectPaintEvents.get(roundRectPaintEvents.size() - 1);
+    return roundRectPaintEvents.getLast();
   }
 
   public int getRoundRectPaintHistoryCount() {
@@ -406,6 +778,69 @@ public class ShadowCanvas {
     return ovalPaintEvents.get(i);
   }
 
+  /** How much of the draw history canvases record. */
+  public enum DrawHistoryMode {
+    /** Records no draw events nor draw descriptions. */
+    OFF,
+    /** Keeps the last {@link #setDrawHistorySize(int)} draw events of each kind. */
+    BOUNDED,
+    /** Keeps every draw event. */
+    FULL
+  }
+
+  /** Draw events of one kind, oldest first, trimmed according to the {@link DrawHistoryMode}. */
+  private static final class DrawHistory<T> {
+    private Object[] events = new Object[0];
+    /** The index in {@link #events} of the oldest event. */
+    private int first;
+    private int size;
+
+    void add(T event) {
+      int limit = drawHistoryMode == DrawHistoryMode.BOUNDED ? drawHistorySize : Integer.MAX_VALUE;
+      while (size >= limit) {
+        removeFirst();
+      }
+      if (size == events.length) {
+        Object[] grown = new Object[(int) Math.min(limit, Math.max(8, 2L * events.length))];
+        for (int i = 0; i < size; i++) {
+          grown[i] = events[(first + i) % events.length];
+        }
+        events = grown;
+        first = 0;
+      }
+      events[(first + size) % events.length] = event;
+      size++;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int i) {
+      if (i < 0 || i >= size) {
+        throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+      }
+      return (T) events[(first + i) % events.length];
+    }
+
+    T getLast() {
+      return get(size - 1);
+    }
+
+    int size() {
+      return size;
+    }
+
+    void clear() {
+      events = new Object[0];
+      first = 0;
+      size = 0;
+    }
+
+    private void removeFirst() {
+      events[first] = null;
+      first = (first + 1) % events.length;
+      size--;
+    }
+  }
+
   public static class LinePaintHistoryEvent {
     public Paint paint;
     public float startX;
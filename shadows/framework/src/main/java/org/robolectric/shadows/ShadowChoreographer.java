@@ -61,6 +61,24 @@ public abstract class ShadowChoreographer {
     }
   }
 
+  /**
+   * Enables or disables frame coalescing for the current test.
+   *
+   * <p>By default, each frame requested by a Choreographer callback is dispatched immediately and
+   * advances the clock by 1ms, so a running animation produces one frame per millisecond of
+   * idling. With frame coalescing enabled, a frame requested from within a frame is deferred until
+   * the clock next advances, and all frames in between are skipped. Idling for a period then
+   * produces a single frame at the target time, which moves {@link
+   * android.animation.ValueAnimator}s straight to their state at that time. Intermediate frames are
+   * only dispatched when something else stops the clock earlier, such as a delayed message.
+   *
+   * <p>Only supported in {@link LooperMode.Mode.PAUSED}.
+   */
+  public static void setCoalesceFrames(boolean shouldCoalesceFrames) {
+    ShadowLooper.assertLooperMode(Mode.PAUSED);
+    ShadowDisplayEventReceiver.setCoalesceFrames(shouldCoalesceFrames);
+  }
+
   /**
    * Return the current inter-frame interval.
    *
@@ -10,8 +10,7 @@ import android.database.CursorWindow;
 import com.almworks.sqlite4java.SQLiteConstants;
 import com.almworks.sqlite4java.SQLiteException;
 import com.almworks.sqlite4java.SQLiteStatement;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
@@ -44,17 +43,14 @@ public class ShadowCursorWindow {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static byte[] nativeGetBlob(long windowPtr, int row, int column) {
-    Value value = WINDOW_DATA.get(windowPtr).value(row, column);
+    Data data = WINDOW_DATA.get(windowPtr);
 
-    switch (value.type) {
+    switch (data.type(row, column)) {
       case Cursor.FIELD_TYPE_NULL:
         return null;
       case Cursor.FIELD_TYPE_BLOB:
-        // This matches Android's behavior, which does not match the SQLite spec
-        byte[] blob = (byte[])value.value;
-        return blob == null ? new byte[]{} : blob;
       case Cursor.FIELD_TYPE_STRING:
-        return ((String)value.value).getBytes(UTF_8);
+        return data.getBytes(row, column);
       default:
         throw new android.database.sqlite.SQLiteException("Getting blob when column is non-blob. Row " + row + ", col " + column);
     }
@@ -67,12 +63,20 @@ public class ShadowCursorWindow {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static String nativeGetString(long windowPtr, int row, int column) {
-    Value val = WINDOW_DATA.get(windowPtr).value(row, column);
-    if (val.type == Cursor.FIELD_TYPE_BLOB) {
-      throw new android.database.sqlite.SQLiteException("Getting string when column is blob. Row " + row + ", col " + column);
+    Data data = WINDOW_DATA.get(windowPtr);
+    switch (data.type(row, column)) {
+      case Cursor.FIELD_TYPE_NULL:
+        return null;
+      case Cursor.FIELD_TYPE_INTEGER:
+        return String.valueOf(data.getLong(row, column));
+      case Cursor.FIELD_TYPE_FLOAT:
+        return String.valueOf(data.getDouble(row, column));
+      case Cursor.FIELD_TYPE_STRING:
+        return data.getString(row, column);
+      default:
+        throw new android.database.sqlite.SQLiteException(
+            "Getting string when column is blob. Row " + row + ", col " + column);
     }
-    Object value = val.value;
-    return value == null ? null : String.valueOf(value);
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -82,7 +86,15 @@ public class ShadowCursorWindow {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static long nativeGetLong(long windowPtr, int row, int column) {
-    return nativeGetNumber(windowPtr, row, column).longValue();
+    Data data = WINDOW_DATA.get(windowPtr);
+    switch (data.type(row, column)) {
+      case Cursor.FIELD_TYPE_INTEGER:
+        return data.getLong(row, column);
+      case Cursor.FIELD_TYPE_FLOAT:
+        return (long) data.getDouble(row, column);
+      default:
+        return (long) nativeGetNumber(data, row, column);
+    }
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -92,7 +104,15 @@ public class ShadowCursorWindow {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static double nativeGetDouble(long windowPtr, int row, int column) {
-    return nativeGetNumber(windowPtr, row, column).doubleValue();
+    Data data = WINDOW_DATA.get(windowPtr);
+    switch (data.type(row, column)) {
+      case Cursor.FIELD_TYPE_INTEGER:
+        return data.getLong(row, column);
+      case Cursor.FIELD_TYPE_FLOAT:
+        return data.getDouble(row, column);
+      default:
+        return nativeGetNumber(data, row, column);
+    }
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -102,7 +122,7 @@ public class ShadowCursorWindow {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static int nativeGetType(long windowPtr, int row, int column) {
-    return WINDOW_DATA.get(windowPtr).value(row, column).type;
+    return WINDOW_DATA.get(windowPtr).type(row, column);
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -132,7 +152,9 @@ public class ShadowCursorWindow {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static boolean nativePutBlob(long windowPtr, byte[] value, int row, int column) {
-    return WINDOW_DATA.get(windowPtr).putValue(new Value(value, Cursor.FIELD_TYPE_BLOB), row, column);
+    // This matches Android's behavior, which does not match the SQLite spec
+    byte[] blob = value == null ? new byte[0] : value;
+    return WINDOW_DATA.get(windowPtr).putBytes(row, column, Cursor.FIELD_TYPE_BLOB, blob);
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -142,7 +164,10 @@ public class ShadowCursorWindow {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static boolean nativePutString(long windowPtr, String value, int row, int column) {
-    return WINDOW_DATA.get(windowPtr).putValue(new Value(value, Cursor.FIELD_TYPE_STRING), row, column);
+    Data data = WINDOW_DATA.get(windowPtr);
+    return value == null
+        ? data.putNull(row, column)
+        : data.putBytes(row, column, Cursor.FIELD_TYPE_STRING, value.getBytes(UTF_8));
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -152,7 +177,7 @@ public class ShadowCursorWindow {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static boolean nativePutLong(long windowPtr, long value, int row, int column) {
-    return WINDOW_DATA.get(windowPtr).putValue(new Value(value, Cursor.FIELD_TYPE_INTEGER), row, column);
+    return WINDOW_DATA.get(windowPtr).putLong(row, column, value);
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -162,7 +187,7 @@ public class ShadowCursorWindow {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static boolean nativePutDouble(long windowPtr, double value, int row, int column) {
-    return WINDOW_DATA.get(windowPtr).putValue(new Value(value, Cursor.FIELD_TYPE_FLOAT), row, column);
+    return WINDOW_DATA.get(windowPtr).putDouble(row, column, value);
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -172,7 +197,7 @@ public class ShadowCursorWindow {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static boolean nativePutNull(long windowPtr, int row, int column) {
-    return WINDOW_DATA.get(windowPtr).putValue(new Value(null, Cursor.FIELD_TYPE_NULL), row, column);
+    return WINDOW_DATA.get(windowPtr).putNull(row, column);
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -206,133 +231,253 @@ public class ShadowCursorWindow {
   }
 
   protected static int setData(long windowPtr, SQLiteStatement stmt) throws SQLiteException {
-    return WINDOW_DATA.setData(windowPtr, stmt);
-  }
-
-  private static Number nativeGetNumber(long windowPtr, int row, int column) {
-    Value value = WINDOW_DATA.get(windowPtr).value(row, column);
-    switch (value.type) {
+    return (int) fillWindow(windowPtr, stmt, 0, 0, true);
+  }
+
+  /**
+   * Fills the window with the rows of {@code stmt}, starting at {@code startPos}, until it's full.
+   *
+   * <p>Follows {@code nativeExecuteForCursorWindow}: if the window fills up before {@code
+   * requiredPos} is reached, it is cleared and filling resumes from there. Rows after the window is
+   * full are only stepped over, and only if {@code countAllRows}.
+   *
+   * @return the start position of the window in the upper 32 bits, and the number of rows stepped
+   *     through in the lower 32 bits
+   */
+  static long fillWindow(
+      long windowPtr, SQLiteStatement stmt, int startPos, int requiredPos, boolean countAllRows)
+      throws SQLiteException {
+    return WINDOW_DATA.fill(windowPtr, stmt, startPos, requiredPos, countAllRows);
+  }
+
+  private static double nativeGetNumber(Data data, int row, int column) {
+    int type = data.type(row, column);
+    switch (type) {
       case Cursor.FIELD_TYPE_NULL:
-      case SQLiteConstants.SQLITE_NULL:
         return 0;
-      case Cursor.FIELD_TYPE_INTEGER:
-      case Cursor.FIELD_TYPE_FLOAT:
-        return (Number) value.value;
       case Cursor.FIELD_TYPE_STRING: {
         try {
-          return Double.parseDouble((String) value.value);
+          return Double.parseDouble(data.getString(row, column));
         } catch (NumberFormatException e) {
           return 0;
         }
       }
       case Cursor.FIELD_TYPE_BLOB:
-        throw new android.database.sqlite.SQLiteException("could not convert "+value);
+        throw new android.database.sqlite.SQLiteException(
+            "could not convert blob at row " + row + ", col " + column);
       default:
-        throw new android.database.sqlite.SQLiteException("unknown type: "+value.type);
+        throw new android.database.sqlite.SQLiteException("unknown type: " + type);
     }
   }
 
+  /**
+   * The contents of a window, stored by column type rather than as boxed values.
+   *
+   * <p>Each field has a type and a {@code long}: the value of integers, the raw bits of floats, or
+   * the offset and length of strings and blobs in a shared byte arena. Strings are stored as UTF-8.
+   */
   private static class Data {
-    private final List<Row> rows;
+    /** Approximate sizes of the native window's row and field slots, for capacity checks. */
+    private static final int ROW_SLOT_SIZE = 4;
+    private static final int FIELD_SLOT_SIZE = 16;
+    private static final int INITIAL_ROWS = 16;
+    private static final int INITIAL_ARENA_SIZE = 256;
+
     private final String name;
+    private final int capacity;
     private int numColumns;
+    private int numRows;
+    private byte[] types = new byte[0];
+    private long[] values = new long[0];
+    private byte[] arena = new byte[0];
+    private int arenaSize;
 
     public Data(String name, int cursorWindowSize) {
       this.name = name;
-      this.rows = new ArrayList<Row>(cursorWindowSize);
+      this.capacity = cursorWindowSize;
     }
 
-    public Value value(int rowN, int colN) {
-      Row row = rows.get(rowN);
-      if (row == null) {
-        throw new IllegalArgumentException("Bad row number: " + rowN + ", count: " + rows.size());
-      }
-      return row.get(colN);
+    public int type(int row, int column) {
+      return types[index(row, column)];
     }
 
-    public int numRows() {
-      return rows.size();
+    public long getLong(int row, int column) {
+      return values[index(row, column)];
     }
 
-    public boolean putValue(Value value, int rowN, int colN) {
-      return rows.get(rowN).set(colN, value);
+    public double getDouble(int row, int column) {
+      return Double.longBitsToDouble(values[index(row, column)]);
     }
 
-    public void fillWith(SQLiteStatement stmt) throws SQLiteException {
-      //Android caches results in the WindowedCursor to allow moveToPrevious() to function.
-      //Robolectric will have to cache the results too. In the rows list.
-      while (stmt.step()) {
-        rows.add(fillRowValues(stmt));
-      }
+    public byte[] getBytes(int row, int column) {
+      long value = values[index(row, column)];
+      int offset = (int) (value >>> 32);
+      return Arrays.copyOfRange(arena, offset, offset + (int) value);
     }
 
-    private static int cursorValueType(final int sqliteType) {
-      switch (sqliteType) {
-        case SQLiteConstants.SQLITE_NULL:    return Cursor.FIELD_TYPE_NULL;
-        case SQLiteConstants.SQLITE_INTEGER: return Cursor.FIELD_TYPE_INTEGER;
-        case SQLiteConstants.SQLITE_FLOAT:   return Cursor.FIELD_TYPE_FLOAT;
-        case SQLiteConstants.SQLITE_TEXT:    return Cursor.FIELD_TYPE_STRING;
-        case SQLiteConstants.SQLITE_BLOB:    return Cursor.FIELD_TYPE_BLOB;
-        default:
-          throw new IllegalArgumentException("Bad SQLite type " + sqliteType + ". See possible values in SQLiteConstants.");
-      }
+    public String getString(int row, int column) {
+      long value = values[index(row, column)];
+      return new String(arena, (int) (value >>> 32), (int) value, UTF_8);
     }
 
-    private static Row fillRowValues(SQLiteStatement stmt) throws SQLiteException {
-      final int columnCount = stmt.columnCount();
-      Row row = new Row(columnCount);
-      for (int index = 0; index < columnCount; index++) {
-        row.set(index, new Value(stmt.columnValue(index), cursorValueType(stmt.columnType(index))));
+    private int index(int row, int column) {
+      if (row < 0 || row >= numRows || column < 0 || column >= numColumns) {
+        throw new IllegalStateException(
+            "Couldn't read row " + row + ", col " + column + " from CursorWindow " + name
+                + " with " + numRows + " rows and " + numColumns + " columns");
       }
-      return row;
+      return row * numColumns + column;
     }
 
-    public void clear() {
-      rows.clear();
+    public int numRows() {
+      return numRows;
     }
 
-    public boolean allocRow() {
-      rows.add(new Row(numColumns));
-      return true;
+    public boolean putNull(int row, int column) {
+      return put(index(row, column), Cursor.FIELD_TYPE_NULL, 0);
     }
 
-    public boolean setNumColumns(int numColumns) {
-      this.numColumns = numColumns;
-      return true;
+    public boolean putLong(int row, int column, long value) {
+      return put(index(row, column), Cursor.FIELD_TYPE_INTEGER, value);
     }
 
-    public String getName() {
-      return name;
+    public boolean putDouble(int row, int column, double value) {
+      return put(
+          index(row, column), Cursor.FIELD_TYPE_FLOAT, Double.doubleToRawLongBits(value));
     }
-  }
 
-  private static class Row {
-    private final List<Value> values;
+    public boolean putBytes(int row, int column, int type, byte[] bytes) {
+      return putBytes(index(row, column), type, bytes);
+    }
 
-    public Row(int length) {
-      values = new ArrayList<Value>(length);
-      for (int i=0; i<length; i++) {
-        values.add(new Value(null, Cursor.FIELD_TYPE_NULL));
+    private boolean putBytes(int index, int type, byte[] bytes) {
+      if (arenaSize + bytes.length > arena.length) {
+        arena =
+            Arrays.copyOf(
+                arena,
+                Math.max(arenaSize + bytes.length, Math.max(INITIAL_ARENA_SIZE, arena.length * 2)));
       }
+      System.arraycopy(bytes, 0, arena, arenaSize, bytes.length);
+      long value = ((long) arenaSize << 32) | bytes.length;
+      arenaSize += bytes.length;
+      return put(index, type, value);
     }
 
-    public Value get(int n) {
-      return values.get(n);
+    private boolean put(int index, int type, long value) {
+      types[index] = (byte) type;
+      values[index] = value;
+      return true;
     }
 
-    public boolean set(int colN, Value value) {
-      values.set(colN, value);
+    public long fillWith(
+        SQLiteStatement stmt, int startPos, int requiredPos, boolean countAllRows)
+        throws SQLiteException {
+      clear();
+      numColumns = stmt.columnCount();
+
+      int totalRows = 0;
+      int addedRows = 0;
+      boolean windowFull = false;
+      try {
+        while ((!windowFull || countAllRows) && stmt.step()) {
+          totalRows++;
+          if (startPos >= totalRows || windowFull) {
+            continue;
+          }
+          boolean copied = copyRow(stmt);
+          if (!copied && addedRows > 0 && startPos + addedRows <= requiredPos) {
+            // The window filled up before reaching the row that's needed, start again from here.
+            clear();
+            startPos += addedRows;
+            addedRows = 0;
+            copied = copyRow(stmt);
+          }
+          if (copied) {
+            addedRows++;
+          } else {
+            windowFull = true;
+          }
+        }
+      } finally {
+        stmt.reset(false);
+      }
+      return ((long) startPos << 32) | (totalRows & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Copies the current row of {@code stmt} into a new row, or returns false if that would exceed
+     * the window's capacity. The first row always fits, so oversized rows are still readable.
+     */
+    private boolean copyRow(SQLiteStatement stmt) throws SQLiteException {
+      int arenaMark = arenaSize;
+      allocRow();
+      int index = (numRows - 1) * numColumns;
+      for (int column = 0; column < numColumns; column++, index++) {
+        int sqliteType = stmt.columnType(column);
+        switch (sqliteType) {
+          case SQLiteConstants.SQLITE_NULL:
+            put(index, Cursor.FIELD_TYPE_NULL, 0);
+            break;
+          case SQLiteConstants.SQLITE_INTEGER:
+            put(index, Cursor.FIELD_TYPE_INTEGER, stmt.columnLong(column));
+            break;
+          case SQLiteConstants.SQLITE_FLOAT:
+            put(
+                index,
+                Cursor.FIELD_TYPE_FLOAT,
+                Double.doubleToRawLongBits(stmt.columnDouble(column)));
+            break;
+          case SQLiteConstants.SQLITE_TEXT:
+            putBytes(index, Cursor.FIELD_TYPE_STRING, stmt.columnString(column).getBytes(UTF_8));
+            break;
+          case SQLiteConstants.SQLITE_BLOB:
+            byte[] blob = stmt.columnBlob(column);
+            putBytes(index, Cursor.FIELD_TYPE_BLOB, blob == null ? new byte[0] : blob);
+            break;
+          default:
+            throw new IllegalArgumentException(
+                "Bad SQLite type " + sqliteType + ". See possible values in SQLiteConstants.");
+        }
+      }
+      if (numRows > 1 && usedBytes() > capacity) {
+        numRows--;
+        arenaSize = arenaMark;
+        return false;
+      }
       return true;
     }
-  }
 
-  private static class Value {
-    private final Object value;
-    private final int type;
+    private long usedBytes() {
+      return (long) numRows * (ROW_SLOT_SIZE + (long) numColumns * FIELD_SLOT_SIZE) + arenaSize;
+    }
+
+    public void clear() {
+      numRows = 0;
+      arenaSize = 0;
+    }
+
+    public boolean allocRow() {
+      int size = (numRows + 1) * numColumns;
+      if (size > types.length) {
+        int newLength = Math.max(size, Math.max(INITIAL_ROWS * numColumns, types.length * 2));
+        types = Arrays.copyOf(types, newLength);
+        values = Arrays.copyOf(values, newLength);
+      }
+      Arrays.fill(types, numRows * numColumns, size, (byte) Cursor.FIELD_TYPE_NULL);
+      numRows++;
+      return true;
+    }
 
-    public Value(final Object value, final int type) {
-      this.value = value;
-      this.type = type;
+    public boolean setNumColumns(int numColumns) {
+      if (numRows > 0 && numColumns != this.numColumns) {
+        return false;
+      }
+      this.numColumns = numColumns;
+      return true;
+    }
+
+    public String getName() {
+      return name;
     }
   }
 
@@ -348,10 +493,14 @@ public class ShadowCursorWindow {
       return data;
     }
 
-    public int setData(final long ptr, final SQLiteStatement stmt) throws SQLiteException {
-      Data data = get(ptr);
-      data.fillWith(stmt);
-      return data.numRows();
+    public long fill(
+        final long ptr,
+        final SQLiteStatement stmt,
+        final int startPos,
+        final int requiredPos,
+        final boolean countAllRows)
+        throws SQLiteException {
+      return get(ptr).fillWith(stmt, startPos, requiredPos, countAllRows);
     }
 
     public void close(final long ptr) {
@@ -42,6 +42,7 @@ public class ShadowDisplayEventReceiver {
   private static NativeObjRegistry<NativeDisplayEventReceiver> nativeObjRegistry =
       new NativeObjRegistry<>(NativeDisplayEventReceiver.class);
   private static int asyncVsyncDelay;
+  private static boolean coalesceFrames;
 
   @RealObject protected DisplayEventReceiver realReceiver;
 
@@ -122,9 +123,14 @@ public class ShadowDisplayEventReceiver {
     asyncVsyncDelay = delayMillis;
   }
 
+  static void setCoalesceFrames(boolean shouldCoalesceFrames) {
+    coalesceFrames = shouldCoalesceFrames;
+  }
+
   @Resetter
   public static void reset() {
     asyncVsyncDelay = 0;
+    coalesceFrames = false;
   }
 
   protected void onVsync() {
@@ -175,6 +181,11 @@ public class ShadowDisplayEventReceiver {
    * use cases, an 'async' callback mode is provided (via the {@link
    * ShadowChoreographer#setPostFrameCallbackDelay(int)} API. In this mode, vsync requests will be
    * scheduled asynchronously by listening to clock updates.
+   *
+   * <p>In the 'coalescing' mode (see {@link ShadowChoreographer#setCoalesceFrames(boolean)}),
+   * vsync requests made from within a frame, e.g. by a running animation, are deferred until the
+   * clock next advances, however far. Requests made outside of a frame, e.g. by a layout change,
+   * are still processed immediately.
    */
   private static class NativeDisplayEventReceiver {
 
@@ -203,7 +214,11 @@ public class ShadowDisplayEventReceiver {
     }
 
     public void scheduleVsync() {
-      if (asyncVsyncDelay > 0 && nextVsyncTime == 0) {
+      if (coalesceFrames && ShadowPausedChoreographer.isInFrame()) {
+        if (nextVsyncTime == 0) {
+          nextVsyncTime = SystemClock.uptimeMillis() + 1;
+        }
+      } else if (asyncVsyncDelay > 0 && nextVsyncTime == 0) {
         nextVsyncTime = SystemClock.uptimeMillis() + asyncVsyncDelay;
       } else {
         // simulate an immediate callback
@@ -10,13 +10,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
+import org.robolectric.res.FontFileCache;
 import org.robolectric.res.android.ApkAssetsCookie;
 import org.robolectric.res.android.Asset;
 import org.robolectric.res.android.Asset.AccessMode;
 import org.robolectric.res.android.CppAssetManager2;
 import org.robolectric.res.android.Registries;
+import org.robolectric.shadow.api.Shadow;
 
 /** Shadow for {@link android.graphics.fonts.Font.Builder} */
 @Implements(value = Font.Builder.class, minSdk = Q)
@@ -80,13 +84,27 @@ public class ShadowFontBuilder {
     return 0;
   }
 
-  /** Re-implement to avoid call to DirectByteBuffer#array, which is not supported on JDK */
+  /**
+   * Re-implement to avoid call to DirectByteBuffer#array, which is not supported on JDK.
+   *
+   * <p>Assets found in the asset directories are shared through {@link FontFileCache}.
+   */
   @Implementation(minSdk = R)
   protected static ByteBuffer createBuffer(
       AssetManager am, String path, boolean isAsset, int cookie) throws IOException {
     Preconditions.checkNotNull(am, "assetManager can not be null");
     Preconditions.checkNotNull(path, "path can not be null");
 
+    if (isAsset) {
+      ShadowAssetManager shadowAssetManager = Shadow.extract(am);
+      for (Path assetDir : shadowAssetManager.getAllAssetDirs()) {
+        Path assetFile = assetDir.resolve(path);
+        if (Files.isRegularFile(assetFile)) {
+          return FontFileCache.getFontFile(assetFile).order(ByteOrder.nativeOrder());
+        }
+      }
+    }
+
     try (InputStream assetStream =
         isAsset
             ? am.open(path, AssetManager.ACCESS_BUFFER)
@@ -609,8 +609,7 @@ public class ShadowLegacyAssetManager extends ShadowAssetManager {
 
   private XmlResourceParser getXmlResourceParser(ResourceTable resourceProvider, XmlBlock block, String packageName) {
     return new XmlResourceParserImpl(
-        block.getDocument(),
-        block.getPath(),
+        block,
         block.getPackageName(),
         packageName,
         resourceProvider);
@@ -8,11 +8,9 @@ import android.graphics.Matrix.ScaleToFit;
 import android.graphics.PointF;
 import android.graphics.RectF;
 import java.awt.geom.AffineTransform;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,9 +31,16 @@ public class ShadowMatrix {
 
   private static final float EPSILON = 1e-3f;
 
-  private final Deque<String> preOps = new ArrayDeque<>();
-  private final Deque<String> postOps = new ArrayDeque<>();
-  private final Map<String, String> setOps = new LinkedHashMap<>();
+  private static final Operation[] NO_OPERATIONS = new Operation[0];
+
+  // Operations are recorded as their arguments and only described on demand, as matrices are
+  // mutated constantly while drawing. The lists are immutable, so set(Matrix) can share them.
+  /** The last 'pre' operation, linked to the ones before it. */
+  private Operation preOps;
+  /** The last 'post' operation, linked to the ones before it. */
+  private Operation postOps;
+  /** The last 'set' operation of each type, in the order the types were first set. */
+  private Operation[] setOps = NO_OPERATIONS;
 
   private SimpleMatrix simpleMatrix = SimpleMatrix.newIdentityMatrix();
 
@@ -50,7 +55,7 @@ public class ShadowMatrix {
    * @return A list of all 'pre' operations performed on this Matrix.
    */
   public List<String> getPreOperations() {
-    return Collections.unmodifiableList(new ArrayList<>(preOps));
+    return Collections.unmodifiableList(describe(preOps));
   }
 
   /**
@@ -59,7 +64,9 @@ public class ShadowMatrix {
    * @return A list of all 'post' operations performed on this Matrix.
    */
   public List<String> getPostOperations() {
-    return Collections.unmodifiableList(new ArrayList<>(postOps));
+    List<String> descriptions = describe(postOps);
+    Collections.reverse(descriptions);
+    return Collections.unmodifiableList(descriptions);
   }
 
   /**
@@ -67,7 +74,11 @@ public class ShadowMatrix {
    * @return A map of all 'set' operations performed on this Matrix.
    */
   public Map<String, String> getSetOperations() {
-    return Collections.unmodifiableMap(new LinkedHashMap<>(setOps));
+    Map<String, String> descriptions = new LinkedHashMap<>();
+    for (Operation operation : setOps) {
+      descriptions.put(operation.type, operation.describeArgs());
+    }
+    return Collections.unmodifiableMap(descriptions);
   }
 
   @Implementation
@@ -100,72 +111,72 @@ public class ShadowMatrix {
     reset();
     if (src != null) {
       ShadowMatrix shadowMatrix = Shadow.extract(src);
-      preOps.addAll(shadowMatrix.preOps);
-      postOps.addAll(shadowMatrix.postOps);
-      setOps.putAll(shadowMatrix.setOps);
+      preOps = shadowMatrix.preOps;
+      postOps = shadowMatrix.postOps;
+      setOps = shadowMatrix.setOps;
       simpleMatrix = new SimpleMatrix(getSimpleMatrix(src));
     }
   }
 
   @Implementation
   protected void reset() {
-    preOps.clear();
-    postOps.clear();
-    setOps.clear();
+    preOps = null;
+    postOps = null;
+    setOps = NO_OPERATIONS;
     simpleMatrix = SimpleMatrix.newIdentityMatrix();
   }
 
   @Implementation
   protected void setTranslate(float dx, float dy) {
-    setOps.put(TRANSLATE, dx + " " + dy);
+    putSetOperation(new Operation(TRANSLATE, null, dx, dy));
     simpleMatrix = SimpleMatrix.translate(dx, dy);
   }
 
   @Implementation
   protected void setScale(float sx, float sy, float px, float py) {
-    setOps.put(SCALE, sx + " " + sy + " " + px + " " + py);
+    putSetOperation(new Operation(SCALE, null, sx, sy, px, py));
     simpleMatrix = SimpleMatrix.scale(sx, sy, px, py);
   }
 
   @Implementation
   protected void setScale(float sx, float sy) {
-    setOps.put(SCALE, sx + " " + sy);
+    putSetOperation(new Operation(SCALE, null, sx, sy));
     simpleMatrix = SimpleMatrix.scale(sx, sy);
   }
 
   @Implementation
   protected void setRotate(float degrees, float px, float py) {
-    setOps.put(ROTATE, degrees + " " + px + " " + py);
+    putSetOperation(new Operation(ROTATE, null, degrees, px, py));
     simpleMatrix = SimpleMatrix.rotate(degrees, px, py);
   }
 
   @Implementation
   protected void setRotate(float degrees) {
-    setOps.put(ROTATE, Float.toString(degrees));
+    putSetOperation(new Operation(ROTATE, null, degrees));
     simpleMatrix = SimpleMatrix.rotate(degrees);
   }
 
   @Implementation
   protected void setSinCos(float sinValue, float cosValue, float px, float py) {
-    setOps.put(SINCOS, sinValue + " " + cosValue + " " + px + " " + py);
+    putSetOperation(new Operation(SINCOS, null, sinValue, cosValue, px, py));
     simpleMatrix = SimpleMatrix.sinCos(sinValue, cosValue, px, py);
   }
 
   @Implementation
   protected void setSinCos(float sinValue, float cosValue) {
-    setOps.put(SINCOS, sinValue + " " + cosValue);
+    putSetOperation(new Operation(SINCOS, null, sinValue, cosValue));
     simpleMatrix = SimpleMatrix.sinCos(sinValue, cosValue);
   }
 
   @Implementation
   protected void setSkew(float kx, float ky, float px, float py) {
-    setOps.put(SKEW, kx + " " + ky + " " + px + " " + py);
+    putSetOperation(new Operation(SKEW, null, kx, ky, px, py));
     simpleMatrix = SimpleMatrix.skew(kx, ky, px, py);
   }
 
   @Implementation
   protected void setSkew(float kx, float ky) {
-    setOps.put(SKEW, kx + " " + ky);
+    putSetOperation(new Operation(SKEW, null, kx, ky));
     simpleMatrix = SimpleMatrix.skew(kx, ky);
   }
 
@@ -177,97 +188,97 @@ public class ShadowMatrix {
 
   @Implementation
   protected boolean preTranslate(float dx, float dy) {
-    preOps.addFirst(TRANSLATE + " " + dx + " " + dy);
+    preOps = new Operation(TRANSLATE, preOps, dx, dy);
     return preConcat(SimpleMatrix.translate(dx, dy));
   }
 
   @Implementation
   protected boolean preScale(float sx, float sy, float px, float py) {
-    preOps.addFirst(SCALE + " " + sx + " " + sy + " " + px + " " + py);
+    preOps = new Operation(SCALE, preOps, sx, sy, px, py);
     return preConcat(SimpleMatrix.scale(sx, sy, px, py));
   }
 
   @Implementation
   protected boolean preScale(float sx, float sy) {
-    preOps.addFirst(SCALE + " " + sx + " " + sy);
+    preOps = new Operation(SCALE, preOps, sx, sy);
     return preConcat(SimpleMatrix.scale(sx, sy));
   }
 
   @Implementation
   protected boolean preRotate(float degrees, float px, float py) {
-    preOps.addFirst(ROTATE + " " + degrees + " " + px + " " + py);
+    preOps = new Operation(ROTATE, preOps, degrees, px, py);
     return preConcat(SimpleMatrix.rotate(degrees, px, py));
   }
 
   @Implementation
   protected boolean preRotate(float degrees) {
-    preOps.addFirst(ROTATE + " " + Float.toString(degrees));
+    preOps = new Operation(ROTATE, preOps, degrees);
     return preConcat(SimpleMatrix.rotate(degrees));
   }
 
   @Implementation
   protected boolean preSkew(float kx, float ky, float px, float py) {
-    preOps.addFirst(SKEW + " " + kx + " " + ky + " " + px + " " + py);
+    preOps = new Operation(SKEW, preOps, kx, ky, px, py);
     return preConcat(SimpleMatrix.skew(kx, ky, px, py));
   }
 
   @Implementation
   protected boolean preSkew(float kx, float ky) {
-    preOps.addFirst(SKEW + " " + kx + " " + ky);
+    preOps = new Operation(SKEW, preOps, kx, ky);
     return preConcat(SimpleMatrix.skew(kx, ky));
   }
 
   @Implementation
   protected boolean preConcat(Matrix other) {
-    preOps.addFirst(MATRIX + " " + other);
+    preOps = new Operation(MATRIX, preOps, getValues(other));
     return preConcat(getSimpleMatrix(other));
   }
 
   @Implementation
   protected boolean postTranslate(float dx, float dy) {
-    postOps.addLast(TRANSLATE + " " + dx + " " + dy);
+    postOps = new Operation(TRANSLATE, postOps, dx, dy);
     return postConcat(SimpleMatrix.translate(dx, dy));
   }
 
   @Implementation
   protected boolean postScale(float sx, float sy, float px, float py) {
-    postOps.addLast(SCALE + " " + sx + " " + sy + " " + px + " " + py);
+    postOps = new Operation(SCALE, postOps, sx, sy, px, py);
     return postConcat(SimpleMatrix.scale(sx, sy, px, py));
   }
 
   @Implementation
   protected boolean postScale(float sx, float sy) {
-    postOps.addLast(SCALE + " " + sx + " " + sy);
+    postOps = new Operation(SCALE, postOps, sx, sy);
     return postConcat(SimpleMatrix.scale(sx, sy));
   }
 
   @Implementation
   protected boolean postRotate(float degrees, float px, float py) {
-    postOps.addLast(ROTATE + " " + degrees + " " + px + " " + py);
+    postOps = new Operation(ROTATE, postOps, degrees, px, py);
     return postConcat(SimpleMatrix.rotate(degrees, px, py));
   }
 
   @Implementation
   protected boolean postRotate(float degrees) {
-    postOps.addLast(ROTATE + " " + Float.toString(degrees));
+    postOps = new Operation(ROTATE, postOps, degrees);
     return postConcat(SimpleMatrix.rotate(degrees));
   }
 
   @Implementation
   protected boolean postSkew(float kx, float ky, float px, float py) {
-    postOps.addLast(SKEW + " " + kx + " " + ky + " " + px + " " + py);
+    postOps = new Operation(SKEW, postOps, kx, ky, px, py);
     return postConcat(SimpleMatrix.skew(kx, ky, px, py));
   }
 
   @Implementation
   protected boolean postSkew(float kx, float ky) {
-    postOps.addLast(SKEW + " " + kx + " " + ky);
+    postOps = new Operation(SKEW, postOps, kx, ky);
     return postConcat(SimpleMatrix.skew(kx, ky));
   }
 
   @Implementation
   protected boolean postConcat(Matrix other) {
-    postOps.addLast(MATRIX + " " + other);
+    postOps = new Operation(MATRIX, postOps, getValues(other));
     return postConcat(getSimpleMatrix(other));
   }
 
@@ -385,7 +396,13 @@ public class ShadowMatrix {
   }
 
   public String getDescription() {
-    return "Matrix[pre=" + preOps + ", set=" + setOps + ", post=" + postOps + "]";
+    return "Matrix[pre="
+        + getPreOperations()
+        + ", set="
+        + getSetOperations()
+        + ", post="
+        + getPostOperations()
+        + "]";
   }
 
   private static SimpleMatrix getSimpleMatrix(Matrix matrix) {
@@ -393,6 +410,35 @@ public class ShadowMatrix {
     return otherMatrix.simpleMatrix;
   }
 
+  private static float[] getValues(Matrix matrix) {
+    float[] values = new float[9];
+    getSimpleMatrix(matrix).getValues(values);
+    return values;
+  }
+
+  /** Describes {@code last} and the operations linked before it, the last one first. */
+  private static List<String> describe(Operation last) {
+    List<String> descriptions = new ArrayList<>();
+    for (Operation operation = last; operation != null; operation = operation.previous) {
+      descriptions.add(operation.type + " " + operation.describeArgs());
+    }
+    return descriptions;
+  }
+
+  private void putSetOperation(Operation operation) {
+    for (int i = 0; i < setOps.length; i++) {
+      if (setOps[i].type.equals(operation.type)) {
+        Operation[] updated = setOps.clone();
+        updated[i] = operation;
+        setOps = updated;
+        return;
+      }
+    }
+    Operation[] updated = Arrays.copyOf(setOps, setOps.length + 1);
+    updated[setOps.length] = operation;
+    setOps = updated;
+  }
+
   private boolean postConcat(SimpleMatrix matrix) {
     simpleMatrix = matrix.multiply(simpleMatrix);
     return true;
@@ -403,6 +449,36 @@ public class ShadowMatrix {
     return true;
   }
 
+  /** An operation performed on a Matrix, described on demand. */
+  private static final class Operation {
+    private final String type;
+    private final Operation previous;
+    /** The operation's arguments, or the values of the concatenated matrix for {@link #MATRIX}. */
+    private final float[] args;
+
+    Operation(String type, Operation previous, float... args) {
+      this.type = type;
+      this.previous = previous;
+      this.args = args;
+    }
+
+    String describeArgs() {
+      if (MATRIX.equals(type)) {
+        Matrix matrix = new Matrix();
+        matrix.setValues(args);
+        return matrix.toString();
+      }
+      StringBuilder description = new StringBuilder();
+      for (int i = 0; i < args.length; i++) {
+        if (i > 0) {
+          description.append(' ');
+        }
+        description.append(args[i]);
+      }
+      return description.toString();
+    }
+  }
+
   /**
    * A simple implementation of an immutable matrix.
    */
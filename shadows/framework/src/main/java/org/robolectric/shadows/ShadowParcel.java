@@ -31,11 +31,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import org.robolectric.annotation.HiddenApi;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
 import org.robolectric.annotation.RealObject;
+import org.robolectric.annotation.Resetter;
 import org.robolectric.res.android.NativeObjRegistry;
 import org.robolectric.util.ReflectionHelpers;
 import org.robolectric.util.ReflectionHelpers.ClassParameter;
@@ -46,14 +49,53 @@ import org.robolectric.util.ReflectionHelpers.ClassParameter;
  * is strongly typed, to detect non-portable code and common testing mistakes. It may throw {@link
  * IllegalArgumentException} or {@link IllegalStateException} for error-prone behavior normal {@link
  * Parcel} tolerates.
+ *
+ * <p>Alternatively, {@link #setByteBacked(boolean)} makes parcels store real bytes in native
+ * Parcel's layout, trading these checks for speed.
  */
 @Implements(Parcel.class)
 public class ShadowParcel {
   private static final String TAG = "Parcel";
 
   @RealObject private Parcel realObject;
-  private static final NativeObjRegistry<ByteBuffer> NATIVE_BYTE_BUFFER_REGISTRY =
-      new NativeObjRegistry<>(ByteBuffer.class);
+  private static final NativeObjRegistry<ParcelBuffer> NATIVE_BYTE_BUFFER_REGISTRY =
+      new NativeObjRegistry<>(ParcelBuffer.class);
+
+  private static final boolean BYTE_BACKED_BY_DEFAULT =
+      Boolean.getBoolean("robolectric.parcel.byteBacked");
+  private static volatile boolean byteBacked = BYTE_BACKED_BY_DEFAULT;
+
+  /**
+   * Makes Parcels store real bytes in native Parcel's layout, instead of the strongly typed
+   * representation described above. Applies to parcels which haven't been written to yet,
+   * including recycled ones.
+   *
+   * <p>This is faster and uses less memory for large parcels, and marshalling is a plain copy of
+   * the bytes, but none of the checks for error-prone behavior are made. Can also be enabled with
+   * the {@code robolectric.parcel.byteBacked} system property.
+   */
+  public static void setByteBacked(boolean shouldBeByteBacked) {
+    byteBacked = shouldBeByteBacked;
+  }
+
+  @Resetter
+  public static void reset() {
+    byteBacked = BYTE_BACKED_BY_DEFAULT;
+  }
+
+  private static ParcelBuffer newParcelBuffer() {
+    return byteBacked ? new NativeByteBuffer() : new ByteBuffer();
+  }
+
+  private static ParcelBuffer getParcelBuffer(long nativePtr) {
+    ParcelBuffer buffer = NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr);
+    if (byteBacked != (buffer instanceof NativeByteBuffer) && buffer.dataCapacity() == 0) {
+      // An unused parcel, possibly a recycled one from Parcel.obtain()'s pool; switch its mode.
+      buffer = newParcelBuffer();
+      NATIVE_BYTE_BUFFER_REGISTRY.update(nativePtr, buffer);
+    }
+    return buffer;
+  }
 
   @Implementation(maxSdk = JELLY_BEAN_MR1)
   @SuppressWarnings("TypeParameterUnusedInFormals")
@@ -155,7 +197,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static int nativeDataSize(long nativePtr) {
-    return NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).dataSize();
+    return getParcelBuffer(nativePtr).dataSize();
   }
 
   @HiddenApi
@@ -166,7 +208,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static int nativeDataAvail(long nativePtr) {
-    return NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).dataAvailable();
+    return getParcelBuffer(nativePtr).dataAvailable();
   }
 
   @HiddenApi
@@ -177,7 +219,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static int nativeDataPosition(long nativePtr) {
-    return NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).dataPosition();
+    return getParcelBuffer(nativePtr).dataPosition();
   }
 
   @HiddenApi
@@ -188,7 +230,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static int nativeDataCapacity(long nativePtr) {
-    return NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).dataCapacity();
+    return getParcelBuffer(nativePtr).dataCapacity();
   }
 
   @HiddenApi
@@ -200,7 +242,7 @@ public class ShadowParcel {
   @Implementation(minSdk = LOLLIPOP)
   @SuppressWarnings("robolectric.ShadowReturnTypeMismatch")
   protected static void nativeSetDataSize(long nativePtr, int size) {
-    NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).setDataSize(size);
+    getParcelBuffer(nativePtr).setDataSize(size);
   }
 
   @HiddenApi
@@ -211,7 +253,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static void nativeSetDataPosition(long nativePtr, int pos) {
-    NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).setDataPosition(pos);
+    getParcelBuffer(nativePtr).setDataPosition(pos);
   }
 
   @HiddenApi
@@ -222,7 +264,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static void nativeSetDataCapacity(long nativePtr, int size) {
-    NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).setDataCapacityAtLeast(size);
+    getParcelBuffer(nativePtr).setDataCapacityAtLeast(size);
   }
 
   @HiddenApi
@@ -233,7 +275,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static void nativeWriteByteArray(long nativePtr, byte[] b, int offset, int len) {
-    NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).writeByteArray(b, offset, len);
+    getParcelBuffer(nativePtr).writeByteArray(b, offset, len);
   }
 
   // duplicate the writeBlob implementation from latest android, to avoid referencing the
@@ -273,7 +315,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP, maxSdk = R)
   protected static void nativeWriteInt(long nativePtr, int val) {
-    NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).writeInt(val);
+    getParcelBuffer(nativePtr).writeInt(val);
   }
 
   @HiddenApi
@@ -284,7 +326,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP, maxSdk = R)
   protected static void nativeWriteLong(long nativePtr, long val) {
-    NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).writeLong(val);
+    getParcelBuffer(nativePtr).writeLong(val);
   }
 
   @HiddenApi
@@ -295,7 +337,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP, maxSdk = R)
   protected static void nativeWriteFloat(long nativePtr, float val) {
-    NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).writeFloat(val);
+    getParcelBuffer(nativePtr).writeFloat(val);
   }
 
   @HiddenApi
@@ -306,7 +348,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP, maxSdk = R)
   protected static void nativeWriteDouble(long nativePtr, double val) {
-    NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).writeDouble(val);
+    getParcelBuffer(nativePtr).writeDouble(val);
   }
 
   @HiddenApi
@@ -317,7 +359,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP, maxSdk = Q)
   protected static void nativeWriteString(long nativePtr, String val) {
-    NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).writeString(val);
+    getParcelBuffer(nativePtr).writeString(val);
   }
 
   @HiddenApi
@@ -328,7 +370,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static void nativeWriteStrongBinder(long nativePtr, IBinder val) {
-    NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).writeStrongBinder(val);
+    getParcelBuffer(nativePtr).writeStrongBinder(val);
   }
 
   @HiddenApi
@@ -339,7 +381,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static byte[] nativeCreateByteArray(long nativePtr) {
-    return NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).createByteArray();
+    return getParcelBuffer(nativePtr).createByteArray();
   }
 
   // nativeReadBlob was introduced in lollipop, thus no need for a int nativePtr variant
@@ -350,7 +392,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = O_MR1)
   protected static boolean nativeReadByteArray(long nativePtr, byte[] dest, int destLen) {
-    return NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).readByteArray(dest, destLen);
+    return getParcelBuffer(nativePtr).readByteArray(dest, destLen);
   }
 
   @HiddenApi
@@ -361,7 +403,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static int nativeReadInt(long nativePtr) {
-    return NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).readInt();
+    return getParcelBuffer(nativePtr).readInt();
   }
 
   @HiddenApi
@@ -372,7 +414,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static long nativeReadLong(long nativePtr) {
-    return NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).readLong();
+    return getParcelBuffer(nativePtr).readLong();
   }
 
   @HiddenApi
@@ -383,7 +425,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static float nativeReadFloat(long nativePtr) {
-    return NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).readFloat();
+    return getParcelBuffer(nativePtr).readFloat();
   }
 
   @HiddenApi
@@ -394,7 +436,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static double nativeReadDouble(long nativePtr) {
-    return NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).readDouble();
+    return getParcelBuffer(nativePtr).readDouble();
   }
 
   @HiddenApi
@@ -405,7 +447,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP, maxSdk = Q)
   protected static String nativeReadString(long nativePtr) {
-    return NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).readString();
+    return getParcelBuffer(nativePtr).readString();
   }
 
   @HiddenApi
@@ -416,13 +458,13 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static IBinder nativeReadStrongBinder(long nativePtr) {
-    return NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).readStrongBinder();
+    return getParcelBuffer(nativePtr).readStrongBinder();
   }
 
   @Implementation
   @HiddenApi
   public static Number nativeCreate() {
-    return castNativePtr(NATIVE_BYTE_BUFFER_REGISTRY.register(new ByteBuffer()));
+    return castNativePtr(NATIVE_BYTE_BUFFER_REGISTRY.register(newParcelBuffer()));
   }
 
   @HiddenApi
@@ -434,7 +476,7 @@ public class ShadowParcel {
   @Implementation(minSdk = LOLLIPOP)
   @SuppressWarnings("robolectric.ShadowReturnTypeMismatch")
   protected static void nativeFreeBuffer(long nativePtr) {
-    NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).clear();
+    getParcelBuffer(nativePtr).clear();
   }
 
   @HiddenApi
@@ -456,7 +498,7 @@ public class ShadowParcel {
 
   @Implementation(minSdk = LOLLIPOP)
   protected static byte[] nativeMarshall(long nativePtr) {
-    return NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).toByteArray();
+    return getParcelBuffer(nativePtr).toByteArray();
   }
 
   @HiddenApi
@@ -468,7 +510,13 @@ public class ShadowParcel {
   @Implementation(minSdk = LOLLIPOP)
   @SuppressWarnings("robolectric.ShadowReturnTypeMismatch")
   protected static void nativeUnmarshall(long nativePtr, byte[] data, int offset, int length) {
-    NATIVE_BYTE_BUFFER_REGISTRY.update(nativePtr, ByteBuffer.fromByteArray(data, offset, length));
+    ParcelBuffer buffer = getParcelBuffer(nativePtr);
+    if (buffer instanceof NativeByteBuffer) {
+      ((NativeByteBuffer) buffer).unmarshall(data, offset, length);
+    } else {
+      NATIVE_BYTE_BUFFER_REGISTRY.update(
+          nativePtr, ByteBuffer.fromByteArray(data, offset, length));
+    }
   }
 
   @HiddenApi
@@ -482,8 +530,8 @@ public class ShadowParcel {
   @SuppressWarnings("robolectric.ShadowReturnTypeMismatch")
   protected static void nativeAppendFrom(
       long thisNativePtr, long otherNativePtr, int offset, int length) {
-    ByteBuffer thisByteBuffer = NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(thisNativePtr);
-    ByteBuffer otherByteBuffer = NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(otherNativePtr);
+    ParcelBuffer thisByteBuffer = getParcelBuffer(thisNativePtr);
+    ParcelBuffer otherByteBuffer = getParcelBuffer(otherNativePtr);
     thisByteBuffer.appendFrom(otherByteBuffer, offset, length);
   }
 
@@ -596,7 +644,7 @@ public class ShadowParcel {
    *       only at most one allocation for every 4 byte positions.
    * </ul>
    */
-  private static class ByteBuffer {
+  private static class ByteBuffer implements ParcelBuffer {
     /** Number of bytes in Parcel used by an int, length, or anything smaller. */
     private static final int INT_SIZE_BYTES = 4;
     /** Number of bytes in Parcel used by a long or double. */
@@ -839,11 +887,17 @@ public class ShadowParcel {
      * Appends the contents of the other byte buffer to this byte buffer starting at offset and
      * ending at length.
      *
-     * @param other ByteBuffer to append to this one
+     * @param otherBuffer ByteBuffer to append to this one
      * @param offset number of bytes from beginning of byte buffer to start copy from
      * @param length number of bytes to copy
      */
-    public void appendFrom(ByteBuffer other, int offset, int length) {
+    @Override
+    public void appendFrom(ParcelBuffer otherBuffer, int offset, int length) {
+      if (!(otherBuffer instanceof ByteBuffer)) {
+        throw new IllegalArgumentException(
+            "Can't append from a parcel created with a different ShadowParcel mode");
+      }
+      ByteBuffer other = (ByteBuffer) otherBuffer;
       int oldSize = dataSize;
       if (dataPosition != dataSize) {
         // Parcel.cpp will always expand the buffer by length even if it is overwriting existing
@@ -1195,6 +1249,373 @@ public class ShadowParcel {
     }
   }
 
+  /** The operations Parcel's native code performs on its data buffer. */
+  private interface ParcelBuffer {
+    void clear();
+
+    byte[] createByteArray();
+
+    boolean readByteArray(byte[] dest, int destLen);
+
+    void writeByteArray(byte[] b, int offset, int length);
+
+    void writeInt(int i);
+
+    int readInt();
+
+    void writeLong(long l);
+
+    long readLong();
+
+    void writeFloat(float f);
+
+    float readFloat();
+
+    void writeDouble(double d);
+
+    double readDouble();
+
+    void writeString(String s);
+
+    String readString();
+
+    void writeStrongBinder(IBinder b);
+
+    IBinder readStrongBinder();
+
+    void appendFrom(ParcelBuffer other, int offset, int length);
+
+    byte[] toByteArray();
+
+    int dataAvailable();
+
+    int dataCapacity();
+
+    int dataPosition();
+
+    int dataSize();
+
+    void setDataPosition(int pos);
+
+    void setDataSize(int size);
+
+    void setDataCapacityAtLeast(int newCapacity);
+  }
+
+  /**
+   * A Parcel data buffer holding real bytes, laid out like native Parcel's on a little-endian
+   * device: primitives aligned to 4 bytes, strings as a length followed by null-terminated UTF-16
+   * characters, and byte arrays as a length followed by the bytes. Marshalling and unmarshalling
+   * copy the bytes as they are.
+   *
+   * <p>Unlike {@link ByteBuffer}, this tolerates everything native Parcel does, e.g. reading a
+   * value as another type. Binders can't be turned into bytes, so they are kept aside by position,
+   * and parcels containing them can't be marshalled, as on a device.
+   */
+  private static class NativeByteBuffer implements ParcelBuffer {
+    /** Size of struct flat_binder_object on 64-bit devices. */
+    private static final int BINDER_SIZE_BYTES = 24;
+    /** B_PACK_CHARS('s', 'b', '*', B_TYPE_LARGE), the type of a local binder object. */
+    private static final int BINDER_TYPE_BINDER = 0x73622a85;
+
+    private byte[] data = ByteBuffer.EMPTY_BYTE_ARRAY;
+    private int dataPosition;
+    private int dataSize;
+    /** Binders written to this buffer, by the position of their flat_binder_object. */
+    private final TreeMap<Integer, IBinder> binders = new TreeMap<>();
+
+    @Override
+    public void clear() {
+      data = ByteBuffer.EMPTY_BYTE_ARRAY;
+      dataPosition = 0;
+      dataSize = 0;
+      binders.clear();
+    }
+
+    @Override
+    public byte[] createByteArray() {
+      int length = readInt();
+      if (length < 0 || length > dataAvailable()) {
+        return null;
+      }
+      byte[] result = Arrays.copyOfRange(data, dataPosition, dataPosition + length);
+      skip(alignToInt(length));
+      return result;
+    }
+
+    @Override
+    public boolean readByteArray(byte[] dest, int destLen) {
+      int length = readInt();
+      if (length < 0 || length > dataAvailable() || length != destLen) {
+        return false;
+      }
+      System.arraycopy(data, dataPosition, dest, 0, length);
+      skip(alignToInt(length));
+      return true;
+    }
+
+    @Override
+    public void writeByteArray(byte[] b, int offset, int length) {
+      writeInt(length);
+      int position = reserve(alignToInt(length));
+      System.arraycopy(b, offset, data, position, length);
+      Arrays.fill(data, position + length, dataPosition, (byte) 0);
+    }
+
+    @Override
+    public void writeInt(int i) {
+      putInt(reserve(4), i);
+    }
+
+    @Override
+    public int readInt() {
+      if (dataAvailable() < 4) {
+        return 0;
+      }
+      int value = getInt(dataPosition);
+      dataPosition += 4;
+      return value;
+    }
+
+    @Override
+    public void writeLong(long l) {
+      int position = reserve(8);
+      putInt(position, (int) l);
+      putInt(position + 4, (int) (l >>> 32));
+    }
+
+    @Override
+    public long readLong() {
+      if (dataAvailable() < 8) {
+        return 0;
+      }
+      long value = (getInt(dataPosition) & 0xffffffffL) | ((long) getInt(dataPosition + 4) << 32);
+      dataPosition += 8;
+      return value;
+    }
+
+    @Override
+    public void writeFloat(float f) {
+      writeInt(Float.floatToRawIntBits(f));
+    }
+
+    @Override
+    public float readFloat() {
+      return Float.intBitsToFloat(readInt());
+    }
+
+    @Override
+    public void writeDouble(double d) {
+      writeLong(Double.doubleToRawLongBits(d));
+    }
+
+    @Override
+    public double readDouble() {
+      return Double.longBitsToDouble(readLong());
+    }
+
+    @Override
+    public void writeString(String s) {
+      if (s == null) {
+        writeInt(-1);
+        return;
+      }
+      int length = s.length();
+      writeInt(length);
+      int position = reserve(alignToInt((length + 1) * 2));
+      for (int i = 0; i < length; i++) {
+        char c = s.charAt(i);
+        data[position++] = (byte) c;
+        data[position++] = (byte) (c >>> 8);
+      }
+      // null terminator and padding
+      Arrays.fill(data, position, dataPosition, (byte) 0);
+    }
+
+    @Override
+    public String readString() {
+      if (dataAvailable() < 4) {
+        return null;
+      }
+      int length = readInt();
+      if (length < 0 || length >= Integer.MAX_VALUE / 2) {
+        return null;
+      }
+      int sizeBytes = alignToInt((length + 1) * 2);
+      if (sizeBytes > dataAvailable()) {
+        return null;
+      }
+      char[] chars = new char[length];
+      for (int i = 0, position = dataPosition; i < length; i++, position += 2) {
+        chars[i] = (char) ((data[position] & 0xff) | (data[position + 1] << 8));
+      }
+      skip(sizeBytes);
+      return new String(chars);
+    }
+
+    @Override
+    public void writeStrongBinder(IBinder b) {
+      int position = reserve(BINDER_SIZE_BYTES);
+      Arrays.fill(data, position, position + BINDER_SIZE_BYTES, (byte) 0);
+      putInt(position, BINDER_TYPE_BINDER);
+      if (b != null) {
+        putInt(position + 8, 1);
+        binders.put(position, b);
+      }
+    }
+
+    @Override
+    public IBinder readStrongBinder() {
+      if (dataAvailable() < BINDER_SIZE_BYTES) {
+        return null;
+      }
+      IBinder binder = binders.get(dataPosition);
+      dataPosition += BINDER_SIZE_BYTES;
+      return binder;
+    }
+
+    @Override
+    public void appendFrom(ParcelBuffer otherBuffer, int offset, int length) {
+      if (!(otherBuffer instanceof NativeByteBuffer)) {
+        throw new IllegalArgumentException(
+            "Can't append from a parcel created with a different ShadowParcel mode");
+      }
+      NativeByteBuffer other = (NativeByteBuffer) otherBuffer;
+      if (offset < 0 || length < 0 || offset > other.dataSize - length) {
+        throw new IllegalArgumentException(
+            "appendFrom(" + offset + ", " + length + ") out of bounds of " + other.dataSize);
+      }
+      int position = dataPosition;
+      // Like Parcel.cpp, this grows the data size by length even when not appending at the end.
+      int newSize = dataSize + length;
+      setDataCapacityAtLeast(Math.max(newSize, position + length));
+      System.arraycopy(other.data, offset, data, position, length);
+      removeBinders(position, position + length);
+      if (!other.binders.isEmpty() && length >= BINDER_SIZE_BYTES) {
+        for (Map.Entry<Integer, IBinder> entry :
+            other.binders.subMap(offset, offset + length - BINDER_SIZE_BYTES + 1).entrySet()) {
+          binders.put(entry.getKey() - offset + position, entry.getValue());
+        }
+      }
+      dataPosition = position + length;
+      dataSize = newSize;
+    }
+
+    @Override
+    public byte[] toByteArray() {
+      if (!binders.isEmpty()) {
+        throw new RuntimeException("Tried to marshall a Parcel that contained Binder objects.");
+      }
+      return Arrays.copyOf(data, dataSize);
+    }
+
+    /** Replaces the contents with the given bytes, leaving the position at their end. */
+    void unmarshall(byte[] bytes, int offset, int length) {
+      dataPosition = 0;
+      dataSize = 0;
+      binders.clear();
+      System.arraycopy(bytes, offset, data, reserve(length), length);
+    }
+
+    @Override
+    public int dataAvailable() {
+      return Math.max(0, dataSize - dataPosition);
+    }
+
+    @Override
+    public int dataCapacity() {
+      return data.length;
+    }
+
+    @Override
+    public int dataPosition() {
+      return dataPosition;
+    }
+
+    @Override
+    public int dataSize() {
+      return dataSize;
+    }
+
+    @Override
+    public void setDataPosition(int pos) {
+      dataPosition = pos;
+    }
+
+    @Override
+    public void setDataSize(int size) {
+      setDataCapacityAtLeast(size);
+      if (size > dataSize) {
+        Arrays.fill(data, dataSize, size, (byte) 0);
+      } else {
+        removeBinders(size, dataSize);
+      }
+      dataSize = size;
+      if (dataPosition > dataSize) {
+        dataPosition = dataSize;
+      }
+    }
+
+    @Override
+    public void setDataCapacityAtLeast(int newCapacity) {
+      if (newCapacity > data.length) {
+        data = Arrays.copyOf(data, newCapacity);
+      }
+    }
+
+    /**
+     * Makes room for writing {@code length} bytes at the current position, and advances past them.
+     *
+     * @return the position to write at
+     */
+    private int reserve(int length) {
+      int position = dataPosition;
+      int end = position + length;
+      if (end > data.length) {
+        // Parcel grows by 3/2 of the new size.
+        setDataCapacityAtLeast(end * 3 / 2);
+      }
+      if (position > dataSize) {
+        Arrays.fill(data, dataSize, position, (byte) 0);
+      }
+      if (end > dataSize) {
+        dataSize = end;
+      }
+      removeBinders(position, end);
+      dataPosition = end;
+      return position;
+    }
+
+    private void skip(int length) {
+      dataPosition = Math.min(dataSize, dataPosition + length);
+    }
+
+    /** Forgets the binders overlapping the given range, which is being overwritten. */
+    private void removeBinders(int start, int end) {
+      if (!binders.isEmpty() && start < end) {
+        binders.subMap(start - BINDER_SIZE_BYTES + 1, end).clear();
+      }
+    }
+
+    private void putInt(int position, int value) {
+      data[position] = (byte) value;
+      data[position + 1] = (byte) (value >>> 8);
+      data[position + 2] = (byte) (value >>> 16);
+      data[position + 3] = (byte) (value >>> 24);
+    }
+
+    private int getInt(int position) {
+      return (data[position] & 0xff)
+          | (data[position + 1] & 0xff) << 8
+          | (data[position + 2] & 0xff) << 16
+          | (data[position + 3] & 0xff) << 24;
+    }
+
+    private static int alignToInt(int unpaddedSizeBytes) {
+      return ((unpaddedSizeBytes + 3) / 4) * 4;
+    }
+  }
+
   @Implementation(maxSdk = P)
   protected static FileDescriptor openFileDescriptor(String file, int mode) throws IOException {
     RandomAccessFile randomAccessFile =
@@ -1208,13 +1629,13 @@ public class ShadowParcel {
     // version changed the field name to "descriptor". But it looks like Robolectric uses the
     // Java version of FileDescriptor instead of the Android version.
     int fd = ReflectionHelpers.getField(val, "fd");
-    NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).writeInt(fd);
+    getParcelBuffer(nativePtr).writeInt(fd);
     return (long) nativeDataPosition(nativePtr);
   }
 
   @Implementation(minSdk = M)
   protected static FileDescriptor nativeReadFileDescriptor(long nativePtr) {
-    int fd = NATIVE_BYTE_BUFFER_REGISTRY.getNativeObject(nativePtr).readInt();
+    int fd = getParcelBuffer(nativePtr).readInt();
     return ReflectionHelpers.callConstructor(
         FileDescriptor.class, ClassParameter.from(int.class, fd));
   }
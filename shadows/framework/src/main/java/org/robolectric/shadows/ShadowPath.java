@@ -53,7 +53,7 @@ public class ShadowPath {
     ShadowPath shadowPath = extract(path);
     points = new ArrayList<>(shadowPath.getPoints());
     mPath.append(shadowPath.mPath, /*connect=*/ false);
-    mFillType = shadowPath.getFillType();
+    setFillType(shadowPath.getFillType());
   }
 
   Path2D getJavaShape() {
@@ -3,6 +3,7 @@ package org.robolectric.shadows;
 import static org.robolectric.util.reflector.Reflector.reflector;
 
 import android.view.Choreographer;
+import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
 import org.robolectric.annotation.LooperMode;
 import org.robolectric.annotation.Resetter;
@@ -21,6 +22,24 @@ import org.robolectric.annotation.Resetter;
     isInAndroidSdk = false)
 public class ShadowPausedChoreographer extends ShadowChoreographer {
 
+  private static final ThreadLocal<Boolean> inFrame = ThreadLocal.withInitial(() -> false);
+
+  /** Returns true if the current thread's Choreographer is dispatching a frame. */
+  static boolean isInFrame() {
+    return inFrame.get();
+  }
+
+  @Implementation
+  @Override
+  protected void doFrame(long frameTimeNanos, int frame) {
+    inFrame.set(true);
+    try {
+      super.doFrame(frameTimeNanos, frame);
+    } finally {
+      inFrame.set(false);
+    }
+  }
+
   @Resetter
   public static void reset() {
     reflector(ChoreographerReflector.class).getThreadInstance().remove();
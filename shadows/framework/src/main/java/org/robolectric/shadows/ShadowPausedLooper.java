@@ -22,6 +22,8 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.robolectric.android.util.concurrent.PausedExecutorService;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
 import org.robolectric.annotation.LooperMode;
@@ -29,6 +31,7 @@ import org.robolectric.annotation.RealObject;
 import org.robolectric.annotation.Resetter;
 import org.robolectric.config.ConfigurationRegistry;
 import org.robolectric.shadow.api.Shadow;
+import org.robolectric.util.PerfStatsCollector;
 import org.robolectric.util.Scheduler;
 import org.robolectric.util.reflector.Direct;
 import org.robolectric.util.reflector.ForType;
@@ -57,10 +60,19 @@ public final class ShadowPausedLooper extends ShadowLooper {
   private static Set<Looper> loopingLoopers =
       Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<Looper, Boolean>()));
 
+  // the nominal frame interval of a 60Hz display, used to account for frames skipped by idleFor
+  private static final long FRAME_INTERVAL_MS = 16;
+  private static final AtomicLong skippedFrameCount = new AtomicLong();
+
+  private static final boolean INSTRUMENTATION_ENABLED_BY_DEFAULT =
+      Boolean.getBoolean("robolectric.looperInstrumentation");
+  private static volatile boolean instrumentationEnabled = INSTRUMENTATION_ENABLED_BY_DEFAULT;
+
   @RealObject private Looper realLooper;
   private boolean isPaused = false;
   // the Executor that executes looper messages. Must be written to on looper thread
   private Executor looperExecutor;
+  private final LooperStats stats = new LooperStats();
 
   @Implementation
   protected void __constructor__(boolean quitAllowed) {
@@ -92,19 +104,24 @@ public final class ShadowPausedLooper extends ShadowLooper {
     executeOnLooper(new IdlingRunnable());
   }
 
+  /**
+   * Advances the clock by the given time, executing all messages that become due in that interval.
+   *
+   * <p>The clock jumps directly from one message deadline to the next, running all messages due at
+   * each deadline in a single batch, and the whole interval is processed in one task on the
+   * looper's thread rather than one round-trip per message.
+   */
   @Override
   public void idleFor(long time, TimeUnit timeUnit) {
-    long endingTimeMs = SystemClock.uptimeMillis() + timeUnit.toMillis(time);
-    long nextScheduledTimeMs = getNextScheduledTaskTime().toMillis();
-    while (nextScheduledTimeMs != 0 && nextScheduledTimeMs <= endingTimeMs) {
-      SystemClock.setCurrentTimeMillis(nextScheduledTimeMs);
-      idle();
-      nextScheduledTimeMs = getNextScheduledTaskTime().toMillis();
-    }
-    SystemClock.setCurrentTimeMillis(endingTimeMs);
-    // the last SystemClock update might have added new tasks to the main looper via Choreographer
-    // so idle once more.
-    idle();
+    executeOnLooper(new IdlingForRunnable(SystemClock.uptimeMillis() + timeUnit.toMillis(time)));
+  }
+
+  /**
+   * Returns the number of whole frame intervals which {@link #idleFor(long, TimeUnit)} has
+   * fast-forwarded over without any message being due, across all loopers, since the last reset.
+   */
+  public static long getSkippedFrameCount() {
+    return skippedFrameCount.get();
   }
 
   @Override
@@ -216,8 +233,32 @@ public final class ShadowPausedLooper extends ShadowLooper {
     return shadowQueue().getLastScheduledTaskTime();
   }
 
+  /**
+   * Enables recording of {@link LooperStats} for messages dispatched by paused loopers, and of a
+   * "dispatchMessage &lt;handler class&gt;" event in {@link PerfStatsCollector} for each of them.
+   *
+   * <p>Disabled by default, as it adds overhead to every message. It can also be enabled for all
+   * tests with the {@code robolectric.looperInstrumentation} system property. Reset after each
+   * test.
+   */
+  public static void setInstrumentationEnabled(boolean enabled) {
+    instrumentationEnabled = enabled;
+  }
+
+  public static boolean isInstrumentationEnabled() {
+    return instrumentationEnabled;
+  }
+
+  /** Returns the dispatch statistics of this looper, collected while instrumentation is enabled. */
+  public LooperStats getStats() {
+    return stats;
+  }
+
   @Resetter
   public static synchronized void resetLoopers() {
+    skippedFrameCount.set(0);
+    instrumentationEnabled = INSTRUMENTATION_ENABLED_BY_DEFAULT;
+    PausedExecutorService.resetInstances();
     // do not use looperMode() here, because its cached value might already have been reset
     if (ConfigurationRegistry.get(LooperMode.Mode.class) != LooperMode.Mode.PAUSED) {
       // ignore if not realistic looper
@@ -228,6 +269,8 @@ public final class ShadowPausedLooper extends ShadowLooper {
     for (Looper looper : loopersCopy) {
       ShadowPausedMessageQueue shadowQueue = Shadow.extract(looper.getQueue());
       shadowQueue.reset();
+      ShadowPausedLooper shadowLooper = Shadow.extract(looper);
+      shadowLooper.stats.reset();
     }
   }
 
@@ -319,24 +362,91 @@ public final class ShadowPausedLooper extends ShadowLooper {
     }
   }
 
+  /** Executes all messages that are due at the current time. Must be called on looper thread. */
+  private void drainExecutableMessages() {
+    while (true) {
+      Message msg = getNextExecutableMessage();
+      if (msg == null) {
+        break;
+      }
+      dispatchMessage(msg);
+      shadowMsg(msg).recycleUnchecked();
+      triggerIdleHandlersIfNeeded(msg);
+    }
+  }
+
+  private void dispatchMessage(Message msg) {
+    Handler target = msg.getTarget();
+    if (!instrumentationEnabled) {
+      target.dispatchMessage(msg);
+      return;
+    }
+
+    // read everything up front, the message may be recycled by the time it completes
+    String handlerKey = LooperStats.handlerKey(target);
+    String callbackKey = LooperStats.callbackKey(msg);
+    // +1 for the message being dispatched, which has already been removed from the queue
+    int queueDepth = shadowQueue().internalGetSize() + 1;
+    long startNanos = System.nanoTime();
+    try {
+      PerfStatsCollector.getInstance()
+          .measure("dispatchMessage " + handlerKey, () -> target.dispatchMessage(msg));
+    } finally {
+      stats.recordDispatch(handlerKey, callbackKey, queueDepth, System.nanoTime() - startNanos);
+    }
+  }
+
   private class IdlingRunnable extends ControlRunnable {
 
     @Override
     public void run() {
       try {
-        while (true) {
-          Message msg = getNextExecutableMessage();
-          if (msg == null) {
-            break;
-          }
-          msg.getTarget().dispatchMessage(msg);
-          shadowMsg(msg).recycleUnchecked();
-          triggerIdleHandlersIfNeeded(msg);
+        drainExecutableMessages();
+      } finally {
+        runLatch.countDown();
+      }
+    }
+  }
+
+  private class IdlingForRunnable extends ControlRunnable {
+
+    private final long endingTimeMs;
+    private long skippedFrames;
+
+    IdlingForRunnable(long endingTimeMs) {
+      this.endingTimeMs = endingTimeMs;
+    }
+
+    @Override
+    public void run() {
+      try {
+        long nextScheduledTimeMs = shadowQueue().getNextScheduledTaskTimeMillis();
+        while (nextScheduledTimeMs != 0 && nextScheduledTimeMs <= endingTimeMs) {
+          advanceClockTo(nextScheduledTimeMs);
+          drainExecutableMessages();
+          nextScheduledTimeMs = shadowQueue().getNextScheduledTaskTimeMillis();
         }
+        advanceClockTo(endingTimeMs);
+        // the last SystemClock update might have added new tasks to the main looper via
+        // Choreographer so idle once more.
+        drainExecutableMessages();
       } finally {
+        if (skippedFrames > 0) {
+          skippedFrameCount.addAndGet(skippedFrames);
+          PerfStatsCollector.getInstance()
+              .incrementCount("ShadowPausedLooper skipped empty frames", skippedFrames);
+        }
         runLatch.countDown();
       }
     }
+
+    private void advanceClockTo(long timeMs) {
+      long now = SystemClock.uptimeMillis();
+      if (timeMs > now) {
+        skippedFrames += (timeMs - now) / FRAME_INTERVAL_MS;
+        SystemClock.setCurrentTimeMillis(timeMs);
+      }
+    }
   }
 
   private class RunOneRunnable extends ControlRunnable {
@@ -347,7 +457,7 @@ public final class ShadowPausedLooper extends ShadowLooper {
         Message msg = shadowQueue().poll();
         if (msg != null) {
           SystemClock.setCurrentTimeMillis(shadowMsg(msg).getWhen());
-          msg.getTarget().dispatchMessage(msg);
+          dispatchMessage(msg);
           triggerIdleHandlersIfNeeded(msg);
         }
       } finally {
@@ -23,6 +23,7 @@ import org.robolectric.annotation.LooperMode;
 import org.robolectric.annotation.RealObject;
 import org.robolectric.res.android.NativeObjRegistry;
 import org.robolectric.shadow.api.Shadow;
+import org.robolectric.util.PerfStatsCollector;
 import org.robolectric.util.Scheduler;
 import org.robolectric.util.reflector.Accessor;
 import org.robolectric.util.reflector.ForType;
@@ -41,7 +42,6 @@ public class ShadowPausedMessageQueue extends ShadowMessageQueue {
   private static NativeObjRegistry<ShadowPausedMessageQueue> nativeQueueRegistry =
       new NativeObjRegistry<ShadowPausedMessageQueue>(ShadowPausedMessageQueue.class);
   private boolean isPolling = false;
-  private ShadowPausedSystemClock.Listener clockListener;
 
   // shadow constructor instead of nativeInit because nativeInit signature has changed across SDK
   // versions
@@ -50,9 +50,6 @@ public class ShadowPausedMessageQueue extends ShadowMessageQueue {
     invokeConstructor(MessageQueue.class, realQueue, from(boolean.class, quitAllowed));
     int ptr = (int) nativeQueueRegistry.register(this);
     reflector(ReflectorMessageQueue.class, realQueue).setPtr(ptr);
-    clockListener =
-        newCurrentTimeMillis -> nativeWake(ptr);
-    ShadowPausedSystemClock.addListener(clockListener);
   }
 
   @Implementation(maxSdk = JELLY_BEAN_MR1)
@@ -68,7 +65,7 @@ public class ShadowPausedMessageQueue extends ShadowMessageQueue {
   @Implementation(minSdk = KITKAT_WATCH)
   protected static void nativeDestroy(long ptr) {
     ShadowPausedMessageQueue q = nativeQueueRegistry.unregister(ptr);
-    ShadowPausedSystemClock.removeListener(q.clockListener);
+    ShadowPausedSystemClock.cancelWakeup(q);
   }
 
   @Implementation(maxSdk = JELLY_BEAN_MR1)
@@ -91,8 +88,15 @@ public class ShadowPausedMessageQueue extends ShadowMessageQueue {
     }
     synchronized (realQueue) {
       // only block if queue is empty
-      // ignore timeout since clock is not advancing. ClockListener will notify when clock advances
+      // ignore timeout since clock is not advancing. Instead, ask the clock to wake this queue once
+      // its next message becomes due. New messages wake the queue via enqueueMessage.
       while (isIdle() && !isQuitting()) {
+        Message next = peekNextExecutableMessage();
+        if (next != null
+            && !ShadowPausedSystemClock.scheduleWakeup(this, shadowOfMsg(next).getWhen())) {
+          // the clock reached the message's time in the meantime
+          continue;
+        }
         isPolling = true;
         try {
           realQueue.wait();
@@ -101,6 +105,15 @@ public class ShadowPausedMessageQueue extends ShadowMessageQueue {
         }
       }
       isPolling = false;
+      ShadowPausedSystemClock.cancelWakeup(this);
+    }
+  }
+
+  /** Called by the clock when it reaches the time of the next message this queue is polling for. */
+  void wakeForClockUpdate() {
+    PerfStatsCollector.getInstance().incrementCount("ShadowPausedMessageQueue clock wakeup");
+    synchronized (realQueue) {
+      realQueue.notifyAll();
     }
   }
 
@@ -221,12 +234,17 @@ public class ShadowPausedMessageQueue extends ShadowMessageQueue {
   }
 
   Duration getNextScheduledTaskTime() {
+    return Duration.ofMillis(getNextScheduledTaskTimeMillis());
+  }
+
+  /** Like {@link #getNextScheduledTaskTime()}, but returns the raw millis, or 0 if none. */
+  long getNextScheduledTaskTimeMillis() {
     Message next = peekNextExecutableMessage();
 
     if (next == null) {
-      return Duration.ZERO;
+      return 0;
     }
-    return Duration.ofMillis(convertWhenToScheduledTime(shadowOfMsg(next).getWhen()));
+    return convertWhenToScheduledTime(shadowOfMsg(next).getWhen());
   }
 
   Duration getLastScheduledTaskTime() {
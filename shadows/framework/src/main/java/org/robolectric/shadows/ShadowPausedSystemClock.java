@@ -5,7 +5,12 @@ import static android.os.Build.VERSION_CODES.P;
 
 import android.os.SystemClock;
 import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 import java.util.concurrent.CopyOnWriteArrayList;
 import org.robolectric.annotation.HiddenApi;
 import org.robolectric.annotation.Implementation;
@@ -33,6 +38,16 @@ public class ShadowPausedSystemClock extends ShadowSystemClock {
   private static final int MILLIS_PER_NANO = 1000000;;
   private static long currentTimeMillis = INITIAL_TIME;
   private static List<Listener> listeners = new CopyOnWriteArrayList<>();
+  // the pending wakeup of each polling message queue, ordered by deadline. Guarded by itself.
+  private static final TreeSet<Wakeup> wakeups =
+      new TreeSet<>(
+          Comparator.comparingLong((Wakeup wakeup) -> wakeup.when)
+              .thenComparingLong(wakeup -> wakeup.sequence));
+  // the same wakeups by queue, so that replacing or cancelling one doesn't scan them all. Guarded
+  // by wakeups.
+  private static final Map<ShadowPausedMessageQueue, Wakeup> wakeupsByQueue =
+      new IdentityHashMap<>();
+  private static long nextWakeupSequence;
 
   /**
    * Callback for clock updates
@@ -49,6 +64,38 @@ public class ShadowPausedSystemClock extends ShadowSystemClock {
     listeners.remove(listener);
   }
 
+  /**
+   * Asks for the given queue to be woken once the clock reaches {@code when}, replacing any wakeup
+   * previously scheduled for it.
+   *
+   * @return false if {@code when} has already been reached, in which case nothing is scheduled
+   */
+  static boolean scheduleWakeup(ShadowPausedMessageQueue queue, long when) {
+    synchronized (wakeups) {
+      removeWakeup(queue);
+      if (when <= currentTimeMillis) {
+        return false;
+      }
+      Wakeup wakeup = new Wakeup(queue, when, nextWakeupSequence++);
+      wakeups.add(wakeup);
+      wakeupsByQueue.put(queue, wakeup);
+      return true;
+    }
+  }
+
+  static void cancelWakeup(ShadowPausedMessageQueue queue) {
+    synchronized (wakeups) {
+      removeWakeup(queue);
+    }
+  }
+
+  private static void removeWakeup(ShadowPausedMessageQueue queue) {
+    Wakeup wakeup = wakeupsByQueue.remove(queue);
+    if (wakeup != null) {
+      wakeups.remove(wakeup);
+    }
+  }
+
   /** Advances the current time by given millis, without sleeping the current thread/ */
   @Implementation
   protected static void sleep(long millis) {
@@ -64,16 +111,30 @@ public class ShadowPausedSystemClock extends ShadowSystemClock {
    */
   @Implementation
   protected static boolean setCurrentTimeMillis(long millis) {
-    if (currentTimeMillis > millis) {
-      return false;
-    }
-
-    if (currentTimeMillis != millis) {
+    List<ShadowPausedMessageQueue> dueQueues;
+    synchronized (wakeups) {
+      if (currentTimeMillis > millis) {
+        return false;
+      }
+      if (currentTimeMillis == millis) {
+        return true;
+      }
       currentTimeMillis = millis;
-      for (Listener listener : listeners) {
-        listener.clockUpdated(currentTimeMillis);
+      dueQueues = new ArrayList<>();
+      while (!wakeups.isEmpty() && wakeups.first().when <= millis) {
+        Wakeup wakeup = wakeups.pollFirst();
+        wakeupsByQueue.remove(wakeup.queue);
+        dueQueues.add(wakeup.queue);
       }
     }
+
+    // wake the queues outside of the lock, as they take it while holding their own monitor
+    for (ShadowPausedMessageQueue queue : dueQueues) {
+      queue.wakeForClockUpdate();
+    }
+    for (Listener listener : listeners) {
+      listener.clockUpdated(millis);
+    }
     return true;
   }
 
@@ -121,8 +182,25 @@ public class ShadowPausedSystemClock extends ShadowSystemClock {
 
   @Resetter
   public static void reset() {
-    currentTimeMillis = INITIAL_TIME;
+    synchronized (wakeups) {
+      currentTimeMillis = INITIAL_TIME;
+      wakeups.clear();
+      wakeupsByQueue.clear();
+    }
     ShadowSystemClock.reset();
     listeners.clear();
   }
+
+  private static final class Wakeup {
+    private final ShadowPausedMessageQueue queue;
+    private final long when;
+    // orders wakeups with the same deadline
+    private final long sequence;
+
+    private Wakeup(ShadowPausedMessageQueue queue, long when, long sequence) {
+      this.queue = queue;
+      this.when = when;
+      this.sequence = sequence;
+    }
+  }
 }
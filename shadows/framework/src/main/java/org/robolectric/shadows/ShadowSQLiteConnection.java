@@ -33,10 +33,11 @@ import com.google.common.util.concurrent.Uninterruptibles;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -45,12 +46,14 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
 import org.robolectric.annotation.Resetter;
 import org.robolectric.shadows.util.SQLiteLibraryLoader;
+import org.robolectric.util.VirtualThreads;
 
 @Implements(value = android.database.sqlite.SQLiteConnection.class, isInAndroidSdk = false)
 public class ShadowSQLiteConnection {
@@ -64,11 +67,48 @@ public class ShadowSQLiteConnection {
   private static final int IGNORED_REINDEX_STMT = -2;
 
   private static AtomicBoolean useInMemoryDatabase = new AtomicBoolean();
+  private static final boolean USE_PER_CONNECTION_WORKERS_BY_DEFAULT =
+      Boolean.getBoolean("robolectric.sqlite.perConnectionWorkers");
+  private static final AtomicBoolean usePerConnectionWorkers =
+      new AtomicBoolean(USE_PER_CONNECTION_WORKERS_BY_DEFAULT);
+  // Not PerfStatsCollector, whose lock would serialize the statements of concurrent connections.
+  private static final LongAdder handoffCount = new LongAdder();
+  private static final LongAdder handoffNanos = new LongAdder();
 
   public static void setUseInMemoryDatabase(boolean value) {
     useInMemoryDatabase.set(value);
   }
 
+  /**
+   * Gives each connection opened from now on its own worker thread, instead of running the
+   * statements of all connections on one shared thread under one lock.
+   *
+   * <p>sqlite4java confines a connection to the thread which opened it, so calls are still handed
+   * off to a worker, but connections used concurrently (e.g. a WAL database with several readers)
+   * no longer wait on each other. Can also be enabled with the {@code
+   * robolectric.sqlite.perConnectionWorkers} system property.
+   */
+  public static void setUsePerConnectionWorkers(boolean value) {
+    usePerConnectionWorkers.set(value);
+  }
+
+  /** Returns the number of calls handed off to a worker thread since the last reset. */
+  public static long getHandoffCount() {
+    return handoffCount.sum();
+  }
+
+  /**
+   * Returns the total time, in nanoseconds, which calls handed off to a worker thread have waited
+   * for it to start running them since the last reset.
+   */
+  public static long getHandoffNanos() {
+    return handoffNanos.sum();
+  }
+
+  static boolean isUsingInMemoryDatabase() {
+    return useInMemoryDatabase.get();
+  }
+
   @Implementation(maxSdk = O)
   public static Number nativeOpen(String path, int openFlags, String label, boolean enableTrace, boolean enableProfile) {
     SQLiteLibraryLoader.load();
@@ -104,6 +144,9 @@ public class ShadowSQLiteConnection {
   public static void reset() {
     CONNECTIONS.reset();
     useInMemoryDatabase.set(false);
+    usePerConnectionWorkers.set(USE_PER_CONNECTION_WORKERS_BY_DEFAULT);
+    handoffCount.reset();
+    handoffNanos.reset();
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -288,7 +331,8 @@ public class ShadowSQLiteConnection {
   @Implementation(minSdk = LOLLIPOP)
   public static long nativeExecuteForCursorWindow(final long connectionPtr, final long statementPtr, final long windowPtr,
                                                   final int startPos, final int requiredPos, final boolean countAllRows) {
-    return CONNECTIONS.executeForCursorWindow(connectionPtr, statementPtr, windowPtr);
+    return CONNECTIONS.executeForCursorWindow(
+        connectionPtr, statementPtr, windowPtr, startPos, requiredPos, countAllRows);
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -358,62 +402,99 @@ static class Connections {
 
   private final Object lock = new Object();
   private final AtomicLong pointerCounter = new AtomicLong(0);
-  private final Map<Long, SQLiteStatement> statementsMap = new HashMap<>();
-  private final Map<Long, SQLiteConnection> connectionsMap = new HashMap<>();
-  private final Map<Long, List<Long>> statementPtrsForConnection = new HashMap<>();
+  private final Map<Long, SQLiteStatement> statementsMap = new ConcurrentHashMap<>();
+  private final Map<Long, ConnectionState> connectionsMap = new ConcurrentHashMap<>();
 
     private ExecutorService dbExecutor = Executors.newSingleThreadExecutor(threadFactory());
 
     static ThreadFactory threadFactory() {
       ThreadFactory delegate = Executors.defaultThreadFactory();
-      return r -> {
-        Thread worker = delegate.newThread(r);
-        worker.setName(ShadowSQLiteConnection.class.getSimpleName() + " worker");
-        return worker;
-      };
+      String name = ShadowSQLiteConnection.class.getSimpleName() + " worker";
+      return VirtualThreads.threadFactory(
+          name,
+          r -> {
+            Thread worker = delegate.newThread(r);
+            worker.setName(name);
+            return worker;
+          });
     }
 
-  SQLiteConnection getConnection(final long connectionPtr) {
-    synchronized (lock) {
-      final SQLiteConnection connection = connectionsMap.get(connectionPtr);
-      if (connection == null) {
-          throw new IllegalStateException(
-              "Illegal connection pointer "
-                  + connectionPtr
-                  + ". Current pointers for thread "
-                  + Thread.currentThread()
-                  + " "
-                  + connectionsMap.keySet());
-      }
-      return connection;
+  /**
+   * A connection and the worker its operations are confined to.
+   *
+   * <p>By default all connections share {@link #dbExecutor} and {@link #lock}. With per-connection
+   * workers, each connection owns a single thread and guards its own statements, so connections
+   * used from different threads don't wait on each other.
+   */
+  private static final class ConnectionState {
+    private final SQLiteConnection connection;
+    private final ExecutorService executor;
+    private final Object lock;
+    private final boolean ownsExecutor;
+    private final Set<Long> statementPtrs = ConcurrentHashMap.newKeySet();
+
+    ConnectionState(
+        SQLiteConnection connection, ExecutorService executor, Object lock, boolean ownsExecutor) {
+      this.connection = connection;
+      this.executor = executor;
+      this.lock = lock;
+      this.ownsExecutor = ownsExecutor;
+    }
+  }
+
+  private ConnectionState getConnectionState(final long connectionPtr) {
+    final ConnectionState state = connectionsMap.get(connectionPtr);
+    if (state == null) {
+        throw new IllegalStateException(
+            "Illegal connection pointer "
+                + connectionPtr
+                + ". Current pointers for thread "
+                + Thread.currentThread()
+                + " "
+                + connectionsMap.keySet());
     }
+    return state;
+  }
+
+  SQLiteConnection getConnection(final long connectionPtr) {
+    return getConnectionState(connectionPtr).connection;
   }
 
   SQLiteStatement getStatement(final long connectionPtr, final long statementPtr) {
-    synchronized (lock) {
-      // ensure connection is ok
-      getConnection(connectionPtr);
-
-      final SQLiteStatement statement = statementsMap.get(statementPtr);
-      if (statement == null) {
-          throw new IllegalArgumentException(
-              "Invalid prepared statement pointer: "
-                  + statementPtr
-                  + ". Current pointers: "
-                  + statementsMap.keySet());
-      }
-      if (statement.isDisposed()) {
-          throw new IllegalStateException(
-              "Statement " + statementPtr + " " + statement + " is disposed");
-      }
-      return statement;
+    // ensure connection is ok
+    getConnection(connectionPtr);
+
+    final SQLiteStatement statement = statementsMap.get(statementPtr);
+    if (statement == null) {
+        throw new IllegalArgumentException(
+            "Invalid prepared statement pointer: "
+                + statementPtr
+                + ". Current pointers: "
+                + statementsMap.keySet());
     }
+    if (statement.isDisposed()) {
+        throw new IllegalStateException(
+            "Statement " + statementPtr + " " + statement + " is disposed");
+    }
+    return statement;
   }
 
   long open(final String path) {
+    final boolean perConnection = usePerConnectionWorkers.get();
+    final ExecutorService executor;
+    final Object connectionLock;
     synchronized (lock) {
-        final SQLiteConnection dbConnection =
+      executor =
+          perConnection ? Executors.newSingleThreadExecutor(threadFactory()) : dbExecutor;
+      connectionLock = perConnection ? new Object() : lock;
+    }
+
+    synchronized (connectionLock) {
+      final SQLiteConnection dbConnection;
+      try {
+        dbConnection =
             execute(
+                executor,
                 "open SQLite connection",
                 new Callable<SQLiteConnection>() {
                   @Override
@@ -427,10 +508,17 @@ static class Connections {
                     return connection;
                   }
                 });
+      } catch (RuntimeException e) {
+        if (perConnection) {
+          executor.shutdownNow();
+        }
+        throw e;
+      }
 
       final long connectionPtr = pointerCounter.incrementAndGet();
-      connectionsMap.put(connectionPtr, dbConnection);
-      statementPtrsForConnection.put(connectionPtr, new ArrayList<>());
+      connectionsMap.put(
+          connectionPtr,
+          new ConnectionState(dbConnection, executor, connectionLock, perConnection));
       return connectionPtr;
     }
   }
@@ -441,43 +529,46 @@ static class Connections {
       return IGNORED_REINDEX_STMT;
     }
 
-    synchronized (lock) {
-      final SQLiteConnection connection = getConnection(connectionPtr);
+    final ConnectionState state = getConnectionState(connectionPtr);
+    synchronized (state.lock) {
         final SQLiteStatement statement =
             execute(
+                state,
                 "prepare statement",
                 new Callable<SQLiteStatement>() {
                   @Override
                   public SQLiteStatement call() throws Exception {
-                    return connection.prepare(sql);
+                    return state.connection.prepare(sql);
                   }
                 });
 
       final long statementPtr = pointerCounter.incrementAndGet();
       statementsMap.put(statementPtr, statement);
-      statementPtrsForConnection.get(connectionPtr).add(statementPtr);
+      state.statementPtrs.add(statementPtr);
       return statementPtr;
     }
   }
 
   void close(final long connectionPtr) {
-    synchronized (lock) {
-      final SQLiteConnection connection = getConnection(connectionPtr);
-        execute("close connection", new Callable<Void>() {
+    final ConnectionState state = getConnectionState(connectionPtr);
+    synchronized (state.lock) {
+        execute(state, "close connection", new Callable<Void>() {
         @Override
         public Void call() throws Exception {
-          connection.dispose();
+          state.connection.dispose();
           return null;
         }
       });
       connectionsMap.remove(connectionPtr);
-      statementPtrsForConnection.remove(connectionPtr);
+    }
+    if (state.ownsExecutor) {
+      state.executor.shutdown();
     }
   }
 
   void reset() {
     ExecutorService oldDbExecutor;
-    Collection<SQLiteConnection> openConnections;
+    Collection<ConnectionState> openConnections;
 
     synchronized (lock) {
       oldDbExecutor = dbExecutor;
@@ -486,26 +577,35 @@ static class Connections {
         dbExecutor = Executors.newSingleThreadExecutor(threadFactory());
       connectionsMap.clear();
       statementsMap.clear();
-      statementPtrsForConnection.clear();
     }
 
     shutdownDbExecutor(oldDbExecutor, openConnections);
   }
 
-  private static void shutdownDbExecutor(ExecutorService executorService, Collection<SQLiteConnection> connections) {
-    for (final SQLiteConnection connection : connections) {
-      getFuture("close connection on reset", executorService.submit(new Callable<Void>() {
+  private static void shutdownDbExecutor(
+      ExecutorService executorService, Collection<ConnectionState> connections) {
+    List<ExecutorService> executors = new ArrayList<>();
+    executors.add(executorService);
+    for (final ConnectionState state : connections) {
+      getFuture("close connection on reset", state.executor.submit(new Callable<Void>() {
         @Override
         public Void call() throws Exception {
-          connection.dispose();
+          state.connection.dispose();
           return null;
         }
       }));
+      if (state.ownsExecutor) {
+        executors.add(state.executor);
+      }
     }
 
-    executorService.shutdown();
+    for (ExecutorService executor : executors) {
+      executor.shutdown();
+    }
     try {
-      executorService.awaitTermination(30, TimeUnit.SECONDS);
+      for (ExecutorService executor : executors) {
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+      }
     } catch (InterruptedException e) {
       throw new RuntimeException(e);
     }
@@ -516,11 +616,13 @@ static class Connections {
       return;
     }
 
-    synchronized (lock) {
+    final ConnectionState state = getConnectionState(connectionPtr);
+    synchronized (state.lock) {
       final SQLiteStatement statement = getStatement(connectionPtr, statementPtr);
       statementsMap.remove(statementPtr);
+      state.statementPtrs.remove(statementPtr);
 
-        execute("finalize statement", new Callable<Void>() {
+        execute(state, "finalize statement", new Callable<Void>() {
         @Override
         public Void call() throws Exception {
           statement.dispose();
@@ -531,13 +633,12 @@ static class Connections {
   }
 
   void cancel(final long connectionPtr) {
-    synchronized (lock) {
-      getConnection(connectionPtr); // check connection
-
-      for (Long statementPtr : statementPtrsForConnection.get(connectionPtr)) {
+    final ConnectionState state = getConnectionState(connectionPtr);
+    synchronized (state.lock) {
+      for (Long statementPtr : state.statementPtrs) {
         final SQLiteStatement statement = statementsMap.get(statementPtr);
         if (statement != null) {
-            execute("cancel", new Callable<Void>() {
+            execute(state, "cancel", new Callable<Void>() {
             @Override
             public Void call() throws Exception {
               statement.cancel();
@@ -732,11 +833,12 @@ static class Connections {
   }
 
   int executeForChangedRowCount(final long connectionPtr, final long statementPtr) {
-    synchronized (lock) {
-      final SQLiteConnection connection = getConnection(connectionPtr);
+    final ConnectionState state = getConnectionState(connectionPtr);
+    synchronized (state.lock) {
+      final SQLiteConnection connection = state.connection;
       final SQLiteStatement statement = getStatement(connectionPtr, statementPtr);
 
-      return execute("execute for changed row count", new Callable<Integer>() {
+      return execute(state, "execute for changed row count", new Callable<Integer>() {
         @Override
         public Integer call() throws Exception {
           statement.stepThrough();
@@ -747,11 +849,13 @@ static class Connections {
   }
 
   long executeForLastInsertedRowId(final long connectionPtr, final long statementPtr) {
-    synchronized (lock) {
-      final SQLiteConnection connection = getConnection(connectionPtr);
+    final ConnectionState state = getConnectionState(connectionPtr);
+    synchronized (state.lock) {
+      final SQLiteConnection connection = state.connection;
       final SQLiteStatement statement = getStatement(connectionPtr, statementPtr);
 
         return execute(
+            state,
             "execute for last inserted row ID",
             new Callable<Long>() {
               @Override
@@ -763,15 +867,22 @@ static class Connections {
     }
   }
 
-  long executeForCursorWindow(final long connectionPtr, final long statementPtr, final long windowPtr) {
+  long executeForCursorWindow(
+      final long connectionPtr,
+      final long statementPtr,
+      final long windowPtr,
+      final int startPos,
+      final int requiredPos,
+      final boolean countAllRows) {
       return executeStatementOperation(
           connectionPtr,
           statementPtr,
           "execute for cursor window",
-          new StatementOperation<Integer>() {
+          new StatementOperation<Long>() {
             @Override
-            public Integer call(final SQLiteStatement statement) throws Exception {
-              return ShadowCursorWindow.setData(windowPtr, statement);
+            public Long call(final SQLiteStatement statement) throws Exception {
+              return ShadowCursorWindow.fillWindow(
+                  windowPtr, statement, startPos, requiredPos, countAllRows);
             }
           });
   }
@@ -798,9 +909,10 @@ static class Connections {
                                           final long statementPtr,
                                           final String comment,
                                           final StatementOperation<T> statementOperation) {
-    synchronized (lock) {
+    final ConnectionState state = getConnectionState(connectionPtr);
+    synchronized (state.lock) {
       final SQLiteStatement statement = getStatement(connectionPtr, statementPtr);
-      return execute(comment, new Callable<T>() {
+      return execute(state, comment, new Callable<T>() {
         @Override
         public T call() throws Exception {
           return statementOperation.call(statement);
@@ -812,12 +924,29 @@ static class Connections {
   /**
    * Any Callable passed in to execute must not synchronize on lock, as this will result in a deadlock
    */
-  private <T> T execute(final String comment, final Callable<T> work) {
-    synchronized (lock) {
-      return getFuture(comment, dbExecutor.submit(work));
+  private <T> T execute(final ConnectionState state, final String comment, final Callable<T> work) {
+    synchronized (state.lock) {
+      return execute(state.executor, comment, work);
     }
   }
 
+  /**
+   * Runs the work on the given worker and waits for it. The time between submitting and the work
+   * starting is added to {@link #getHandoffNanos()}.
+   */
+  private static <T> T execute(
+      final ExecutorService executor, final String comment, final Callable<T> work) {
+    final long submitted = System.nanoTime();
+    return getFuture(
+        comment,
+        executor.submit(
+            () -> {
+              handoffNanos.add(System.nanoTime() - submitted);
+              handoffCount.increment();
+              return work.call();
+            }));
+  }
+
   private static <T> T getFuture(final String comment, final Future<T> future) {
     try {
       return Uninterruptibles.getUninterruptibly(future);
@@ -1,20 +1,241 @@
 package org.robolectric.shadows;
 
 import static android.os.Build.VERSION_CODES.O_MR1;
+import static org.robolectric.util.reflector.Reflector.reflector;
 
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
+import org.robolectric.annotation.RealObject;
+import org.robolectric.annotation.Resetter;
+import org.robolectric.util.Logger;
+import org.robolectric.util.TempDirectory;
+import org.robolectric.util.reflector.Accessor;
+import org.robolectric.util.reflector.Direct;
+import org.robolectric.util.reflector.ForType;
 
 /**
  * Avoid calls to setIdleConnectionTimeout.
  * They shouldn't matter for tests, but sometimes induced deadlocks.
+ *
+ * <p>Optionally caches a snapshot of each database once its schema has been created, see {@link
+ * #setUseSchemaSnapshots(boolean)}.
  */
 @Implements(SQLiteOpenHelper.class)
 public class ShadowSQLiteOpenHelper {
+
+  private static final boolean USE_SCHEMA_SNAPSHOTS_BY_DEFAULT =
+      Boolean.getBoolean("robolectric.sqlite.schemaSnapshots");
+
+  private static volatile boolean useSchemaSnapshots = USE_SCHEMA_SNAPSHOTS_BY_DEFAULT;
+  // kept across tests, for as long as the sandbox lives
+  private static final Map<SnapshotKey, Path> snapshots = new ConcurrentHashMap<>();
+  private static final AtomicInteger nextSnapshotId = new AtomicInteger();
+  private static TempDirectory snapshotDirectory;
+
+  @RealObject private SQLiteOpenHelper realHelper;
+
+  /**
+   * Enables the schema snapshot cache for the current test.
+   *
+   * <p>When enabled, the first time a helper creates its database file, the file is saved once the
+   * database has been opened. In later tests, a helper with the same schema source opening a
+   * database of the same name and version which doesn't exist yet gets a copy of that file
+   * instead, so {@link SQLiteOpenHelper#onCreate(SQLiteDatabase)} is not called again. {@link
+   * SQLiteOpenHelper#onConfigure(SQLiteDatabase)} and {@link
+   * SQLiteOpenHelper#onOpen(SQLiteDatabase)} still are.
+   *
+   * <p>The schema source is the helper's class. For helpers which delegate to a callback, as the
+   * one androidx.sqlite uses for every Room database does, it also includes the callback's class,
+   * the class of the callback's delegate and, for Room, the identity hash of the schema.
+   *
+   * <p>This assumes that {@code onCreate} only depends on the schema source and version, and that
+   * {@code onOpen} doesn't write data. In-memory databases are never cached.
+   *
+   * <p>Can also be enabled for all tests with the {@code robolectric.sqlite.schemaSnapshots}
+   * system property.
+   */
+  public static void setUseSchemaSnapshots(boolean shouldUseSchemaSnapshots) {
+    useSchemaSnapshots = shouldUseSchemaSnapshots;
+  }
+
   @Implementation(minSdk = O_MR1)
   protected void setIdleConnectionTimeout(long idleConnectionTimeoutMs) {
     // Calling the real one currently results in a Robolectric deadlock. Just ignore it.
     // See b/78464547 .
   }
+
+  @Implementation
+  protected SQLiteDatabase getDatabaseLocked(boolean writable) {
+    SQLiteOpenHelperReflector helperReflector =
+        reflector(SQLiteOpenHelperReflector.class, realHelper);
+    SQLiteDatabase current = helperReflector.getDatabase();
+    String name = helperReflector.getName();
+    Context context = helperReflector.getContext();
+    if (!useSchemaSnapshots
+        || (current != null && current.isOpen())
+        || name == null
+        || context == null
+        || ShadowSQLiteConnection.isUsingInMemoryDatabase()) {
+      return helperReflector.getDatabaseLocked(writable);
+    }
+
+    File file = context.getDatabasePath(name);
+    SnapshotKey key =
+        new SnapshotKey(describeSchemaSource(realHelper), name, helperReflector.getNewVersion());
+    boolean isNew = !file.exists();
+    if (isNew) {
+      Path snapshot = snapshots.get(key);
+      if (snapshot != null && restore(snapshot, file)) {
+        isNew = false;
+      }
+    }
+
+    SQLiteDatabase database = helperReflector.getDatabaseLocked(writable);
+    if (isNew && file.exists() && database.getVersion() == key.version) {
+      save(database, file, key);
+    }
+    return database;
+  }
+
+  /**
+   * Returns what, besides the version, determines the schema created by {@code helper}'s {@code
+   * onCreate}.
+   */
+  private static String describeSchemaSource(SQLiteOpenHelper helper) {
+    StringBuilder buf = new StringBuilder(helper.getClass().getName());
+    // FrameworkSQLiteOpenHelper.OpenHelper, with a RoomOpenHelper as callback for Room databases
+    Object callback = readField(helper, "mCallback", "callback");
+    if (callback != null) {
+      buf.append(';').append(callback.getClass().getName());
+      Object delegate = readField(callback, "mDelegate", "delegate");
+      if (delegate != null) {
+        buf.append(';').append(delegate.getClass().getName());
+      }
+      Object identityHash = readField(callback, "mIdentityHash", "identityHash");
+      if (identityHash != null) {
+        buf.append(';').append(identityHash);
+      }
+    }
+    return buf.toString();
+  }
+
+  /** Returns the value of the first of the given fields that {@code o} has, or null. */
+  private static Object readField(Object o, String... fieldNames) {
+    for (Class<?> type = o.getClass(); type != null; type = type.getSuperclass()) {
+      for (String fieldName : fieldNames) {
+        try {
+          Field field = type.getDeclaredField(fieldName);
+          field.setAccessible(true);
+          return field.get(o);
+        } catch (NoSuchFieldException e) {
+          // try the next name
+        } catch (ReflectiveOperationException | RuntimeException e) {
+          return null;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static boolean restore(Path snapshot, File file) {
+    try {
+      Files.createDirectories(file.toPath().getParent());
+      Files.copy(snapshot, file.toPath());
+      return true;
+    } catch (IOException e) {
+      Logger.warn("failed to restore database snapshot for %s: %s", file, e);
+      return false;
+    }
+  }
+
+  private static void save(SQLiteDatabase database, File file, SnapshotKey key) {
+    // in WAL mode, move all committed pages into the database file before copying it
+    try (Cursor cursor = database.rawQuery("PRAGMA wal_checkpoint(FULL)", null)) {
+      cursor.moveToFirst();
+    }
+    try {
+      Path snapshot =
+          getSnapshotDirectory()
+              .resolve(nextSnapshotId.getAndIncrement() + "-" + file.getName());
+      Files.copy(file.toPath(), snapshot);
+      snapshots.putIfAbsent(key, snapshot);
+    } catch (IOException e) {
+      Logger.warn("failed to save database snapshot for %s: %s", file, e);
+    }
+  }
+
+  private static synchronized Path getSnapshotDirectory() {
+    if (snapshotDirectory == null) {
+      snapshotDirectory = new TempDirectory("sqlite-snapshots");
+    }
+    return snapshotDirectory.createIfNotExists("snapshots");
+  }
+
+  @Resetter
+  public static void reset() {
+    useSchemaSnapshots = USE_SCHEMA_SNAPSHOTS_BY_DEFAULT;
+  }
+
+  private static final class SnapshotKey {
+    private final String schemaSource;
+    private final String databaseName;
+    private final int version;
+
+    SnapshotKey(String schemaSource, String databaseName, int version) {
+      this.schemaSource = schemaSource;
+      this.databaseName = databaseName;
+      this.version = version;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof SnapshotKey)) {
+        return false;
+      }
+      SnapshotKey that = (SnapshotKey) o;
+      return version == that.version
+          && schemaSource.equals(that.schemaSource)
+          && databaseName.equals(that.databaseName);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(schemaSource, databaseName, version);
+    }
+  }
+
+  @ForType(SQLiteOpenHelper.class)
+  interface SQLiteOpenHelperReflector {
+
+    @Direct
+    SQLiteDatabase getDatabaseLocked(boolean writable);
+
+    @Accessor("mContext")
+    Context getContext();
+
+    @Accessor("mName")
+    String getName();
+
+    @Accessor("mNewVersion")
+    int getNewVersion();
+
+    @Accessor("mDatabase")
+    SQLiteDatabase getDatabase();
+  }
 }
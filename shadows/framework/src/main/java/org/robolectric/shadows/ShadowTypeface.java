@@ -29,7 +29,6 @@ import org.robolectric.annotation.HiddenApi;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
 import org.robolectric.annotation.RealObject;
-import org.robolectric.annotation.Resetter;
 import org.robolectric.res.Fs;
 import org.robolectric.shadow.api.Shadow;
 import org.robolectric.util.ReflectionHelpers;
@@ -38,7 +37,10 @@ import org.robolectric.util.ReflectionHelpers.ClassParameter;
 @Implements(value = Typeface.class, looseSignatures = true)
 @SuppressLint("NewApi")
 public class ShadowTypeface {
+  // Kept across tests, for as long as the sandbox lives: each distinct family and style gets one
+  // id, so typefaces created in earlier tests stay valid and the maps stay small.
   private static final Map<Long, FontDesc> FONTS = Collections.synchronizedMap(new HashMap<>());
+  private static final Map<FontDesc, Long> FONT_IDS = new HashMap<>();
   private static final AtomicLong nextFontId = new AtomicLong(1);
   private FontDesc description;
 
@@ -194,14 +196,17 @@ public class ShadowTypeface {
   public static void initSystemDefaultTypefaces(
       Object systemFontMap, Object fallbacks, Object aliases) {}
 
-  @Resetter
-  public static synchronized void reset() {
-    FONTS.clear();
-  }
+  /**
+   * Does nothing: fonts are kept across tests, since each distinct family and style only ever gets
+   * one id.
+   *
+   * @deprecated There is nothing to reset; this method will be removed.
+   */
+  @Deprecated
+  public static void reset() {}
 
   protected static Typeface createUnderlyingTypeface(String familyName, int style) {
-    long thisFontId = nextFontId.getAndIncrement();
-    FONTS.put(thisFontId, new FontDesc(familyName, style));
+    long thisFontId = getFontId(new FontDesc(familyName, style));
     if (getApiLevel() >= LOLLIPOP) {
       return ReflectionHelpers.callConstructor(
           Typeface.class, ClassParameter.from(long.class, thisFontId));
@@ -211,6 +216,17 @@ public class ShadowTypeface {
     }
   }
 
+  /** Returns the id of {@code description}, assigning it one if it hasn't got one yet. */
+  private static synchronized long getFontId(FontDesc description) {
+    Long fontId = FONT_IDS.get(description);
+    if (fontId == null) {
+      fontId = nextFontId.getAndIncrement();
+      FONT_IDS.put(description, fontId);
+      FONTS.put(fontId, description);
+    }
+    return fontId;
+  }
+
   private static synchronized FontDesc findById(long fontId) {
     if (FONTS.containsKey(fontId)) {
       return FONTS.get(fontId);
@@ -221,6 +237,7 @@ public class ShadowTypeface {
   @Implementation(minSdk = O, maxSdk = VERSION_CODES.R)
   protected static long nativeCreateFromArray(long[] familyArray, int weight, int italic) {
     // TODO: implement this properly
+    // Each family array is a distinct font, so it isn't shared like a family name and style.
     long thisFontId = nextFontId.getAndIncrement();
     FONTS.put(thisFontId, new FontDesc(null, weight));
     return thisFontId;
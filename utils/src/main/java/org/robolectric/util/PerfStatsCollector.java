@@ -70,6 +70,25 @@ public class PerfStatsCollector {
     }
   }
 
+  /**
+   * Increments the count of an event by {@code count} at once, for callers which tally hot-path
+   * events themselves and report them periodically.
+   */
+  public void incrementCount(String eventName, long count) {
+    if (!enabled || count <= 0) {
+      return;
+    }
+
+    synchronized (PerfStatsCollector.this) {
+      MetricKey key = new MetricKey(eventName, true);
+      Metric metric = metricMap.get(key);
+      if (metric == null) {
+        metricMap.put(key, metric = new Metric(key.name, key.success));
+      }
+      metric.incrementCount((int) Math.min(count, Integer.MAX_VALUE));
+    }
+  }
+
   /**
    * Supplier that throws an exception.
    */
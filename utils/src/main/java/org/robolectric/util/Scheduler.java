@@ -5,8 +5,8 @@ import static org.robolectric.util.Scheduler.IdleState.PAUSED;
 import static org.robolectric.util.Scheduler.IdleState.UNPAUSED;
 
 import java.time.Duration;
-import java.util.Iterator;
-import java.util.PriorityQueue;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -58,7 +58,7 @@ public class Scheduler {
 
   private boolean isExecutingRunnable = false;
   private final Thread associatedThread = Thread.currentThread();
-  private final PriorityQueue<ScheduledRunnable> runnables = new PriorityQueue<>();
+  private final RunnableQueue runnables = new RunnableQueue();
   private volatile IdleState idleState = UNPAUSED;
 
   /**
@@ -189,12 +189,7 @@ public class Scheduler {
    * @param runnable  Runnable to remove.
    */
   public synchronized void remove(Runnable runnable) {
-    Iterator<ScheduledRunnable> iterator = runnables.iterator();
-    while (iterator.hasNext()) {
-      if (iterator.next().runnable == runnable) {
-        iterator.remove();
-      }
-    }
+    runnables.removeAll(runnable);
   }
 
   /**
@@ -204,13 +199,7 @@ public class Scheduler {
    * @return True if a runnable was executed.
    */
   public synchronized boolean advanceToLastPostedRunnable() {
-    long currentMaxTime = currentTime;
-    for (ScheduledRunnable scheduled : runnables) {
-      if (currentMaxTime < scheduled.scheduledTime) {
-        currentMaxTime = scheduled.scheduledTime;
-      }
-    }
-    return advanceTo(currentMaxTime);
+    return advanceTo(Math.max(currentTime, runnables.getLastScheduledTime()));
   }
 
   /**
@@ -257,8 +246,12 @@ public class Scheduler {
     }
 
     int runCount = 0;
-    while (nextTaskIsScheduledBefore(endTime)) {
-      runOneTask();
+    ScheduledRunnable postedRunnable;
+    while ((postedRunnable = runnables.pollScheduledBefore(endTime)) != null) {
+      if (postedRunnable.scheduledTime > currentTime) {
+        currentTime = postedRunnable.scheduledTime;
+      }
+      postedRunnable.run();
       ++runCount;
     }
     currentTime = endTime;
@@ -320,14 +313,7 @@ public class Scheduler {
     if (runnables.isEmpty()) {
       return Duration.ZERO;
     }
-    long currentMaxTime = currentTime;
-    for (ScheduledRunnable scheduled : runnables) {
-      if (currentMaxTime < scheduled.scheduledTime) {
-        currentMaxTime = scheduled.scheduledTime;
-      }
-
-    }
-    return Duration.ofMillis(currentMaxTime);
+    return Duration.ofMillis(Math.max(currentTime, runnables.getLastScheduledTime()));
   }
 
   /**
@@ -380,6 +366,10 @@ public class Scheduler {
     private final Runnable runnable;
     private final long scheduledTime;
     private final long timeDisambiguator;
+    // position in RunnableQueue's heap, and links to other entries for the same runnable
+    private int heapIndex = -1;
+    private ScheduledRunnable prevSame;
+    private ScheduledRunnable nextSame;
 
     private ScheduledRunnable(Runnable runnable, long scheduledTime) {
       this(runnable, scheduledTime, nextTimeDisambiguator++);
@@ -409,4 +399,148 @@ public class Scheduler {
       }
     }
   }
+
+  /**
+   * A binary min-heap of {@link ScheduledRunnable}s which also indexes its entries by runnable, so
+   * that {@link #remove(Runnable)} takes O(log n) per removed entry instead of scanning the queue.
+   */
+  private static class RunnableQueue {
+    private ScheduledRunnable[] heap = new ScheduledRunnable[16];
+    private int size;
+    // the most recently added entry for each runnable; further entries are linked from it
+    private final IdentityHashMap<Runnable, ScheduledRunnable> byRunnable = new IdentityHashMap<>();
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    int size() {
+      return size;
+    }
+
+    ScheduledRunnable peek() {
+      return size == 0 ? null : heap[0];
+    }
+
+    void add(ScheduledRunnable scheduled) {
+      if (size == heap.length) {
+        heap = Arrays.copyOf(heap, size * 2);
+      }
+      heap[size] = scheduled;
+      scheduled.heapIndex = size;
+      size++;
+      siftUp(scheduled.heapIndex);
+
+      ScheduledRunnable previous = byRunnable.put(scheduled.runnable, scheduled);
+      if (previous != null) {
+        scheduled.nextSame = previous;
+        previous.prevSame = scheduled;
+      }
+    }
+
+    ScheduledRunnable poll() {
+      if (size == 0) {
+        return null;
+      }
+      ScheduledRunnable head = heap[0];
+      removeFromHeap(0);
+      removeFromIndex(head);
+      return head;
+    }
+
+    /** Removes and returns the head of the queue if it is scheduled at or before the given time. */
+    ScheduledRunnable pollScheduledBefore(long endTime) {
+      return size > 0 && heap[0].scheduledTime <= endTime ? poll() : null;
+    }
+
+    void removeAll(Runnable runnable) {
+      ScheduledRunnable scheduled = byRunnable.remove(runnable);
+      while (scheduled != null) {
+        ScheduledRunnable next = scheduled.nextSame;
+        removeFromHeap(scheduled.heapIndex);
+        scheduled.prevSame = null;
+        scheduled.nextSame = null;
+        scheduled = next;
+      }
+    }
+
+    long getLastScheduledTime() {
+      long max = Long.MIN_VALUE;
+      for (int i = 0; i < size; i++) {
+        max = Math.max(max, heap[i].scheduledTime);
+      }
+      return max;
+    }
+
+    void clear() {
+      Arrays.fill(heap, 0, size, null);
+      size = 0;
+      byRunnable.clear();
+    }
+
+    private void removeFromIndex(ScheduledRunnable scheduled) {
+      if (scheduled.prevSame != null) {
+        scheduled.prevSame.nextSame = scheduled.nextSame;
+      } else if (scheduled.nextSame != null) {
+        byRunnable.put(scheduled.runnable, scheduled.nextSame);
+      } else {
+        byRunnable.remove(scheduled.runnable);
+      }
+      if (scheduled.nextSame != null) {
+        scheduled.nextSame.prevSame = scheduled.prevSame;
+      }
+      scheduled.prevSame = null;
+      scheduled.nextSame = null;
+    }
+
+    private void removeFromHeap(int index) {
+      heap[index].heapIndex = -1;
+      size--;
+      ScheduledRunnable last = heap[size];
+      heap[size] = null;
+      if (index != size) {
+        heap[index] = last;
+        last.heapIndex = index;
+        siftDown(index);
+        if (heap[index] == last) {
+          siftUp(index);
+        }
+      }
+    }
+
+    private void siftUp(int index) {
+      ScheduledRunnable scheduled = heap[index];
+      while (index > 0) {
+        int parent = (index - 1) >>> 1;
+        if (heap[parent].compareTo(scheduled) <= 0) {
+          break;
+        }
+        heap[index] = heap[parent];
+        heap[index].heapIndex = index;
+        index = parent;
+      }
+      heap[index] = scheduled;
+      scheduled.heapIndex = index;
+    }
+
+    private void siftDown(int index) {
+      ScheduledRunnable scheduled = heap[index];
+      int half = size >>> 1;
+      while (index < half) {
+        int child = 2 * index + 1;
+        int right = child + 1;
+        if (right < size && heap[right].compareTo(heap[child]) < 0) {
+          child = right;
+        }
+        if (scheduled.compareTo(heap[child]) <= 0) {
+          break;
+        }
+        heap[index] = heap[child];
+        heap[index].heapIndex = index;
+        index = child;
+      }
+      heap[index] = scheduled;
+      scheduled.heapIndex = index;
+    }
+  }
 }
@@ -0,0 +1,74 @@
+package org.robolectric.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the threads backing Robolectric's own background executors.
+ *
+ * <p>If the {@code robolectric.useVirtualThreads} system property is set to true and the JDK
+ * supports virtual threads (JDK 21 and later), the threads are virtual, which makes executors cheap
+ * to create and tear down in thread-heavy suites. Otherwise the given platform thread factory is
+ * used. Virtual threads are looked up reflectively, so this works on any JDK.
+ */
+public final class VirtualThreads {
+
+  private static final String USE_VIRTUAL_THREADS = "robolectric.useVirtualThreads";
+
+  private static volatile Boolean supported;
+
+  private VirtualThreads() {}
+
+  /** Returns true if virtual threads were requested and are available on this JDK. */
+  public static boolean isEnabled() {
+    return Boolean.getBoolean(USE_VIRTUAL_THREADS) && isSupported();
+  }
+
+  /**
+   * Returns a factory for threads with the given name prefix, which are virtual if {@link
+   * #isEnabled()}, or else created by {@code platformThreadFactory}.
+   */
+  public static ThreadFactory threadFactory(String name, ThreadFactory platformThreadFactory) {
+    if (isEnabled()) {
+      try {
+        return newVirtualThreadFactory(name);
+      } catch (ReflectiveOperationException e) {
+        Logger.warn("unable to create virtual thread factory, using platform threads: %s", e);
+      }
+    }
+    return platformThreadFactory;
+  }
+
+  private static boolean isSupported() {
+    if (supported == null) {
+      boolean isSupported;
+      try {
+        newVirtualThreadFactory("probe");
+        isSupported = true;
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        // not available, or a preview feature of this JDK which isn't enabled
+        isSupported = false;
+      }
+      supported = isSupported;
+    }
+    return supported;
+  }
+
+  private static ThreadFactory newVirtualThreadFactory(String name)
+      throws ReflectiveOperationException {
+    // Thread.ofVirtual().name(name, 0).factory()
+    Method ofVirtual = Thread.class.getMethod("ofVirtual");
+    Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+    try {
+      Object builder = ofVirtual.invoke(null);
+      builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name, 0L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
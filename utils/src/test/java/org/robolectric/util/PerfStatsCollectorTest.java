@@ -56,6 +56,17 @@ public class PerfStatsCollectorTest {
     );
   }
 
+  @Test
+  public void shouldIncrementCountsInBulk() throws Exception {
+    collector.incrementCount("counter");
+    collector.incrementCount("counter", 41);
+    collector.incrementCount("counter", 0);
+
+    Collection<Metric> metrics = collector.getMetrics();
+    assertThat(metrics).containsExactly(new Metric("counter", 42, 0, true));
+    assertThat(metrics.iterator().next().getCount()).isEqualTo(42);
+  }
+
   @Test
   public void shouldRunAndMeasureSuccessfulCallable() throws Exception {
     assertThat(collector.measure("event", () -> {
@@ -252,6 +252,33 @@ public class SchedulerTest {
     assertThat(runnable.wasRun).isFalse();
   }
 
+  @Test
+  public void remove_ShouldPreserveOrderOfRemainingRunnables() {
+    List<Runnable> runnables = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      String name = "task" + i;
+      Runnable runnable = () -> transcript.add(name);
+      runnables.add(runnable);
+      scheduler.postDelayed(runnable, (i * 7) % 10);
+    }
+    for (int i = 0; i < runnables.size(); i += 3) {
+      scheduler.remove(runnables.get(i));
+    }
+    assertThat(scheduler.size()).isEqualTo(666);
+
+    scheduler.advanceBy(10);
+
+    List<String> expected = new ArrayList<>();
+    for (int delay = 0; delay < 10; delay++) {
+      for (int i = 0; i < runnables.size(); i++) {
+        if (i % 3 != 0 && (i * 7) % 10 == delay) {
+          expected.add("task" + i);
+        }
+      }
+    }
+    assertThat(transcript).containsExactlyElementsIn(expected).inOrder();
+  }
+
   @Test
   public void reset_shouldUnPause() throws Exception {
     scheduler.pause();
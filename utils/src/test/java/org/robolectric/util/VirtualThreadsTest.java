@@ -0,0 +1,46 @@
+package org.robolectric.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.ThreadFactory;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class VirtualThreadsTest {
+
+  private final ThreadFactory platformThreadFactory = r -> new Thread(r, "platform");
+
+  @After
+  public void tearDown() {
+    System.clearProperty("robolectric.useVirtualThreads");
+  }
+
+  @Test
+  public void threadFactory_disabledByDefault_usesPlatformThreadFactory() {
+    assertThat(VirtualThreads.isEnabled()).isFalse();
+    assertThat(VirtualThreads.threadFactory("test", platformThreadFactory))
+        .isSameInstanceAs(platformThreadFactory);
+  }
+
+  @Test
+  public void threadFactory_enabled_createsRunnableThreads() throws Exception {
+    System.setProperty("robolectric.useVirtualThreads", "true");
+    ThreadFactory threadFactory = VirtualThreads.threadFactory("test", platformThreadFactory);
+    boolean[] ran = new boolean[1];
+
+    Thread thread = threadFactory.newThread(() -> ran[0] = true);
+    thread.start();
+    thread.join();
+
+    assertThat(ran[0]).isTrue();
+    if (VirtualThreads.isEnabled()) {
+      assertThat(thread.getName()).isEqualTo("test0");
+    } else {
+      // not supported by this JDK
+      assertThat(thread.getName()).isEqualTo("platform");
+    }
+  }
+}